@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * The BenchmarkDataSeeder class creates the employee schema in an empty database from the application's
+ * schema script and fills it with reproducible synthetic data: divisions, job titles, employees, and
+ * bi-weekly payroll history for a configurable number of years. About one in five employees is part-time
+ * and gets part_time_payroll rows instead of payroll rows.
+ */
+class BenchmarkDataSeeder {
+    /**
+     * Rows inserted per batch and commit while seeding.
+     */
+    private static final int BATCH_SIZE = 5000;
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+        "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Nahom", "Karen",
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+        "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Abera",
+    };
+
+    private static final int DIVISIONS = 12;
+    private static final int JOB_TITLES = 24;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * Creates the schema and inserts the synthetic data.
+     *
+     * @param connection A connection to an empty database.
+     * @param schema The schema script, normally sql/schema.sql.
+     * @param employees The number of employees to create.
+     * @param years The number of years of bi-weekly payroll history per employee.
+     * @throws IOException If the schema script cannot be read.
+     * @throws SQLException If the schema or data cannot be written.
+     */
+    void seed(Connection connection, Path schema, int employees, int years) throws IOException, SQLException {
+        SqlScript.run(connection, schema);
+        connection.setAutoCommit(false);
+        try {
+            seedLookups(connection);
+            seedEmployees(connection, employees, years);
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void seedLookups(Connection connection) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO division (ID, Name, city, addressLine1, addressLine2, state, country, postalCode) " +
+                "VALUES (?, ?, ?, ?, NULL, ?, 'USA', ?)")) {
+            for (int id = 1; id <= DIVISIONS; id++) {
+                pstmt.setInt(1, id);
+                pstmt.setString(2, "Division " + id);
+                pstmt.setString(3, "City " + id);
+                pstmt.setString(4, id + " Main Street");
+                pstmt.setString(5, "GA");
+                pstmt.setString(6, String.format("%05d", 30000 + id));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO job_titles (job_title_id, job_title) VALUES (?, ?)")) {
+            for (int id = 1; id <= JOB_TITLES; id++) {
+                pstmt.setInt(1, id);
+                pstmt.setString(2, "Job Title " + id);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private void seedEmployees(Connection connection, int employees, int years) throws SQLException {
+        LocalDate firstPayDate = LocalDate.now().minusYears(years);
+        int payPeriods = years * 26;
+        try (PreparedStatement employee = connection.prepareStatement(
+                "INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, SSN, address, date_of_birth) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement division = connection.prepareStatement(
+                "INSERT INTO employee_division (empid, div_ID) VALUES (?, ?)");
+             PreparedStatement title = connection.prepareStatement(
+                "INSERT INTO employee_job_titles (empid, job_title_id) VALUES (?, ?)");
+             PreparedStatement payroll = connection.prepareStatement(
+                "INSERT INTO payroll (pay_date, earnings, fed_tax, fed_med, fed_SS, state_tax, retire_401k, " +
+                "health_care, health_cost, empid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement partTime = connection.prepareStatement(
+                "INSERT INTO part_time_payroll (pay_date, hours_worked, hourly_wage, fed_tax, fed_med, fed_SS, " +
+                "state_tax, empid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            int pendingPayRows = 0;
+            for (int empId = 1; empId <= employees; empId++) {
+                String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                double salary = Math.round(random.nextDouble(30000, 150000) * 100) / 100.0;
+                employee.setInt(1, empId);
+                employee.setString(2, first);
+                employee.setString(3, last);
+                employee.setString(4, first.toLowerCase() + "." + last.toLowerCase() + empId + "@example.com");
+                employee.setDate(5, Date.valueOf(firstPayDate.minusDays(random.nextInt(30, 3650))));
+                employee.setDouble(6, salary);
+                employee.setString(7, String.format("%09d", 100000000 + empId));
+                employee.setString(8, empId + " Peachtree Street, Atlanta, GA");
+                employee.setDate(9, Date.valueOf(LocalDate.of(1960 + random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28))));
+                employee.addBatch();
+                division.setInt(1, empId);
+                division.setInt(2, 1 + random.nextInt(DIVISIONS));
+                division.addBatch();
+                title.setInt(1, empId);
+                title.setInt(2, 1 + random.nextInt(JOB_TITLES));
+                title.addBatch();
+
+                boolean fullTime = random.nextInt(5) != 0;
+                double wage = Math.round(random.nextDouble(15, 45) * 100) / 100.0;
+                for (int period = 0; period < payPeriods; period++) {
+                    Date payDate = Date.valueOf(firstPayDate.plusWeeks(2L * period));
+                    if (fullTime) {
+                        double gross = Math.round(salary / 26 * 100) / 100.0;
+                        payroll.setDate(1, payDate);
+                        payroll.setDouble(2, gross);
+                        payroll.setDouble(3, cents(gross * 0.32));
+                        payroll.setDouble(4, cents(gross * 0.0145));
+                        payroll.setDouble(5, cents(gross * 0.062));
+                        payroll.setDouble(6, cents(gross * 0.12));
+                        payroll.setDouble(7, cents(gross * 0.004));
+                        payroll.setDouble(8, 31.50);
+                        payroll.setDouble(9, 0);
+                        payroll.setInt(10, empId);
+                        payroll.addBatch();
+                    } else {
+                        double hours = Math.round(random.nextDouble(10, 40) * 4) / 4.0;
+                        double gross = hours * wage;
+                        partTime.setDate(1, payDate);
+                        partTime.setDouble(2, hours);
+                        partTime.setDouble(3, wage);
+                        partTime.setDouble(4, cents(gross * 0.32));
+                        partTime.setDouble(5, cents(gross * 0.0145));
+                        partTime.setDouble(6, cents(gross * 0.062));
+                        partTime.setDouble(7, cents(gross * 0.12));
+                        partTime.setInt(8, empId);
+                        partTime.addBatch();
+                    }
+                    pendingPayRows++;
+                }
+                if (empId % BATCH_SIZE == 0 || pendingPayRows >= BATCH_SIZE * 10) {
+                    flush(connection, employee, division, title, payroll, partTime);
+                    pendingPayRows = 0;
+                }
+            }
+            flush(connection, employee, division, title, payroll, partTime);
+        }
+    }
+
+    private static void flush(Connection connection, PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    private static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
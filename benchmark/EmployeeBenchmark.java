@@ -0,0 +1,261 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.SplittableRandom;
+
+/**
+ * The EmployeeBenchmark class measures the report, search and write paths of the application against a seeded
+ * database, so that performance changes can be compared with a reproducible baseline. Each benchmark is run
+ * for a number of warm-up iterations and then measured; the results report throughput, latency percentiles
+ * and the bytes allocated per operation by the benchmark thread.
+ *
+ * By default the benchmark seeds an in-process H2 database in MySQL mode, which requires the H2 jar on the
+ * class path. Any other JDBC URL can be given with --url; --seed false skips seeding an already populated
+ * database. Run with --help for all options.
+ */
+public class EmployeeBenchmark {
+    private static final String DEFAULT_URL = "jdbc:h2:mem:employeeBenchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final EmployeeDatabase employeeDatabase;
+    private final int employees;
+    private final int warmup;
+    private final int iterations;
+    private final SplittableRandom random = new SplittableRandom(7);
+    private final PrintStream console = System.out;
+    private final PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+    private int nextEmpId;
+
+    private EmployeeBenchmark(EmployeeDatabase employeeDatabase, int employees, int warmup, int iterations) {
+        this.employeeDatabase = employeeDatabase;
+        this.employees = employees;
+        this.warmup = warmup;
+        this.iterations = iterations;
+        this.nextEmpId = employees + 1;
+    }
+
+    /**
+     * Seeds the database if requested and runs the selected benchmarks.
+     *
+     * @param args Options of the form --name value; see printUsage().
+     * @throws Exception If the database cannot be seeded or a benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("help")) {
+            printUsage();
+            return;
+        }
+        String url = options.getOrDefault("url", DEFAULT_URL);
+        String user = options.getOrDefault("user", "sa");
+        String password = options.getOrDefault("password", "");
+        int employees = Integer.parseInt(options.getOrDefault("employees", "10000"));
+        int years = Integer.parseInt(options.getOrDefault("years", "5"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20"));
+        String only = options.get("only");
+
+        try (EmployeeDatabase employeeDatabase = new EmployeeDatabase(url, user, password)) {
+            if (Boolean.parseBoolean(options.getOrDefault("seed", "true"))) {
+                long start = System.nanoTime();
+                try (Connection connection = employeeDatabase.getConnection()) {
+                    new BenchmarkDataSeeder().seed(connection, Paths.get(options.getOrDefault("schema", "sql/schema.sql")),
+                            employees, years);
+                }
+                System.out.printf("Seeded %d employees with %d years of payroll in %.1f s%n",
+                        employees, years, (System.nanoTime() - start) / 1e9);
+            }
+            employeeDatabase.getSchemaCatalog().load();
+            employeeDatabase.getNameIndex().build();
+            new EmployeeBenchmark(employeeDatabase, employees, warmup, iterations).runAll(only);
+        }
+    }
+
+    /**
+     * Runs every benchmark whose name contains the filter, or all of them when the filter is null.
+     */
+    private void runAll(String only) throws Exception {
+        Map<String, Operation> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("report.fullTime", () -> new FullTimeEmployeeReport(employeeDatabase).generateEmployeeReport(nullSink()));
+        benchmarks.put("report.partTime", () -> new PartTimeEmployeeReport(employeeDatabase).generateEmployeeReport(nullSink()));
+        benchmarks.put("report.payByMonth", () -> new Payroll(employeeDatabase).writePayByMonth(randomEmpId(), nullSink()));
+        benchmarks.put("report.totalPayByJobTitle", () -> reportGenerator(1 + random.nextInt(24)).generateTotalPayByJobTitleReport());
+        benchmarks.put("report.totalPayByDivision", () -> reportGenerator(1 + random.nextInt(12), "n").generateTotalPayByDivisionReport());
+        benchmarks.put("report.divisionHistory", () -> reportGenerator(1 + random.nextInt(12), "y").generateTotalPayByDivisionReport());
+        benchmarks.put("search.byIdCached", () -> new SearchEmployee(employeeDatabase).searchEmployee(input(randomEmpId())));
+        benchmarks.put("search.byIdUncached", () -> {
+            employeeDatabase.employeesChanged();
+            new SearchEmployee(employeeDatabase).searchEmployee(input(randomEmpId()));
+        });
+        benchmarks.put("search.byName", () -> new SearchEmployee(employeeDatabase).searchEmployee(input("ohns")));
+        benchmarks.put("search.byNamePrefix", () -> new SearchEmployee(employeeDatabase).searchEmployee(input("Ma")));
+        benchmarks.put("write.addEmployee", () -> new AddEmployee(employeeDatabase).addEmployee(input(newEmployeeAnswers())));
+        benchmarks.put("write.updateSalary", () -> new UpdateEmployee(employeeDatabase).updateEmployeeData(
+                input(randomEmpId(), 2, 50000 + random.nextInt(50000))));
+        benchmarks.put("write.salaryRange", () -> new UpdateEmployee(employeeDatabase).updateEmployeeSalaryRange(
+                input(40000, 40500, 0, "y")));
+        benchmarks.put("write.bulkImport1000", this::bulkImport);
+        benchmarks.put("write.bulkReassign1000", () -> {
+            List<Integer> ids = new ArrayList<>();
+            int start = 1 + random.nextInt(Math.max(1, employees - 1000));
+            for (int id = start; id < start + 1000 && id <= employees; id++) {
+                ids.add(id);
+            }
+            new UpdateEmployeeDivision(employeeDatabase).reassignEmployees(ids, 1 + random.nextInt(12));
+        });
+
+        console.printf("%-28s %10s %10s %10s %10s %10s %14s%n",
+                "Benchmark", "ops/s", "p50 ms", "p99 ms", "max ms", "mean ms", "alloc/op");
+        for (Map.Entry<String, Operation> benchmark : benchmarks.entrySet()) {
+            if (only == null || benchmark.getKey().contains(only)) {
+                measure(benchmark.getKey(), benchmark.getValue());
+            }
+        }
+    }
+
+    /**
+     * Runs one benchmark with its console output discarded and prints its results.
+     */
+    private void measure(String name, Operation operation) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] latencies = new long[iterations];
+        long allocated;
+        long total;
+        System.setOut(discard);
+        try {
+            for (int i = 0; i < warmup; i++) {
+                operation.run();
+            }
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                long begin = System.nanoTime();
+                operation.run();
+                latencies[i] = System.nanoTime() - begin;
+            }
+            total = System.nanoTime() - start;
+            allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        } finally {
+            System.setOut(console);
+        }
+        Arrays.sort(latencies);
+        console.printf("%-28s %10.1f %10.3f %10.3f %10.3f %10.3f %14s%n", name,
+                iterations / (total / 1e9),
+                percentile(latencies, 50) / 1e6,
+                percentile(latencies, 99) / 1e6,
+                latencies[latencies.length - 1] / 1e6,
+                total / 1e6 / iterations,
+                formatBytes(allocated / iterations));
+    }
+
+    /**
+     * Writes a CSV file of 1000 new employees and imports it.
+     */
+    private void bulkImport() throws IOException, SQLException {
+        Path file = Files.createTempFile("employee-benchmark", ".csv");
+        try {
+            StringBuilder csv = new StringBuilder("empid,Fname,Lname,email,HireDate,Salary,SSN,address,date_of_birth\n");
+            for (int i = 0; i < 1000; i++) {
+                int empId = nextEmpId++;
+                csv.append(empId).append(",Bench,Import").append(',').append("bench").append(empId).append("@example.com")
+                        .append(",2020-01-15,55000,").append(String.format("%09d", 800000000 + empId))
+                        .append(",\"1 Test Way, Atlanta, GA\",1990-05-05\n");
+            }
+            Files.writeString(file, csv, StandardCharsets.UTF_8);
+            new BulkEmployeeImport(employeeDatabase).importFile(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Object[] newEmployeeAnswers() {
+        int empId = nextEmpId++;
+        return new Object[] { empId, "Bench", "Insert", "insert" + empId + "@example.com", "2021-03-01", 61000,
+                String.format("%09d", 700000000 + empId), "2 Test Way, Atlanta, GA", "1988-08-08" };
+    }
+
+    private ReportGeneratorByJobTitleOrDivision reportGenerator(Object... answers) {
+        return new ReportGeneratorByJobTitleOrDivision(employeeDatabase, input(answers));
+    }
+
+    private int randomEmpId() {
+        return 1 + random.nextInt(employees);
+    }
+
+    /**
+     * Builds a Scanner that answers the prompts of an interactive operation with the given values, one per line.
+     */
+    private static Scanner input(Object... answers) {
+        StringBuilder lines = new StringBuilder();
+        for (Object answer : answers) {
+            lines.append(answer).append('\n');
+        }
+        return new Scanner(lines.toString());
+    }
+
+    private static ReportSink nullSink() {
+        return new WriterReportSink(Writer.nullWriter(), true);
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes >= 1 << 20) {
+            return String.format("%.1f MB", bytes / (double) (1 << 20));
+        }
+        if (bytes >= 1 << 10) {
+            return String.format("%.1f KB", bytes / (double) (1 << 10));
+        }
+        return bytes + " B";
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            String value = i + 1 < args.length && !args[i + 1].startsWith("--") ? args[++i] : "true";
+            options.put(name, value);
+        }
+        return options;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -cp <classes>:<jdbc driver jars> EmployeeBenchmark [options]");
+        System.out.println("  --url <jdbc url>        database to benchmark (default: in-memory H2 in MySQL mode)");
+        System.out.println("  --user <name>           database user (default: sa)");
+        System.out.println("  --password <secret>     database password (default: empty)");
+        System.out.println("  --seed <true|false>     create and fill the schema first (default: true)");
+        System.out.println("  --schema <file>         schema script used when seeding (default: sql/schema.sql)");
+        System.out.println("  --employees <n>         employees to seed, e.g. 10000 to 1000000 (default: 10000)");
+        System.out.println("  --years <n>             years of bi-weekly payroll to seed (default: 5)");
+        System.out.println("  --warmup <n>            warm-up iterations per benchmark (default: 5)");
+        System.out.println("  --iterations <n>        measured iterations per benchmark (default: 20)");
+        System.out.println("  --only <text>           run only benchmarks whose name contains the text");
+    }
+
+    /**
+     * One benchmarked operation.
+     */
+    private interface Operation {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,71 @@
+-- Schema of the employee database. Every statement is valid for MySQL and for H2 in MySQL mode, and
+-- tables are only created when they do not exist, so the script can be run against a populated database.
+
+CREATE TABLE IF NOT EXISTS employees (
+    empid INT PRIMARY KEY,
+    Fname VARCHAR(65) NOT NULL,
+    Lname VARCHAR(65) NOT NULL,
+    email VARCHAR(65),
+    HireDate DATE,
+    Salary DOUBLE NOT NULL,
+    SSN VARCHAR(9),
+    address VARCHAR(255),
+    date_of_birth DATE,
+    last_modified TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    INDEX employees_last_modified (last_modified)
+);
+
+CREATE TABLE IF NOT EXISTS division (
+    ID INT PRIMARY KEY,
+    Name VARCHAR(100) NOT NULL,
+    city VARCHAR(50),
+    addressLine1 VARCHAR(50),
+    addressLine2 VARCHAR(50),
+    state VARCHAR(50),
+    country VARCHAR(50),
+    postalCode VARCHAR(15)
+);
+
+CREATE TABLE IF NOT EXISTS employee_division (
+    empid INT PRIMARY KEY,
+    div_ID INT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS job_titles (
+    job_title_id INT PRIMARY KEY,
+    job_title VARCHAR(125) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS employee_job_titles (
+    empid INT NOT NULL,
+    job_title_id INT NOT NULL,
+    PRIMARY KEY (empid, job_title_id)
+);
+
+CREATE TABLE IF NOT EXISTS payroll (
+    payID INT AUTO_INCREMENT PRIMARY KEY,
+    pay_date DATE,
+    earnings DOUBLE,
+    fed_tax DOUBLE,
+    fed_med DOUBLE,
+    fed_SS DOUBLE,
+    state_tax DOUBLE,
+    retire_401k DOUBLE,
+    health_care DOUBLE,
+    health_cost DOUBLE,
+    empid INT NOT NULL,
+    CONSTRAINT payroll_empid_date UNIQUE (empid, pay_date)
+);
+
+CREATE TABLE IF NOT EXISTS part_time_payroll (
+    payID INT AUTO_INCREMENT PRIMARY KEY,
+    pay_date DATE,
+    hours_worked DOUBLE,
+    hourly_wage DOUBLE,
+    fed_tax DOUBLE,
+    fed_med DOUBLE,
+    fed_SS DOUBLE,
+    state_tax DOUBLE,
+    empid INT NOT NULL,
+    CONSTRAINT part_time_payroll_empid_date UNIQUE (empid, pay_date)
+);
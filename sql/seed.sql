@@ -0,0 +1,43 @@
+-- Sample data for an empty database: three divisions, four job titles, six employees and a few pay
+-- periods of payroll. Employee 6 is part-time. The benchmark seeds its own, much larger data set.
+
+INSERT INTO division (ID, Name, city, addressLine1, addressLine2, state, country, postalCode) VALUES
+    (1, 'Technology Engineering', 'Atlanta', '200 17th Street NW', NULL, 'GA', 'USA', '30363'),
+    (2, 'Marketing', 'Atlanta', '200 17th Street NW', NULL, 'GA', 'USA', '30363'),
+    (3, 'Human Resources', 'New York', '45 West 36th Street', '7th Floor', 'NY', 'USA', '10018');
+
+INSERT INTO job_titles (job_title_id, job_title) VALUES
+    (100, 'Software Manager'),
+    (101, 'Software Architect'),
+    (200, 'Marketing Manager'),
+    (300, 'HR Manager');
+
+INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, SSN, address, date_of_birth) VALUES
+    (1, 'Snoopy', 'Beagle', 'snoopy@example.com', '2022-08-01', 45000.00, '111111100', '1 Doghouse Lane, Atlanta, GA', '1990-10-04'),
+    (2, 'Charlie', 'Brown', 'charlie@example.com', '2022-07-01', 48000.00, '111111101', '2 Baseball Court, Atlanta, GA', '1988-05-12'),
+    (3, 'Lucy', 'Doctor', 'lucy@example.com', '2022-07-03', 55000.00, '111111102', '3 Booth Street, Atlanta, GA', '1987-03-21'),
+    (4, 'Pepermint', 'Patti', 'peppermint@example.com', '2022-08-02', 98000.00, '111111103', '4 Outfield Road, New York, NY', '1985-11-30'),
+    (5, 'Linus', 'Blanket', 'linus@example.com', '2022-09-01', 43000.00, '111111104', '5 Pumpkin Patch, New York, NY', '1992-02-14'),
+    (6, 'Woodstock', 'Bird', 'woodstock@example.com', '2023-01-15', 31000.00, '111111105', '6 Nest Avenue, Atlanta, GA', '1995-06-06');
+
+INSERT INTO employee_division (empid, div_ID) VALUES
+    (1, 1), (2, 1), (3, 2), (4, 3), (5, 2), (6, 1);
+
+INSERT INTO employee_job_titles (empid, job_title_id) VALUES
+    (1, 101), (2, 100), (3, 200), (4, 300), (5, 200), (6, 101);
+
+INSERT INTO payroll (pay_date, earnings, fed_tax, fed_med, fed_SS, state_tax, retire_401k, health_care, health_cost, empid) VALUES
+    ('2024-01-12', 1730.77, 553.85, 25.10, 107.31, 207.69, 6.92, 31.50, 0, 1),
+    ('2024-01-26', 1730.77, 553.85, 25.10, 107.31, 207.69, 6.92, 31.50, 0, 1),
+    ('2024-01-12', 1846.15, 590.77, 26.77, 114.46, 221.54, 7.38, 31.50, 0, 2),
+    ('2024-01-26', 1846.15, 590.77, 26.77, 114.46, 221.54, 7.38, 31.50, 0, 2),
+    ('2024-01-12', 2115.38, 676.92, 30.67, 131.15, 253.85, 8.46, 31.50, 0, 3),
+    ('2024-01-26', 2115.38, 676.92, 30.67, 131.15, 253.85, 8.46, 31.50, 0, 3),
+    ('2024-01-12', 3769.23, 1206.15, 54.65, 233.69, 452.31, 15.08, 31.50, 0, 4),
+    ('2024-01-26', 3769.23, 1206.15, 54.65, 233.69, 452.31, 15.08, 31.50, 0, 4),
+    ('2024-01-12', 1653.85, 529.23, 23.98, 102.54, 198.46, 6.62, 31.50, 0, 5),
+    ('2024-01-26', 1653.85, 529.23, 23.98, 102.54, 198.46, 6.62, 31.50, 0, 5);
+
+INSERT INTO part_time_payroll (pay_date, hours_worked, hourly_wage, fed_tax, fed_med, fed_SS, state_tax, empid) VALUES
+    ('2024-01-12', 32.5, 18.50, 192.40, 8.72, 37.28, 72.15, 6),
+    ('2024-01-26', 28.0, 18.50, 165.76, 7.51, 32.12, 62.16, 6);
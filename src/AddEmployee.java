@@ -76,8 +76,8 @@ public class AddEmployee {
      * @return true if the SSN column exists, false otherwise.
      */
     private boolean checkSSNColumnExists() {
-        try (ResultSet resultSet = employeeDatabase.connection.getMetaData().getColumns(null, null, "employees", "SSN")) {
-            return resultSet.next();
+        try {
+            return employeeDatabase.isSSNColumnAvailable();
         } catch (SQLException e) {
             System.out.println("Failed to check SSN column existence: " + e.getMessage());
             return false;
@@ -91,16 +91,29 @@ public class AddEmployee {
      * @return true if the SSN already exists, false otherwise.
      */
     private boolean ssnAlreadyExists(String ssn) {
+        try {
+            return ssnTaken(ssn);
+        } catch (SQLException e) {
+            System.out.println("Failed to check SSN existence: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks if an SSN is already recorded for an employee.
+     * 
+     * @param ssn The SSN to check.
+     * @return true if an employee has the SSN.
+     * @throws SQLException If the employees cannot be read.
+     */
+    boolean ssnTaken(String ssn) throws SQLException {
         String query = "SELECT COUNT(*) AS count FROM employees WHERE SSN = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
             pstmt.setString(1, ssn);
             try (ResultSet resultSet = pstmt.executeQuery()) {
                 resultSet.next();
                 return resultSet.getInt("count") > 0;
             }
-        } catch (SQLException e) {
-            System.out.println("Failed to check SSN existence: " + e.getMessage());
-            return false;
         }
     }
 
@@ -111,13 +124,8 @@ public class AddEmployee {
      * @return true if the employee ID already exists, false otherwise.
      */
     private boolean employeeExists(int empId) {
-        String query = "SELECT COUNT(*) AS count FROM employees WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setInt(1, empId);
-            try (ResultSet resultSet = pstmt.executeQuery()) {
-                resultSet.next();
-                return resultSet.getInt("count") > 0;
-            }
+        try {
+            return employeeDatabase.employeeExists(empId);
         } catch (SQLException e) {
             System.out.println("Failed to check employee existence: " + e.getMessage());
             return false;
@@ -139,6 +147,29 @@ public class AddEmployee {
      * @param ssnExists Indicates if the SSN column exists in the database.
      */
     private void insertEmployee(int empId, String firstName, String lastName, String email, String hireDate, double salary, String ssn, String address, String dob, boolean ssnExists) {
+        try {
+            Employee employee = new Employee(empId, firstName, lastName, email, Date.valueOf(hireDate), salary,
+                    ssnExists ? ssn : null, address, Date.valueOf(dob));
+            if (EmployeeService.await(employeeDatabase.getEmployeeService().add(employee))) {
+                System.out.println("Employee added successfully.");
+            } else {
+                System.out.println("Failed to add employee.");
+            }
+        } catch (SQLException e) {
+            System.out.println("Failed to add employee: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts a new employee and records it in the name index and the audit log. Uniqueness of the employee
+     * ID and SSN is left to the caller and the database.
+     * 
+     * @param employee The employee to insert.
+     * @param ssnExists Indicates if the SSN column exists in the database; if not, the SSN is not stored.
+     * @return true if the row was inserted.
+     * @throws SQLException If the row cannot be inserted, for example because the employee ID is taken.
+     */
+    boolean insert(Employee employee, boolean ssnExists) throws SQLException {
         String query;
         if (ssnExists) {
             query = "INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, SSN, address, date_of_birth) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
@@ -146,29 +177,30 @@ public class AddEmployee {
             query = "INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, address, date_Of_birth) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         }
 
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+        int empId = employee.getEmpId();
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
             pstmt.setInt(1, empId);
-            pstmt.setString(2, firstName);
-            pstmt.setString(3, lastName);
-            pstmt.setString(4, email);
-            pstmt.setDate(5, Date.valueOf(hireDate));
-            pstmt.setDouble(6, salary);
+            pstmt.setString(2, employee.getFirstName());
+            pstmt.setString(3, employee.getLastName());
+            pstmt.setString(4, employee.getEmail());
+            pstmt.setDate(5, employee.getHireDate());
+            pstmt.setDouble(6, employee.getSalary());
             if (ssnExists) {
-                pstmt.setString(7, ssn);
-                pstmt.setString(8, address);
-                pstmt.setDate(9, Date.valueOf(dob));
+                pstmt.setString(7, employee.getSsn());
+                pstmt.setString(8, employee.getAddress());
+                pstmt.setDate(9, employee.getDateOfBirth());
             } else {
-                pstmt.setString(7, address);
-                pstmt.setDate(8, Date.valueOf(dob));
+                pstmt.setString(7, employee.getAddress());
+                pstmt.setDate(8, employee.getDateOfBirth());
             }
             int rowsAffected = pstmt.executeUpdate();
-            if (rowsAffected > 0) {
-                System.out.println("Employee added successfully.");
-            } else {
-                System.out.println("Failed to add employee.");
+            employeeDatabase.employeeChanged(empId);
+            if (rowsAffected == 0) {
+                return false;
             }
-        } catch (SQLException e) {
-            System.out.println("Failed to add employee: " + e.getMessage());
+            employeeDatabase.getNameIndex().put(empId, employee.getFirstName(), employee.getLastName(), employee.getEmail());
+            employeeDatabase.getAuditLog().recordInsert("employees", empId, AuditLog.image(employee));
+            return true;
         }
     }
 }
@@ -21,7 +21,8 @@ public class AddSsnColumnInDatabase {
 
     /**
      * Adds an SSN column to the employees table in the database if it does not already exist.
-     * Provides feedback about the success or failure of adding the column.
+     * Provides feedback about the success or failure of adding the column. The schema catalog is
+     * invalidated afterwards so that later checks see the new column.
      * 
      * @throws SQLException If a database access error occurs or this method is called on a closed connection.
      */
@@ -30,17 +31,15 @@ public class AddSsnColumnInDatabase {
             System.out.println("SSN Column Already Exists in the Database.");
         }
         else{
-            DatabaseMetaData dbmd = employeeDatabase.connection.getMetaData();
-            try (ResultSet rs = dbmd.getColumns(null, null, "employees", "SSN")) {
-                if (!rs.next()) {
-                    String query = "ALTER TABLE employees ADD COLUMN SSN VARCHAR(9)";
-                    try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                        employeeDatabase.executeUpdate(pstmt);
-                        System.out.println("SSN column added successfully. \nSelect \"4. Update Employee Data\" on Main Window to add the employees SSN.");
-                    }
-                } 
+            String query = "ALTER TABLE employees ADD COLUMN SSN VARCHAR(9)";
+            try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
+                employeeDatabase.executeUpdate(pstmt);
+                System.out.println("SSN column added successfully. \nSelect \"4. Update Employee Data\" on Main Window to add the employees SSN.");
             } catch (SQLException e) {
                 System.out.println("Failed to add SSN column: " + e.getMessage());
+            } finally {
+                employeeDatabase.getSchemaCatalog().invalidate();
+                employeeDatabase.employeesChanged();
             }
         }
     }
@@ -0,0 +1,414 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The AuditLog class keeps a history of changes to employee data: for every inserted, updated or deleted row it
+ * records when the change was made, by which user, and the row's values before and after. Write paths hand
+ * change events to record() after their change is committed; record() only puts the event on a bounded queue
+ * and never blocks, so writes do not get slower. A background thread drains the queue in batches and appends
+ * the events as JSON lines to segment files in the audit directory, starting a new segment when the current
+ * one reaches its size limit. Segments are only ever appended to, and every run starts a new one.
+ *
+ * If the queue is full, for example during a burst the writer cannot keep up with, the event is dropped
+ * rather than delaying the caller; stats() reports how many events were written, are queued and were
+ * dropped. SSN values are never written to the log, only the fact that they changed.
+ */
+class AuditLog implements AutoCloseable {
+    static final String INSERT = "INSERT";
+    static final String UPDATE = "UPDATE";
+    static final String DELETE = "DELETE";
+
+    /**
+     * Number of change events that can wait for the writer before new ones are dropped.
+     */
+    static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    /**
+     * Size at which a segment file is closed and the next one started.
+     */
+    static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Maximum number of events the writer appends before flushing the segment.
+     */
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    /**
+     * How long close() waits for the writer to append the events still queued.
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final String user;
+    private final BlockingQueue<Event> queue;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Number of segments opened by this log, used in segment file names; only touched by the writer thread.
+     */
+    private int segmentSequence;
+
+    /**
+     * Constructs an AuditLog. Nothing is created on disk and no thread is started until the first event.
+     *
+     * @param directory The directory the segment files are written to, or null to discard every event.
+     * @param queueCapacity The number of events that can wait for the writer.
+     * @param segmentBytes The size at which a segment file is closed and the next one started.
+     * @param user The name of the user recorded as making the changes.
+     */
+    AuditLog(Path directory, int queueCapacity, long segmentBytes, String user) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Audit queue capacity must be positive: " + queueCapacity);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.user = user;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Returns whether events are written anywhere.
+     *
+     * @return false if the audit log was configured without a directory.
+     */
+    boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Records an inserted row.
+     *
+     * @param table The table the row was inserted into.
+     * @param key The employee ID of the row.
+     * @param after The values of the row.
+     */
+    void recordInsert(String table, int key, Map<String, Object> after) {
+        record(new Event(INSERT, table, key, null, after));
+    }
+
+    /**
+     * Records a change of one column of a row.
+     *
+     * @param table The table of the row.
+     * @param key The employee ID of the row.
+     * @param column The changed column.
+     * @param before The value before the change, null if unknown.
+     * @param after The value after the change.
+     */
+    void recordUpdate(String table, int key, String column, Object before, Object after) {
+        if (!isEnabled()) {
+            return;
+        }
+        Map<String, Object> beforeImage = new LinkedHashMap<>(2);
+        beforeImage.put(column, before);
+        Map<String, Object> afterImage = new LinkedHashMap<>(2);
+        afterImage.put(column, after);
+        record(new Event(UPDATE, table, key, beforeImage, afterImage));
+    }
+
+    /**
+     * Records a deleted row.
+     *
+     * @param table The table the row was deleted from.
+     * @param key The employee ID of the row.
+     * @param before The values of the row before it was deleted, null if unknown.
+     */
+    void recordDelete(String table, int key, Map<String, Object> before) {
+        record(new Event(DELETE, table, key, before, null));
+    }
+
+    /**
+     * Returns the columns of an employee in the form recorded as a before or after image.
+     *
+     * @param employee The employee, or null.
+     * @return The column values by column name, or null for a null employee.
+     */
+    static Map<String, Object> image(Employee employee) {
+        if (employee == null) {
+            return null;
+        }
+        Map<String, Object> image = new LinkedHashMap<>(16);
+        image.put("empid", employee.getEmpId());
+        image.put("Fname", employee.getFirstName());
+        image.put("Lname", employee.getLastName());
+        image.put("email", employee.getEmail());
+        image.put("HireDate", employee.getHireDate());
+        image.put("Salary", employee.getSalary());
+        if (employee.getSsn() != null) {
+            image.put("SSN", employee.getSsn());
+        }
+        image.put("address", employee.getAddress());
+        image.put("date_of_birth", employee.getDateOfBirth());
+        return image;
+    }
+
+    /**
+     * Returns how many events were appended to the log.
+     *
+     * @return The number of events written.
+     */
+    long written() {
+        return written.get();
+    }
+
+    /**
+     * Returns how many events are waiting for the writer.
+     *
+     * @return The number of queued events.
+     */
+    int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Returns how many events were dropped because the queue was full or the log was closed.
+     *
+     * @return The number of dropped events.
+     */
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Returns how many events were lost because the segment file could not be written.
+     *
+     * @return The number of events that failed to be written.
+     */
+    long failed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns a one-line summary of the audit log counters.
+     *
+     * @return The summary.
+     */
+    String stats() {
+        if (!isEnabled()) {
+            return "Audit log: disabled";
+        }
+        return String.format("Audit log: %d written, %d queued, %d dropped, %d failed (%s)",
+                written(), queued(), dropped(), failed(), directory);
+    }
+
+    /**
+     * Stops accepting events and waits for the writer to append the events still queued.
+     */
+    @Override
+    public void close() {
+        Thread current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = writer;
+        }
+        if (current == null) {
+            dropped.addAndGet(queue.size());
+            queue.clear();
+            return;
+        }
+        try {
+            current.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (current.isAlive()) {
+            System.err.println("Audit log writer did not finish; " + queued() + " events were not written.");
+        }
+    }
+
+    private void record(Event event) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (closed || !queue.offer(event)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (writer == null) {
+            startWriter();
+        }
+    }
+
+    private synchronized void startWriter() {
+        if (writer == null && !closed) {
+            writer = new Thread(this::writeLoop, "audit-log-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Appends queued events in batches until the log is closed and the queue is empty. Each batch is flushed
+     * before the next one is taken, so events reach the file within one poll interval of being recorded.
+     */
+    private void writeLoop() {
+        Segment segment = null;
+        List<Event> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Event first;
+                try {
+                    first = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, WRITE_BATCH_SIZE - 1);
+                try {
+                    if (segment == null || segment.bytes >= segmentBytes) {
+                        if (segment != null) {
+                            segment.close();
+                        }
+                        segment = Segment.open(directory, ++segmentSequence);
+                    }
+                    for (Event event : batch) {
+                        segment.append(toJson(event));
+                    }
+                    segment.out.flush();
+                    written.addAndGet(batch.size());
+                } catch (IOException e) {
+                    failed.addAndGet(batch.size());
+                    System.err.println("Failed to write the audit log: " + e.getMessage());
+                    if (segment != null) {
+                        segment.closeQuietly();
+                        segment = null;
+                    }
+                }
+                batch.clear();
+            }
+        } finally {
+            if (segment != null) {
+                segment.closeQuietly();
+            }
+        }
+    }
+
+    private String toJson(Event event) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":\"").append(Instant.ofEpochMilli(event.time)).append('"');
+        json.append(",\"user\":");
+        Json.appendValue(json, user);
+        json.append(",\"action\":\"").append(event.action).append('"');
+        json.append(",\"table\":");
+        Json.appendValue(json, event.table);
+        json.append(",\"key\":").append(event.key);
+        json.append(",\"before\":");
+        appendImage(json, event.before);
+        json.append(",\"after\":");
+        appendImage(json, event.after);
+        return json.append("}\n").toString();
+    }
+
+    private static void appendImage(StringBuilder json, Map<String, Object> image) {
+        if (image == null) {
+            json.append("null");
+            return;
+        }
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> column : image.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            Json.appendValue(json, column.getKey());
+            json.append(':');
+            if (column.getKey().equalsIgnoreCase("SSN") && column.getValue() != null) {
+                json.append("\"<redacted>\"");
+            } else {
+                Json.appendValue(json, column.getValue());
+            }
+        }
+        json.append('}');
+    }
+
+    /**
+     * One change to one row, captured when it was recorded.
+     */
+    private static final class Event {
+        final long time = System.currentTimeMillis();
+        final String action;
+        final String table;
+        final int key;
+        final Map<String, Object> before;
+        final Map<String, Object> after;
+
+        Event(String action, String table, int key, Map<String, Object> before, Map<String, Object> after) {
+            this.action = action;
+            this.table = table;
+            this.key = key;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * An open segment file and the number of bytes appended to it.
+     */
+    private static final class Segment {
+        final OutputStream out;
+        long bytes;
+
+        private Segment(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Creates the next segment file, named after the current time and a sequence number so that segments
+         * sort in the order they were written.
+         */
+        static Segment open(Path directory, int sequence) throws IOException {
+            Files.createDirectories(directory);
+            String name = String.format("changes-%s-%04d.log", LocalDateTime.now().format(SEGMENT_TIME), sequence);
+            return new Segment(new BufferedOutputStream(Files.newOutputStream(directory.resolve(name),
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)));
+        }
+
+        void append(String line) throws IOException {
+            byte[] data = line.getBytes(StandardCharsets.UTF_8);
+            out.write(data);
+            bytes += data.length;
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+
+        void closeQuietly() {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // The segment is being abandoned; nothing more can be done with it.
+            }
+        }
+    }
+}
@@ -0,0 +1,387 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The BatchCommand class runs a single operation given on the command line instead of through the interactive
+ * menu, so that reports, salary raises and imports can be scheduled from cron or scripts. A command constructs
+ * only the operation class it needs, prints nothing but its own output, and reports its outcome through the
+ * process exit status:
+ *
+ *   0  the command succeeded
+ *   1  the command line was invalid
+ *   2  a database error occurred
+ *   3  the command finished, but some rows were rejected, some chunks rolled back, some salaries
+ *      could not be restored or some part-time employees had no hours
+ *   4  an input or output file could not be read or written
+ *
+ * Run with "help" for the list of commands.
+ */
+class BatchCommand {
+    static final int EXIT_OK = 0;
+    static final int EXIT_USAGE = 1;
+    static final int EXIT_DATABASE_ERROR = 2;
+    static final int EXIT_PARTIAL = 3;
+    static final int EXIT_IO_ERROR = 4;
+
+    private final String name;
+    private final List<String> arguments;
+    private final Map<String, String> options;
+
+    private BatchCommand(String name, List<String> arguments, Map<String, String> options) {
+        this.name = name;
+        this.arguments = arguments;
+        this.options = options;
+    }
+
+    /**
+     * Parses a command line of the form: command [arguments] [--option value ...].
+     *
+     * @param args The command line arguments; the first one is the command name.
+     * @return The parsed command.
+     * @throws IllegalArgumentException If the command line is empty or an option has no value.
+     */
+    static BatchCommand parse(String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("No command given.");
+        }
+        List<String> arguments = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Option " + args[i] + " needs a value.");
+                }
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                arguments.add(args[i]);
+            }
+        }
+        return new BatchCommand(args[0].toLowerCase(), arguments, options);
+    }
+
+    /**
+     * Returns the name of the command.
+     *
+     * @return The command name, e.g. "report".
+     */
+    String name() {
+        return name;
+    }
+
+    /**
+     * Returns whether this command only asks for the usage text and needs no database.
+     *
+     * @return true for "help", "-h" and "--help".
+     */
+    boolean isHelp() {
+        return name.equals("help") || name.equals("-h") || name.equals("--help");
+    }
+
+    /**
+     * Runs the command against the database and returns the process exit status. Errors are reported on
+     * standard error.
+     *
+     * @param employeeDatabase The database to run the command against.
+     * @return One of the EXIT_* status codes.
+     */
+    int run(EmployeeDatabase employeeDatabase) {
+        try {
+            switch (name) {
+                case "report":
+                    return report(employeeDatabase);
+                case "raise":
+                    return raise(employeeDatabase);
+                case "raise-rollback":
+                    return raiseRollback(employeeDatabase);
+                case "import":
+                    return importFile(employeeDatabase);
+                case "reassign":
+                    return reassign(employeeDatabase);
+                case "payrun":
+                    return payRun(employeeDatabase);
+                case "analytics":
+                    return analytics(employeeDatabase);
+                case "payroll-totals":
+                    return payrollTotals(employeeDatabase);
+                case "serve":
+                    return serve(employeeDatabase);
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + name);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage(System.err);
+            return EXIT_USAGE;
+        } catch (SQLException e) {
+            System.err.println("Database error: " + e.getMessage());
+            return EXIT_DATABASE_ERROR;
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            return EXIT_IO_ERROR;
+        }
+    }
+
+    /**
+     * report full-time|part-time|job-titles|divisions [--history true] [--out file]: writes a report to standard
+     * output, or to a file, gzip-compressed when the file name ends in .gz.
+     */
+    private int report(EmployeeDatabase employeeDatabase) throws IOException, SQLException {
+        String type = argument(0, "report type");
+        if (!type.equals("full-time") && !type.equals("part-time") && !type.equals("job-titles") && !type.equals("divisions")) {
+            throw new IllegalArgumentException("Unknown report type: " + type);
+        }
+        String out = options.get("out");
+        try (ReportSink sink = out == null ? ReportSink.console() : ReportSink.forPath(Paths.get(out))) {
+            switch (type) {
+                case "full-time":
+                    new FullTimeEmployeeReport(employeeDatabase).generateEmployeeReport(sink);
+                    break;
+                case "part-time":
+                    new PartTimeEmployeeReport(employeeDatabase).generateEmployeeReport(sink);
+                    break;
+                case "job-titles":
+                    new ReportGeneratorByJobTitleOrDivision(employeeDatabase).writeAllJobTitleReports(sink);
+                    break;
+                default:
+                    boolean includeHistory = Boolean.parseBoolean(options.getOrDefault("history", "false"));
+                    new ReportGeneratorByJobTitleOrDivision(employeeDatabase).writeAllDivisionReports(includeHistory, sink);
+            }
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * raise --min salary --max salary --pct percent [--dry-run true] [--chunk-size n]: raises every salary in
+     * [min, max) by a percentage in chunks with a commit per chunk, or only previews the raise.
+     */
+    private int raise(EmployeeDatabase employeeDatabase) throws SQLException {
+        double minSalary = number("min");
+        double maxSalary = number("max");
+        double increase = number("pct");
+        if (minSalary >= maxSalary) {
+            throw new IllegalArgumentException("--min must be lower than --max.");
+        }
+        SalaryRaise salaryRaise = new SalaryRaise(employeeDatabase, chunkSize(SalaryRaise.DEFAULT_CHUNK_SIZE));
+        if (Boolean.parseBoolean(options.getOrDefault("dry-run", "false"))) {
+            UpdateEmployee.printPreview(salaryRaise.preview(minSalary, maxSalary, increase, Integer.MAX_VALUE));
+            return EXIT_OK;
+        }
+        SalaryRaise.Result result = salaryRaise.apply(minSalary, maxSalary, increase);
+        System.out.printf("Raised %d salaries by %s%% ($%.2f in total). Batch ID: %d%n",
+                result.employees, options.get("pct"), result.amount, result.batchId);
+        return EXIT_OK;
+    }
+
+    /**
+     * raise-rollback --batch id [--chunk-size n]: restores the salaries changed by a raise. Salaries changed
+     * again since the raise are left alone, which makes the rollback partial.
+     */
+    private int raiseRollback(EmployeeDatabase employeeDatabase) throws SQLException {
+        int batchId = (int) number("batch");
+        SalaryRaise.Result result = new SalaryRaise(employeeDatabase, chunkSize(SalaryRaise.DEFAULT_CHUNK_SIZE))
+                .rollback(batchId);
+        System.out.printf("Rolled back salary raise %d: %d restored, %d changed since and skipped.%n",
+                batchId, result.employees, result.skipped);
+        return result.skipped > 0 ? EXIT_PARTIAL : EXIT_OK;
+    }
+
+    /**
+     * import file [--chunk-size n]: bulk imports employees from a CSV or JSON-lines file.
+     */
+    private int importFile(EmployeeDatabase employeeDatabase) throws IOException, SQLException {
+        Path file = Paths.get(argument(0, "file"));
+        BulkEmployeeImport.ImportSummary summary =
+                new BulkEmployeeImport(employeeDatabase, chunkSize(BulkEmployeeImport.DEFAULT_CHUNK_SIZE)).importFile(file);
+        summary.print();
+        return summary.rejected > 0 || summary.failedChunks > 0 ? EXIT_PARTIAL : EXIT_OK;
+    }
+
+    /**
+     * reassign --to division (--ids list | --from division): moves employees to a division in one transaction.
+     */
+    private int reassign(EmployeeDatabase employeeDatabase) throws SQLException {
+        int divisionId = (int) number("to");
+        UpdateEmployeeDivision updateEmployeeDivision = new UpdateEmployeeDivision(employeeDatabase);
+        UpdateEmployeeDivision.ReassignmentResult result;
+        if (options.containsKey("from")) {
+            result = updateEmployeeDivision.reassignDivision((int) number("from"), divisionId);
+        } else if (options.containsKey("ids")) {
+            Set<Integer> empIds = UpdateEmployeeDivision.parseEmployeeIds(options.get("ids"));
+            result = updateEmployeeDivision.reassignEmployees(empIds, divisionId);
+        } else {
+            throw new IllegalArgumentException("reassign needs --ids or --from.");
+        }
+        System.out.printf("Division reassignment complete: %d moved, %d newly assigned, %d skipped.%n",
+                result.moved, result.created, result.skipped);
+        return EXIT_OK;
+    }
+
+    /**
+     * payrun --date yyyy-mm-dd [--hours file] [--replace true]: writes the pay stubs of a pay date. Employees
+     * already paid on the date are skipped unless --replace is given.
+     */
+    private int payRun(EmployeeDatabase employeeDatabase) throws IOException, SQLException {
+        LocalDate payDate = date("date");
+        if (payDate == null) {
+            throw new IllegalArgumentException("payrun needs --date.");
+        }
+        Map<Integer, Double> hours = options.containsKey("hours") ? PayRun.readHours(Paths.get(options.get("hours"))) : null;
+        boolean replace = Boolean.parseBoolean(options.getOrDefault("replace", "false"));
+        PayRun.Result result = new PayRun(employeeDatabase).run(payDate, hours, replace);
+        result.print();
+        return result.missingHours > 0 || result.unknownHours > 0 ? EXIT_PARTIAL : EXIT_OK;
+    }
+
+    /**
+     * payroll-totals [--rebuild true]: checks the stored payroll totals against the payroll rows and brings them
+     * up to date, rebuilding them if rows were deleted or committed late; --rebuild always recomputes them.
+     */
+    private int payrollTotals(EmployeeDatabase employeeDatabase) throws SQLException {
+        PayrollSummary payrollSummary = employeeDatabase.getPayrollSummary();
+        if (Boolean.parseBoolean(options.getOrDefault("rebuild", "false"))) {
+            payrollSummary.rebuild();
+            System.out.println("Payroll totals rebuilt.");
+        } else if (payrollSummary.reconcile()) {
+            System.out.println("Payroll rows were deleted or committed late; payroll totals rebuilt.");
+        } else {
+            System.out.println("Payroll totals are up to date.");
+        }
+        return EXIT_OK;
+    }
+
+    /**
+     * analytics --by title|division|year|month|type [--measure m] [--from date] [--to date] [--title id]
+     * [--division id] [--type full-time|part-time]: totals the payroll history in memory instead of in SQL.
+     */
+    private int analytics(EmployeeDatabase employeeDatabase) throws SQLException {
+        String by = options.get("by");
+        if (by == null) {
+            throw new IllegalArgumentException("analytics needs --by.");
+        }
+        PayrollAnalytics.Dimension dimension = PayrollAnalytics.dimension(by);
+        PayrollAnalytics.Measure measure = PayrollAnalytics.measure(options.getOrDefault("measure", "gross"));
+        PayrollAnalytics.Filter filter = new PayrollAnalytics.Filter();
+        filter.from = date("from");
+        filter.to = date("to");
+        filter.jobTitleId = options.containsKey("title") ? (int) number("title") : null;
+        filter.divisionId = options.containsKey("division") ? (int) number("division") : null;
+        if (options.containsKey("type")) {
+            String type = options.get("type");
+            if (!type.equals("full-time") && !type.equals("part-time")) {
+                throw new IllegalArgumentException("--type must be full-time or part-time: " + type);
+            }
+            filter.partTime = type.equals("part-time");
+        }
+        PayrollAnalytics analytics = employeeDatabase.getPayrollAnalytics();
+        analytics.totals(dimension, measure, filter).print(System.out);
+        return EXIT_OK;
+    }
+
+    /**
+     * serve [--port n] [--bind address] [--max-requests n]: serves the JSON API until the process is stopped.
+     * The server and the database are closed by a shutdown hook, since the main thread is still waiting here
+     * when the JVM begins to shut down.
+     */
+    private int serve(EmployeeDatabase employeeDatabase) throws IOException {
+        int port = options.containsKey("port") ? (int) number("port") : HttpApi.DEFAULT_PORT;
+        String bindAddress = options.getOrDefault("bind", HttpApi.DEFAULT_BIND_ADDRESS);
+        int maxRequests = options.containsKey("max-requests") ? (int) number("max-requests") : HttpApi.DEFAULT_MAX_REQUESTS;
+        HttpApi api = new HttpApi(employeeDatabase, new InetSocketAddress(bindAddress, port), maxRequests);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.close();
+            employeeDatabase.close();
+            stopped.countDown();
+        }, "http-api-shutdown"));
+        api.start();
+        InetSocketAddress address = api.address();
+        System.out.println("Serving the employee API on http://" + address.getHostString() + ":" + address.getPort()
+                + "/api/ (max " + maxRequests + " concurrent requests); press Ctrl+C to stop.");
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return EXIT_OK;
+    }
+
+    private LocalDate date(String option) {
+        String value = options.get(option);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("--" + option + " must be YYYY-MM-DD: " + value);
+        }
+    }
+
+    private String argument(int index, String description) {
+        if (index >= arguments.size()) {
+            throw new IllegalArgumentException(name + " needs a " + description + ".");
+        }
+        return arguments.get(index);
+    }
+
+    private int chunkSize(int defaultChunkSize) {
+        return options.containsKey("chunk-size") ? (int) number("chunk-size") : defaultChunkSize;
+    }
+
+    private double number(String option) {
+        String value = options.get(option);
+        if (value == null) {
+            throw new IllegalArgumentException(name + " needs --" + option + ".");
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + option + " must be a number: " + value);
+        }
+    }
+
+    /**
+     * Prints the list of commands.
+     *
+     * @param out The stream to print to.
+     */
+    static void printUsage(PrintStream out) {
+        out.println("Usage: java Main [command [arguments] [options]]");
+        out.println("Without a command the interactive menu is started.");
+        out.println("  report full-time|part-time [--out <file>]   write a report; .gz files are compressed");
+        out.println("  report job-titles|divisions [--history true] [--out <file>]");
+        out.println("                                              total pay of every job title or division");
+        out.println("  raise --min <salary> --max <salary> --pct <percent> [--dry-run true] [--chunk-size <n>]");
+        out.println("                                              raise salaries in [min, max) by a percentage");
+        out.println("  raise-rollback --batch <id>                 undo a raise by the batch ID it printed");
+        out.println("  import <file> [--chunk-size <n>]            import employees from CSV or JSON lines");
+        out.println("  reassign --to <division> --ids <list>       move employees, e.g. --ids 101,105,200-250");
+        out.println("  reassign --to <division> --from <division>  move every employee of a division");
+        out.println("  payrun --date <yyyy-mm-dd> [--hours <file>] [--replace true]");
+        out.println("                                              write the pay stubs of a pay date; the hours file");
+        out.println("                                              has empid,hours lines for part-time employees");
+        out.println("  payroll-totals [--rebuild true]             check and update the stored payroll totals");
+        out.println("  analytics --by title|division|year|month|type [--measure <m>] [--from <date>] [--to <date>]");
+        out.println("            [--title <id>] [--division <id>] [--type full-time|part-time]");
+        out.println("                                              total pay stubs in memory; measures: stubs, gross,");
+        out.println("                                              net, fed-tax, fed-med, fed-ss, state-tax,");
+        out.println("                                              retire-401k, health-care");
+        out.println("  serve [--port <n>] [--bind <address>] [--max-requests <n>]");
+        out.println("                                              serve the JSON API over HTTP until stopped;");
+        out.println("                                              binds to 127.0.0.1:8080 by default");
+        out.println("  help                                        print this text");
+        out.println("Exit status: 0 success, 1 usage error, 2 database error, 3 partially done, 4 I/O error.");
+    }
+}
@@ -0,0 +1,513 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+
+/**
+ * The BulkEmployeeImport class loads many employees at once from a CSV or JSON-lines file.
+ * The file is read one line at a time; every row is validated, and employee IDs and SSNs are checked for
+ * uniqueness against sets loaded once from the database rather than with a query per row. Valid rows are
+ * written with JDBC batches, one transaction per chunk, and a report of inserted and rejected rows is kept
+ * for every chunk.
+ *
+ * CSV files must start with a header row naming the columns; JSON-lines files hold one flat object per line.
+ * Recognised fields are empid, Fname, Lname, email, HireDate, Salary, SSN, address and date_of_birth.
+ */
+public class BulkEmployeeImport {
+    /**
+     * Number of rows written per batch and transaction when no chunk size is given.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final EmployeeDatabase employeeDatabase;
+    private final int chunkSize;
+
+    /**
+     * Constructs a BulkEmployeeImport object with the default chunk size.
+     *
+     * @param employeeDatabase The database handler for employee data.
+     */
+    public BulkEmployeeImport(EmployeeDatabase employeeDatabase) {
+        this(employeeDatabase, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a BulkEmployeeImport object.
+     *
+     * @param employeeDatabase The database handler for employee data.
+     * @param chunkSize The number of rows written per batch and transaction.
+     */
+    public BulkEmployeeImport(EmployeeDatabase employeeDatabase, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.employeeDatabase = employeeDatabase;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Prompts the user for the file to import, runs the import and prints the per-chunk report.
+     *
+     * @param scanner A Scanner instance for reading user input from the console.
+     */
+    public void importEmployees(Scanner scanner) {
+        System.out.print("Path of CSV or JSON-lines file to import: ");
+        String file = scanner.nextLine().trim();
+        try {
+            ImportSummary summary = importFile(Paths.get(file));
+            summary.print();
+        } catch (IOException e) {
+            System.out.println("Failed to read import file: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to import employees: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Imports every employee in a file. Files ending in ".jsonl", ".ndjson" or ".json" are read as JSON lines,
+     * anything else as CSV with a header row.
+     *
+     * @param path The file to import.
+     * @return The summary of inserted and rejected rows per chunk.
+     * @throws IOException If the file cannot be read.
+     * @throws SQLException If the database cannot be reached or the existing keys cannot be loaded.
+     */
+    public ImportSummary importFile(Path path) throws IOException, SQLException {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean jsonLines = name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+        boolean ssnColumn = employeeDatabase.isSSNColumnAvailable();
+        String query = ssnColumn
+                ? "INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, SSN, address, date_of_birth) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO employees (empid, Fname, Lname, email, HireDate, Salary, address, date_of_birth) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+        ImportSummary summary = new ImportSummary();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+             Connection connection = employeeDatabase.getConnection()) {
+            Set<Integer> empIds = loadEmployeeIds(connection);
+            Set<String> ssns = ssnColumn ? loadSsns(connection) : new HashSet<>();
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                String[] header = null;
+                ChunkReport chunk = new ChunkReport(1);
+                List<EmployeeRow> rows = new ArrayList<>(chunkSize);
+                int lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    if (!jsonLines && header == null) {
+                        header = parseCsvLine(line).toArray(new String[0]);
+                        continue;
+                    }
+                    if (chunk.firstLine == 0) {
+                        chunk.firstLine = lineNumber;
+                    }
+                    chunk.lastLine = lineNumber;
+                    try {
+                        Map<String, String> fields = jsonLines ? parseJsonLine(line) : toFields(header, parseCsvLine(line));
+                        EmployeeRow row = EmployeeRow.parse(fields, ssnColumn);
+                        if (!empIds.add(row.empId)) {
+                            throw new IllegalArgumentException("Employee ID " + row.empId + " already exists.");
+                        }
+                        if (row.ssn != null && !ssns.add(row.ssn)) {
+                            empIds.remove(row.empId);
+                            throw new IllegalArgumentException("Duplicate SSN.");
+                        }
+                        rows.add(row);
+                    } catch (IllegalArgumentException e) {
+                        chunk.reject(lineNumber, e.getMessage());
+                    }
+                    if (rows.size() + chunk.rejected.size() >= chunkSize) {
+                        writeChunk(connection, pstmt, rows, chunk, empIds, ssns, ssnColumn);
+                        summary.add(chunk);
+                        chunk = new ChunkReport(chunk.number + 1);
+                        rows.clear();
+                    }
+                }
+                if (chunk.firstLine != 0) {
+                    writeChunk(connection, pstmt, rows, chunk, empIds, ssns, ssnColumn);
+                    summary.add(chunk);
+                }
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Writes one chunk of validated rows as a single JDBC batch in its own transaction. If the batch fails, the
+     * chunk is rolled back, its keys are released again and the failure is recorded in the chunk report.
+     */
+    private void writeChunk(Connection connection, PreparedStatement pstmt, List<EmployeeRow> rows, ChunkReport chunk,
+                            Set<Integer> empIds, Set<String> ssns, boolean ssnColumn) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            for (EmployeeRow row : rows) {
+                row.bind(pstmt, ssnColumn);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+            chunk.inserted = rows.size();
+            AuditLog auditLog = employeeDatabase.getAuditLog();
+            for (EmployeeRow row : rows) {
+                employeeDatabase.getNameIndex().put(row.empId, row.firstName, row.lastName, row.email);
+                auditLog.recordInsert("employees", row.empId, AuditLog.image(new Employee(row.empId, row.firstName,
+                        row.lastName, row.email, row.hireDate, row.salary, row.ssn, row.address, row.dob)));
+            }
+        } catch (SQLException e) {
+            // A duplicate key message quotes the value, which may be an SSN
+            chunk.failure = String.valueOf(e.getMessage()).replaceAll("\\b\\d{9}\\b", "<redacted>");
+            try {
+                pstmt.clearBatch();
+                connection.rollback();
+            } catch (SQLException ex) {
+                chunk.failure += " (rollback failed: " + ex.getMessage() + ")";
+            }
+            for (EmployeeRow row : rows) {
+                empIds.remove(row.empId);
+                if (row.ssn != null) {
+                    ssns.remove(row.ssn);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads every existing employee ID with one query.
+     */
+    private Set<Integer> loadEmployeeIds(Connection connection) throws SQLException {
+        Set<Integer> empIds = new HashSet<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT empid FROM employees");
+             ResultSet resultSet = pstmt.executeQuery()) {
+            while (resultSet.next()) {
+                empIds.add(resultSet.getInt(1));
+            }
+        }
+        return empIds;
+    }
+
+    /**
+     * Loads every existing SSN with one query.
+     */
+    private Set<String> loadSsns(Connection connection) throws SQLException {
+        Set<String> ssns = new HashSet<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT SSN FROM employees WHERE SSN IS NOT NULL");
+             ResultSet resultSet = pstmt.executeQuery()) {
+            while (resultSet.next()) {
+                ssns.add(resultSet.getString(1));
+            }
+        }
+        return ssns;
+    }
+
+    /**
+     * Pairs the values of a CSV row with the column names from the header row.
+     */
+    private static Map<String, String> toFields(String[] header, List<String> values) {
+        if (values.size() != header.length) {
+            throw new IllegalArgumentException("Expected " + header.length + " columns but found " + values.size() + ".");
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            fields.put(header[i].trim().toLowerCase(Locale.ROOT), values.get(i));
+        }
+        return fields;
+    }
+
+    /**
+     * Splits one CSV line into its values. Values may be enclosed in double quotes, in which case they may
+     * contain commas and doubled quotes.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted value.");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Parses one line holding a flat JSON object whose values are strings, numbers or null.
+     * Field names are lower-cased so they can be matched like CSV headers.
+     */
+    static Map<String, String> parseJsonLine(String line) {
+        Map<String, String> fields = new HashMap<>();
+        int[] pos = { skipSpace(line, 0) };
+        expect(line, pos, '{');
+        if (peek(line, pos) == '}') {
+            return fields;
+        }
+        while (true) {
+            String key = readJsonString(line, pos);
+            expect(line, pos, ':');
+            String value;
+            char next = peek(line, pos);
+            if (next == '"') {
+                value = readJsonString(line, pos);
+            } else {
+                int start = pos[0];
+                while (pos[0] < line.length() && ",} \t".indexOf(line.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                value = line.substring(start, pos[0]);
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            fields.put(key.toLowerCase(Locale.ROOT), value);
+            char separator = peek(line, pos);
+            pos[0]++;
+            if (separator == '}') {
+                return fields;
+            }
+            if (separator != ',') {
+                throw new IllegalArgumentException("Malformed JSON object.");
+            }
+        }
+    }
+
+    private static String readJsonString(String line, int[] pos) {
+        expect(line, pos, '"');
+        StringBuilder value = new StringBuilder();
+        while (pos[0] < line.length()) {
+            char c = line.charAt(pos[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c == '\\' && pos[0] < line.length()) {
+                char escaped = line.charAt(pos[0]++);
+                switch (escaped) {
+                    case 'n': value.append('\n'); break;
+                    case 't': value.append('\t'); break;
+                    case 'r': value.append('\r'); break;
+                    case 'u':
+                        if (pos[0] + 4 > line.length()) {
+                            throw new IllegalArgumentException("Malformed JSON escape.");
+                        }
+                        value.append((char) Integer.parseInt(line.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string.");
+    }
+
+    private static void expect(String line, int[] pos, char expected) {
+        if (peek(line, pos) != expected) {
+            throw new IllegalArgumentException("Malformed JSON: expected '" + expected + "'.");
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String line, int[] pos) {
+        pos[0] = skipSpace(line, pos[0]);
+        return pos[0] < line.length() ? line.charAt(pos[0]) : '\0';
+    }
+
+    private static int skipSpace(String line, int pos) {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * One validated employee row from the import file.
+     */
+    static final class EmployeeRow {
+        final int empId;
+        final String firstName;
+        final String lastName;
+        final String email;
+        final Date hireDate;
+        final double salary;
+        final String ssn;
+        final String address;
+        final Date dob;
+
+        private EmployeeRow(int empId, String firstName, String lastName, String email, Date hireDate,
+                            double salary, String ssn, String address, Date dob) {
+            this.empId = empId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.email = email;
+            this.hireDate = hireDate;
+            this.salary = salary;
+            this.ssn = ssn;
+            this.address = address;
+            this.dob = dob;
+        }
+
+        /**
+         * Validates the fields of one row and converts them to their column types.
+         *
+         * @throws IllegalArgumentException If a field is missing or malformed.
+         */
+        static EmployeeRow parse(Map<String, String> fields, boolean ssnColumn) {
+            int empId;
+            double salary;
+            try {
+                empId = Integer.parseInt(required(fields, "empid"));
+                salary = Double.parseDouble(required(fields, "salary"));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number: " + e.getMessage());
+            }
+            if (empId <= 0) {
+                throw new IllegalArgumentException("Employee ID must be positive.");
+            }
+            if (salary < 0) {
+                throw new IllegalArgumentException("Salary must not be negative.");
+            }
+            String ssn = ssnColumn ? optional(fields, "ssn") : null;
+            if (ssn != null && !ssn.matches("\\d{9}")) {
+                throw new IllegalArgumentException("SSN must be 9 digits without dashes.");
+            }
+            return new EmployeeRow(empId, required(fields, "fname"), required(fields, "lname"),
+                    optional(fields, "email"), date(fields, "hiredate"), salary, ssn,
+                    optional(fields, "address"), date(fields, "date_of_birth"));
+        }
+
+        /**
+         * Binds the row to the parameters of the insert statement.
+         */
+        void bind(PreparedStatement pstmt, boolean ssnColumn) throws SQLException {
+            pstmt.setInt(1, empId);
+            pstmt.setString(2, firstName);
+            pstmt.setString(3, lastName);
+            pstmt.setString(4, email);
+            pstmt.setDate(5, hireDate);
+            pstmt.setDouble(6, salary);
+            if (ssnColumn) {
+                pstmt.setString(7, ssn);
+                pstmt.setString(8, address);
+                pstmt.setDate(9, dob);
+            } else {
+                pstmt.setString(7, address);
+                pstmt.setDate(8, dob);
+            }
+        }
+
+        private static String required(Map<String, String> fields, String name) {
+            String value = optional(fields, name);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for " + name + ".");
+            }
+            return value;
+        }
+
+        private static String optional(Map<String, String> fields, String name) {
+            String value = fields.get(name);
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+
+        private static Date date(Map<String, String> fields, String name) {
+            String value = required(fields, name);
+            try {
+                return Date.valueOf(value);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid date for " + name + " (expected YYYY-MM-DD): " + value);
+            }
+        }
+    }
+
+    /**
+     * The outcome of one chunk of the import: the lines it covered, how many rows were inserted,
+     * which rows were rejected during validation, and the database error if the chunk was rolled back.
+     */
+    static final class ChunkReport {
+        final int number;
+        int firstLine;
+        int lastLine;
+        int inserted;
+        String failure;
+        final List<String> rejected = new ArrayList<>();
+
+        ChunkReport(int number) {
+            this.number = number;
+        }
+
+        void reject(int lineNumber, String reason) {
+            rejected.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    /**
+     * The overall outcome of an import, made up of its chunk reports.
+     */
+    static final class ImportSummary {
+        final List<ChunkReport> chunks = new ArrayList<>();
+        int inserted;
+        int rejected;
+        int failedChunks;
+
+        void add(ChunkReport chunk) {
+            chunks.add(chunk);
+            inserted += chunk.inserted;
+            rejected += chunk.rejected.size();
+            if (chunk.failure != null) {
+                failedChunks++;
+            }
+        }
+
+        /**
+         * Prints the report of every chunk followed by the totals.
+         */
+        void print() {
+            for (ChunkReport chunk : chunks) {
+                System.out.printf("Chunk %d (lines %d-%d): %d inserted, %d rejected%n",
+                        chunk.number, chunk.firstLine, chunk.lastLine, chunk.inserted, chunk.rejected.size());
+                if (chunk.failure != null) {
+                    System.out.println("  Chunk rolled back: " + chunk.failure);
+                }
+                for (String rejection : chunk.rejected) {
+                    System.out.println("  " + rejection);
+                }
+            }
+            System.out.printf("Import finished: %d employees inserted, %d rows rejected, %d chunks failed.%n",
+                    inserted, rejected, failedChunks);
+        }
+    }
+}
@@ -0,0 +1,468 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ConnectionPool class keeps a bounded set of physical database connections and leases them out one
+ * operation at a time. Leased connections are handed out as proxies: calling close() on a lease returns the
+ * physical connection to the pool instead of closing it.
+ *
+ * Connections are validated before they are handed out, idle connections above the minimum size are evicted
+ * after a timeout, and leases held for longer than the leak threshold are reported together with the stack
+ * trace of the code that borrowed them. Each physical connection keeps its own StatementCache, so statements
+ * prepared through a lease are reused across leases of the same connection. Every statement created through a
+ * lease, cached or not, has its executions recorded in the pool's QueryMetrics.
+ */
+class ConnectionPool implements AutoCloseable {
+    /**
+     * Connections returned to the pool more recently than this are handed out again without validation.
+     */
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    /**
+     * Number of seconds the driver may take to answer a validation request.
+     */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long borrowTimeoutMillis;
+    private final int statementCacheSize;
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final QueryMetrics queryMetrics;
+
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<Lease> leases = new HashSet<>();
+    private final ScheduledExecutorService housekeeper;
+    private int openConnections;
+    private boolean closed;
+
+    /**
+     * Constructs a ConnectionPool and opens its minimum number of connections.
+     *
+     * @param url The JDBC URL of the database.
+     * @param user The database user.
+     * @param password The database password.
+     * @param minSize The number of connections kept open even when idle.
+     * @param maxSize The maximum number of connections open at the same time.
+     * @param idleTimeoutMillis How long a connection above the minimum size may stay idle before it is closed.
+     * @param leakThresholdMillis How long a connection may be leased before it is reported as a possible leak.
+     * @param borrowTimeoutMillis How long a caller waits for a free connection before giving up.
+     * @param statementCacheSize The number of prepared statements cached per connection.
+     * @param queryMetrics The metrics that statement executions are recorded in.
+     * @throws SQLException If the initial connections cannot be opened.
+     */
+    ConnectionPool(String url, String user, String password, int minSize, int maxSize, long idleTimeoutMillis,
+                   long leakThresholdMillis, long borrowTimeoutMillis, int statementCacheSize,
+                   QueryMetrics queryMetrics) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.queryMetrics = queryMetrics;
+
+        try {
+            fillToMinimum();
+        } catch (SQLException e) {
+            // The housekeeper is not running yet, so close() cannot be used; close what was opened directly
+            List<PooledConnection> opened;
+            synchronized (this) {
+                closed = true;
+                opened = new ArrayList<>(idle);
+                idle.clear();
+            }
+            for (PooledConnection pooled : opened) {
+                discard(pooled);
+            }
+            throw e;
+        }
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connection from the pool, opening a new one if none is idle and the pool is below its maximum size.
+     * The returned connection must be closed by the caller to give it back to the pool.
+     *
+     * @return A leased connection.
+     * @throws SQLException If the pool is closed, no connection becomes free within the borrow timeout,
+     *                      or a new connection cannot be opened.
+     */
+    Connection borrow() throws SQLException {
+        return lease().proxy;
+    }
+
+    /**
+     * Leases a connection and returns a cached prepared statement for the given SQL on it. Closing the statement
+     * returns it to the connection's statement cache and the connection to the pool.
+     *
+     * @param sql The SQL text of the statement.
+     * @return A prepared statement bound to its own connection lease.
+     * @throws SQLException If no connection can be obtained or the statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        Lease lease = lease();
+        try {
+            return lease.pooled.statements.prepare(sql, lease.proxy);
+        } catch (SQLException e) {
+            lease.proxy.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how many prepared statements were served from a statement cache.
+     *
+     * @return The number of statement cache hits.
+     */
+    long statementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Returns how many prepared statements had to be prepared because no cached one was available.
+     *
+     * @return The number of statement cache misses.
+     */
+    long statementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Returns the metrics that the executions of statements on this pool's connections are recorded in.
+     *
+     * @return The query metrics.
+     */
+    QueryMetrics queryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Takes a connection out of the pool, or opens a new one, and wraps it in a lease.
+     */
+    private Lease lease() throws SQLException {
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+        while (true) {
+            PooledConnection pooled;
+            synchronized (this) {
+                while (true) {
+                    if (closed) {
+                        throw new SQLException("Connection pool is closed.");
+                    }
+                    pooled = idle.pollFirst();
+                    if (pooled != null || openConnections < maxSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out after " + borrowTimeoutMillis
+                                + " ms waiting for a database connection (" + maxSize + " in use).");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection.", e);
+                    }
+                }
+                if (pooled == null) {
+                    openConnections++;
+                }
+            }
+
+            if (pooled == null) {
+                pooled = open();
+            } else if (!isUsable(pooled)) {
+                discard(pooled);
+                continue;
+            }
+
+            Lease lease = new Lease(pooled);
+            synchronized (this) {
+                leases.add(lease);
+            }
+            return lease;
+        }
+    }
+
+    /**
+     * Returns the number of connections currently leased out.
+     *
+     * @return The number of active leases.
+     */
+    synchronized int activeCount() {
+        return leases.size();
+    }
+
+    /**
+     * Returns the number of open connections waiting in the pool.
+     *
+     * @return The number of idle connections.
+     */
+    synchronized int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Closes the pool and every idle connection. Connections still leased are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            notifyAll();
+        }
+        housekeeper.shutdownNow();
+        for (PooledConnection pooled : toClose) {
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Opens a new physical connection. The caller must already have reserved a slot in openConnections.
+     */
+    private PooledConnection open() throws SQLException {
+        try {
+            return new PooledConnection(DriverManager.getConnection(url, user, password));
+        } catch (SQLException e) {
+            synchronized (this) {
+                openConnections--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Checks that an idle connection still works before it is handed out. Connections that were in use
+     * a moment ago are trusted without a round trip to the server.
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastReturned < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes a connection back from a lease, restoring its default state. Broken connections are discarded.
+     */
+    private void release(Lease lease) {
+        PooledConnection pooled = lease.pooled;
+        boolean reusable;
+        try {
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.connection.clearWarnings();
+            reusable = !pooled.connection.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        synchronized (this) {
+            leases.remove(lease);
+            if (reusable && !closed) {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                notifyAll();
+                return;
+            }
+        }
+        discard(pooled);
+    }
+
+    /**
+     * Closes a physical connection and frees its slot in the pool.
+     */
+    private void discard(PooledConnection pooled) {
+        pooled.statements.close();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            // The connection is being thrown away; nothing more can be done with it.
+        }
+        synchronized (this) {
+            openConnections--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds at least its minimum number of connections.
+     */
+    private void fillToMinimum() throws SQLException {
+        while (true) {
+            synchronized (this) {
+                if (closed || openConnections >= minSize) {
+                    return;
+                }
+                openConnections++;
+            }
+            PooledConnection pooled = open();
+            synchronized (this) {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.addLast(pooled);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Periodic maintenance: evicts connections that have been idle for too long, tops the pool back up to its
+     * minimum size, and reports leases that have been held longer than the leak threshold.
+     */
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        List<Lease> leaked = new ArrayList<>();
+        synchronized (this) {
+            // The least recently used connections sit at the tail of the deque
+            while (openConnections - evicted.size() > minSize && !idle.isEmpty()
+                    && now - idle.peekLast().lastReturned > idleTimeoutMillis) {
+                evicted.add(idle.pollLast());
+            }
+            for (Lease lease : leases) {
+                if (!lease.leakReported && now - lease.borrowedAt > leakThresholdMillis) {
+                    lease.leakReported = true;
+                    leaked.add(lease);
+                }
+            }
+        }
+        for (PooledConnection pooled : evicted) {
+            discard(pooled);
+        }
+        for (Lease lease : leaked) {
+            System.err.println("Possible connection leak: a connection has been leased for "
+                    + (now - lease.borrowedAt) + " ms without being returned.");
+            lease.borrowTrace.printStackTrace(System.err);
+        }
+        try {
+            fillToMinimum();
+        } catch (SQLException e) {
+            System.err.println("Failed to refill connection pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        final Connection connection;
+        final StatementCache statements;
+        long lastReturned;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection, statementCacheSize,
+                    statementCacheHits, statementCacheMisses, queryMetrics);
+        }
+    }
+
+    /**
+     * One loan of a pooled connection to a caller. The lease hands out a proxy that forwards every call to the
+     * physical connection until it is closed, after which the proxy refuses further use.
+     */
+    private final class Lease implements InvocationHandler {
+        final PooledConnection pooled;
+        final Connection proxy;
+        final long borrowedAt = System.currentTimeMillis();
+        final Throwable borrowTrace = new Throwable("Connection borrowed here");
+        boolean leakReported;
+        private boolean returned;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned) {
+                            return null;
+                        }
+                        returned = true;
+                    }
+                    release(this);
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return returned || pooled.connection.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Leased " + pooled.connection;
+                default:
+                    synchronized (this) {
+                        if (returned) {
+                            throw new SQLException("Connection has already been returned to the pool.");
+                        }
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return pooled.statements.prepare((String) args[0], null);
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(pooled.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement) {
+                        // createStatement() takes its SQL per execute call; the prepare methods take it up front
+                        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                        return queryMetrics.instrument((Statement) result, sql);
+                    }
+                    return result;
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * The DatabaseConfig class selects the database backend and its connection settings. Every setting is looked
+ * up, in order, as a system property (-Dems.db.url=...), as an environment variable (EMS_DB_URL=...), in the
+ * properties file named by ems.config or else employee-db.properties in the working directory, and finally in
+ * the defaults of the selected backend:
+ *
+ *   ems.db.backend   mysql (default) or h2, an embedded in-memory engine in MySQL compatibility mode
+ *   ems.db.url       JDBC URL; defaults to the local MySQL employeeData database or the in-memory H2 database
+ *   ems.db.user      database user; defaults to root for MySQL and sa for H2
+ *   ems.db.password  database password; defaults to empty
+ *   ems.db.schema    script run when the employees table is missing; defaults to sql/schema.sql for H2
+ *   ems.db.seed      script run after the schema script; defaults to sql/seed.sql for H2
+ *   ems.db.fetchSize rows fetched per round trip by streaming queries; defaults to 1000
+ *   ems.db.slowQueryMillis  statements taking at least this long are logged; defaults to 1000, 0 logs none
+ *   ems.audit.dir    directory of the change audit log; defaults to audit, empty turns the audit log off
+ *   ems.audit.queueCapacity  changes that can wait for the audit log writer; defaults to 10000
+ *   ems.snapshot.file  file the name index and payroll snapshot are saved to for the next run; defaults to
+ *                    ems.snapshot for MySQL and to none for H2, whose in-memory database does not outlive a run;
+ *                    empty turns snapshots off
+ *
+ * No credentials are kept in source; a MySQL password has to be configured.
+ */
+final class DatabaseConfig {
+    static final String BACKEND_MYSQL = "mysql";
+    static final String BACKEND_H2 = "h2";
+
+    private static final String MYSQL_URL =
+            "jdbc:mysql://localhost:3306/employeeData?useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
+    private static final String H2_URL =
+            "jdbc:h2:mem:employeeData;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final String backend;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Path schemaScript;
+    private final Path seedScript;
+    private final int fetchSize;
+    private final long slowQueryMillis;
+    private final Path auditDirectory;
+    private final int auditQueueCapacity;
+    private final Path snapshotFile;
+
+    private DatabaseConfig(String backend, String url, String user, String password, Path schemaScript, Path seedScript,
+                           int fetchSize, long slowQueryMillis, Path auditDirectory, int auditQueueCapacity,
+                           Path snapshotFile) {
+        this.backend = backend;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.schemaScript = schemaScript;
+        this.seedScript = seedScript;
+        this.fetchSize = fetchSize;
+        this.slowQueryMillis = slowQueryMillis;
+        this.auditDirectory = auditDirectory;
+        this.auditQueueCapacity = auditQueueCapacity;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Reads the configuration from system properties, environment variables and the properties file.
+     *
+     * @return The database configuration.
+     * @throws IOException If the properties file exists but cannot be read.
+     * @throws IllegalArgumentException If the backend is not known, the fetch size is not a positive number or
+     *                                  the slow query threshold is negative or the audit queue capacity is not
+     *                                  a positive number.
+     */
+    static DatabaseConfig load() throws IOException {
+        Properties file = new Properties();
+        String configFile = lookup("ems.config", new Properties());
+        Path path = Paths.get(configFile != null ? configFile : "employee-db.properties");
+        if (configFile != null || Files.isRegularFile(path)) {
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                file.load(reader);
+            }
+        }
+
+        String backend = orDefault(lookup("ems.db.backend", file), BACKEND_MYSQL).toLowerCase(Locale.ROOT);
+        boolean embedded;
+        switch (backend) {
+            case BACKEND_MYSQL:
+                embedded = false;
+                break;
+            case BACKEND_H2:
+                embedded = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown database backend: " + backend);
+        }
+        String schema = orDefault(lookup("ems.db.schema", file), embedded ? "sql/schema.sql" : null);
+        String seed = orDefault(lookup("ems.db.seed", file), embedded ? "sql/seed.sql" : null);
+        int fetchSize = Integer.parseInt(orDefault(lookup("ems.db.fetchSize", file), String.valueOf(EmployeeDatabase.DEFAULT_FETCH_SIZE)));
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        long slowQueryMillis = Long.parseLong(orDefault(lookup("ems.db.slowQueryMillis", file),
+                String.valueOf(EmployeeDatabase.DEFAULT_SLOW_QUERY_MILLIS)));
+        if (slowQueryMillis < 0) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative: " + slowQueryMillis);
+        }
+        String auditDirectory = orDefault(lookup("ems.audit.dir", file), EmployeeDatabase.DEFAULT_AUDIT_DIRECTORY);
+        int auditQueueCapacity = Integer.parseInt(orDefault(lookup("ems.audit.queueCapacity", file),
+                String.valueOf(AuditLog.DEFAULT_QUEUE_CAPACITY)));
+        if (auditQueueCapacity < 1) {
+            throw new IllegalArgumentException("Audit queue capacity must be positive: " + auditQueueCapacity);
+        }
+        String snapshotFile = orDefault(lookup("ems.snapshot.file", file),
+                embedded ? "" : EmployeeDatabase.DEFAULT_SNAPSHOT_FILE);
+        return new DatabaseConfig(backend,
+                orDefault(lookup("ems.db.url", file), embedded ? H2_URL : MYSQL_URL),
+                orDefault(lookup("ems.db.user", file), embedded ? "sa" : "root"),
+                orDefault(lookup("ems.db.password", file), ""),
+                schema == null || schema.isEmpty() ? null : Paths.get(schema),
+                seed == null || seed.isEmpty() ? null : Paths.get(seed),
+                fetchSize, slowQueryMillis,
+                auditDirectory.isEmpty() ? null : Paths.get(auditDirectory), auditQueueCapacity,
+                snapshotFile.isEmpty() ? null : Paths.get(snapshotFile));
+    }
+
+    /**
+     * Returns the name of the selected backend.
+     *
+     * @return "mysql" or "h2".
+     */
+    String getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns the JDBC URL of the database.
+     *
+     * @return The JDBC URL.
+     */
+    String getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the database user.
+     *
+     * @return The user name.
+     */
+    String getUser() {
+        return user;
+    }
+
+    /**
+     * Returns the database password.
+     *
+     * @return The password, empty if none is configured.
+     */
+    String getPassword() {
+        return password;
+    }
+
+    /**
+     * Returns the script that creates the schema when the employees table does not exist.
+     *
+     * @return The schema script, or null if the schema is never created by the application.
+     */
+    Path getSchemaScript() {
+        return schemaScript;
+    }
+
+    /**
+     * Returns the script that fills a newly created schema with data.
+     *
+     * @return The seed script, or null if a new schema is left empty.
+     */
+    Path getSeedScript() {
+        return seedScript;
+    }
+
+    /**
+     * Returns the number of rows streaming queries fetch per round trip.
+     *
+     * @return The fetch size.
+     */
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Returns the execution time from which SQL statements are logged as slow.
+     *
+     * @return The threshold in milliseconds, 0 if slow statements are not logged.
+     */
+    long getSlowQueryMillis() {
+        return slowQueryMillis;
+    }
+
+    /**
+     * Returns the directory the change audit log is written to.
+     *
+     * @return The audit directory, or null if changes are not audited.
+     */
+    Path getAuditDirectory() {
+        return auditDirectory;
+    }
+
+    /**
+     * Returns the number of changes that can wait for the audit log writer before new ones are dropped.
+     *
+     * @return The audit queue capacity.
+     */
+    int getAuditQueueCapacity() {
+        return auditQueueCapacity;
+    }
+
+    /**
+     * Returns the file the name index and payroll snapshot are saved to between runs.
+     *
+     * @return The snapshot file, or null if snapshots are off.
+     */
+    Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    private static String lookup(String key, Properties file) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = file.getProperty(key);
+        }
+        return value;
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public String toString() {
+        return backend + " " + url + " as " + user;
+    }
+}
@@ -33,18 +33,37 @@ public class DeleteEmployee {
         scanner.nextLine();  // Consume newline left-over
 
         try {
-            String query = "DELETE FROM employees WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setInt(1, empId);
-                int rowsAffected = pstmt.executeUpdate();
-                if (rowsAffected > 0) {
-                    System.out.println("Employee deleted successfully.");
-                } else {
-                    System.out.println("Employee with ID " + empId + " not found.");
-                }
+            if (EmployeeService.await(employeeDatabase.getEmployeeService().delete(empId))) {
+                System.out.println("Employee deleted successfully.");
+            } else {
+                System.out.println("Employee with ID " + empId + " not found.");
             }
         } catch (SQLException e) {
             System.out.println("Failed to delete employee: " + e.getMessage());
         }
     }
+
+    /**
+     * Deletes an employee and records the deleted row in the audit log.
+     * 
+     * @param empId The ID of the employee to delete.
+     * @return true if the employee was deleted, false if no employee has the ID.
+     * @throws SQLException If the employee cannot be deleted.
+     */
+    boolean delete(int empId) throws SQLException {
+        // Read the row first so that the audit log can record what was deleted
+        Employee before = employeeDatabase.findEmployee(empId);
+        String query = "DELETE FROM employees WHERE empid = ?";
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
+            pstmt.setInt(1, empId);
+            int rowsAffected = pstmt.executeUpdate();
+            employeeDatabase.employeeChanged(empId);
+            employeeDatabase.getNameIndex().remove(empId);
+            if (rowsAffected == 0) {
+                return false;
+            }
+            employeeDatabase.getAuditLog().recordDelete("employees", empId, AuditLog.image(before));
+            return true;
+        }
+    }
 }
\ No newline at end of file
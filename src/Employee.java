@@ -0,0 +1,100 @@
+import java.sql.*;
+
+/**
+ * The Employee class holds one row of the employees table. Instances are immutable so they can be shared
+ * between the employee cache and any number of readers.
+ */
+public final class Employee {
+    private final int empId;
+    private final String firstName;
+    private final String lastName;
+    private final String email;
+    private final Date hireDate;
+    private final double salary;
+    private final String ssn;
+    private final String address;
+    private final Date dateOfBirth;
+
+    /**
+     * Constructs an Employee from its column values.
+     *
+     * @param empId The employee ID.
+     * @param firstName The first name of the employee.
+     * @param lastName The last name of the employee.
+     * @param email The email address of the employee.
+     * @param hireDate The hire date of the employee.
+     * @param salary The salary of the employee.
+     * @param ssn The SSN of the employee, or null if unknown or the SSN column does not exist.
+     * @param address The address of the employee.
+     * @param dateOfBirth The date of birth of the employee.
+     */
+    Employee(int empId, String firstName, String lastName, String email, Date hireDate, double salary,
+             String ssn, String address, Date dateOfBirth) {
+        this.empId = empId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.email = email;
+        this.hireDate = hireDate;
+        this.salary = salary;
+        this.ssn = ssn;
+        this.address = address;
+        this.dateOfBirth = dateOfBirth;
+    }
+
+    /**
+     * Creates an Employee from the current row of a result set selecting the employees columns.
+     *
+     * @param resultSet The result set positioned on an employees row.
+     * @param ssnAvailable Whether the result set has an SSN column.
+     * @return The employee in the current row.
+     * @throws SQLException If a column cannot be read.
+     */
+    static Employee fromResultSet(ResultSet resultSet, boolean ssnAvailable) throws SQLException {
+        return new Employee(
+                resultSet.getInt("empid"),
+                resultSet.getString("Fname"),
+                resultSet.getString("Lname"),
+                resultSet.getString("email"),
+                resultSet.getDate("HireDate"),
+                resultSet.getDouble("Salary"),
+                ssnAvailable ? resultSet.getString("SSN") : null,
+                resultSet.getString("address"),
+                resultSet.getDate("date_of_birth"));
+    }
+
+    public int getEmpId() {
+        return empId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Date getHireDate() {
+        return hireDate;
+    }
+
+    public double getSalary() {
+        return salary;
+    }
+
+    public String getSsn() {
+        return ssn;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public Date getDateOfBirth() {
+        return dateOfBirth;
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The EmployeeCache class keeps recently used employee rows in memory, keyed by employee ID.
+ * The cache holds at most a fixed number of employees and evicts the least recently used one when it is full;
+ * entries also expire after a time-to-live so that changes made outside this application are picked up.
+ * Every write path must invalidate the employees it changes. Hit, miss, eviction and expiry counts are kept
+ * so the cache can be sized from real usage.
+ */
+class EmployeeCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    /**
+     * Incremented on every invalidation, so a load that started before an invalidation does not store stale data.
+     */
+    private long version;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Constructs an EmployeeCache.
+     *
+     * @param maxSize The maximum number of employees kept in memory.
+     * @param ttlMillis How long a cached employee stays valid, in milliseconds.
+     */
+    EmployeeCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                if (size() > EmployeeCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached employee with the given ID, or null if it is not cached or has expired.
+     *
+     * @param empId The employee ID.
+     * @return The cached employee, or null on a miss.
+     */
+    synchronized Employee get(int empId) {
+        Entry entry = entries.get(empId);
+        if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+            entries.remove(empId);
+            expirations++;
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.employee;
+    }
+
+    /**
+     * Returns the current invalidation version. A loader reads it before querying the database and passes
+     * it to put() so that the result is discarded if an invalidation happened in between.
+     *
+     * @return The current version.
+     */
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Stores an employee loaded from the database, unless the cache was invalidated since the load started.
+     *
+     * @param employee The employee to cache.
+     * @param loadVersion The version returned by version() before the employee was loaded.
+     */
+    synchronized void put(Employee employee, long loadVersion) {
+        if (loadVersion == version) {
+            entries.put(employee.getEmpId(), new Entry(employee, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Removes one employee from the cache. Called after any write that changes that employee.
+     *
+     * @param empId The employee ID.
+     */
+    synchronized void invalidate(int empId) {
+        version++;
+        entries.remove(empId);
+    }
+
+    /**
+     * Removes every employee from the cache. Called after writes that may change many employees.
+     */
+    synchronized void invalidateAll() {
+        version++;
+        entries.clear();
+    }
+
+    /**
+     * Returns a one-line summary of the cache size and its hit, miss, eviction and expiry counts.
+     *
+     * @return The cache statistics.
+     */
+    synchronized String stats() {
+        long lookups = hits + misses;
+        double hitRatio = lookups == 0 ? 0 : 100.0 * hits / lookups;
+        return String.format("Employee cache: %d/%d entries, %d hits, %d misses (%.1f%% hit ratio), %d evictions, %d expired",
+                entries.size(), maxSize, hits, misses, hitRatio, evictions, expirations);
+    }
+
+    /**
+     * A cached employee and the time it was loaded.
+     */
+    private static final class Entry {
+        final Employee employee;
+        final long loadedAt;
+
+        Entry(Employee employee, long loadedAt) {
+            this.employee = employee;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,22 +1,413 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*; // imports the sql java package containing the JDBC database access
+import java.util.ArrayList;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 /**
  * The EmployeeDatabase class encapsulates the management of database connections and operations for employee data.
- * It provides methods for executing updates and queries, as well as checking for the existence of specific database columns.
+ * It owns a pool of connections that operations lease one at a time, and provides methods for executing updates
+ * and queries, as well as checking for the existence of specific database columns.
+ *
+ * Every SQL statement executed on a pooled connection is measured by the pool's QueryMetrics, whether it goes
+ * through executeQuery() and executeUpdate() or is executed directly; see getQueryMetrics().
  */
-public class EmployeeDatabase {
+public class EmployeeDatabase implements AutoCloseable {
     /**
-     * The connection to the database used for executing SQL statements.
+     * Number of connections kept open while the application is idle.
      */
-    final Connection connection;
+    static final int DEFAULT_MIN_CONNECTIONS = 1;
 
     /**
-     * Constructs an EmployeeDatabase object with an existing database connection.
+     * Maximum number of connections open at the same time.
+     */
+    static final int DEFAULT_MAX_CONNECTIONS = 10;
+
+    /**
+     * How long an unused connection above the minimum pool size is kept open.
+     */
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * How long a connection may be leased before it is reported as a possible leak.
+     */
+    static final long DEFAULT_LEAK_THRESHOLD_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * How long an operation waits for a free connection before failing.
+     */
+    static final long DEFAULT_BORROW_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Number of prepared statements kept open per pooled connection.
+     */
+    static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    /**
+     * Maximum number of employee rows kept in the employee cache.
+     */
+    static final int DEFAULT_EMPLOYEE_CACHE_SIZE = 1000;
+
+    /**
+     * How long a cached employee row is trusted before it is read again.
+     */
+    static final long DEFAULT_EMPLOYEE_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Number of rows a streaming query fetches per round trip.
+     */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Execution time from which a SQL statement is logged as slow.
+     */
+    static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+    /**
+     * Name under which the query metrics are registered with the platform MBean server.
+     */
+    static final String QUERY_METRICS_MBEAN_NAME = "EmployeeManagement:type=QueryMetrics";
+
+    /**
+     * Directory the change audit log is written to unless configured otherwise.
+     */
+    static final String DEFAULT_AUDIT_DIRECTORY = "audit";
+
+    /**
+     * File the name index and payroll snapshot are saved to between runs against MySQL, unless configured otherwise.
+     */
+    static final String DEFAULT_SNAPSHOT_FILE = "ems.snapshot";
+
+    /**
+     * Maximum number of employee IDs bound into a single IN (...) lookup.
+     */
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    /**
+     * Scripts that create and fill the schema when the database has no employees table; null if the
+     * application never creates the schema itself.
+     */
+    private final Path schemaScript;
+    private final Path seedScript;
+
+    /**
+     * Rows fetched per round trip by statements from prepareStreaming().
+     */
+    private final int fetchSize;
+
+    /**
+     * Per-statement execution metrics of the pool's connections.
+     */
+    private final QueryMetrics queryMetrics;
+
+    /**
+     * The name the query metrics were registered under with the platform MBean server; null if not registered.
+     */
+    private ObjectName queryMetricsMBean;
+
+    /**
+     * Asynchronous history of the changes made to employee data.
+     */
+    private final AuditLog auditLog;
+
+    /**
+     * The file state is saved to on close and restored from on first use; null if snapshots are off.
+     */
+    private final Path snapshotFile;
+
+    /**
+     * The snapshot read from snapshotFile, once it has been read; null if there is none or it cannot be used.
+     */
+    private SnapshotFile snapshot;
+    private boolean snapshotRead;
+    private final Object snapshotLock = new Object();
+    private final AtomicBoolean snapshotSaved = new AtomicBoolean();
+
+    /**
+     * The pool that connections for SQL statements are leased from; null until the first statement needs it.
+     */
+    private volatile ConnectionPool pool;
+
+    /**
+     * How long opening the pool took, in nanoseconds; 0 while it has not been opened.
+     */
+    private volatile long connectNanos;
+
+    private boolean closed;
+
+    /**
+     * In-memory copy of the table and column metadata.
+     */
+    private final SchemaCatalog schemaCatalog = new SchemaCatalog(this);
+
+    /**
+     * Read-through cache of employee rows keyed by employee ID.
+     */
+    private final EmployeeCache employeeCache = new EmployeeCache(DEFAULT_EMPLOYEE_CACHE_SIZE, DEFAULT_EMPLOYEE_CACHE_TTL_MILLIS);
+
+    /**
+     * In-memory prefix and trigram index over employee names and emails.
+     */
+    private final NameIndex nameIndex = new NameIndex(this);
+
+    /**
+     * Incrementally maintained payroll totals per employee, month and year.
+     */
+    private final PayrollSummary payrollSummary = new PayrollSummary(this);
+
+    /**
+     * Column-oriented snapshot of the payroll history for analytic queries, loaded on first use.
+     */
+    private volatile PayrollAnalytics payrollAnalytics;
+
+    /**
+     * Executor-backed front of the employee operations, created on first use.
+     */
+    private volatile EmployeeService employeeService;
+
+    /**
+     * Constructs an EmployeeDatabase backed by a connection pool with the default sizing. No connection is
+     * opened until the first statement needs one, so commands that fail early or never touch the database
+     * do not pay for connecting.
+     * 
+     * @param url The JDBC URL of the database.
+     * @param user The database user.
+     * @param password The database password.
+     */
+    EmployeeDatabase(String url, String user, String password) {
+        this(url, user, password, null, null, DEFAULT_FETCH_SIZE, new QueryMetrics(DEFAULT_SLOW_QUERY_MILLIS),
+                auditLog(Paths.get(DEFAULT_AUDIT_DIRECTORY), AuditLog.DEFAULT_QUEUE_CAPACITY), null);
+    }
+
+    /**
+     * Constructs an EmployeeDatabase for the configured backend. If the configuration names a schema script,
+     * the schema is created and seeded when the first connection finds no employees table, which is how an
+     * embedded database starts out.
+     * 
+     * @param config The database configuration.
+     */
+    EmployeeDatabase(DatabaseConfig config) {
+        this(config.getUrl(), config.getUser(), config.getPassword(), config.getSchemaScript(), config.getSeedScript(),
+                config.getFetchSize(), new QueryMetrics(config.getSlowQueryMillis()),
+                auditLog(config.getAuditDirectory(), config.getAuditQueueCapacity()), config.getSnapshotFile());
+    }
+
+    private EmployeeDatabase(String url, String user, String password, Path schemaScript, Path seedScript, int fetchSize,
+                             QueryMetrics queryMetrics, AuditLog auditLog, Path snapshotFile) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.schemaScript = schemaScript;
+        this.seedScript = seedScript;
+        this.fetchSize = fetchSize;
+        this.queryMetrics = queryMetrics;
+        this.auditLog = auditLog;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Constructs an EmployeeDatabase object around an existing connection pool.
+     * 
+     * @param pool The pool that will supply connections for SQL operations.
+     */
+    EmployeeDatabase(ConnectionPool pool) {
+        this(null, null, null, null, null, DEFAULT_FETCH_SIZE, pool.queryMetrics(),
+                auditLog(Paths.get(DEFAULT_AUDIT_DIRECTORY), AuditLog.DEFAULT_QUEUE_CAPACITY), null);
+        this.pool = pool;
+    }
+
+    private static AuditLog auditLog(Path directory, int queueCapacity) {
+        return new AuditLog(directory, queueCapacity, AuditLog.DEFAULT_SEGMENT_BYTES, System.getProperty("user.name"));
+    }
+
+    /**
+     * Returns the connection pool, opening it on first use.
+     */
+    private ConnectionPool pool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new SQLException("The employee database has been closed.");
+                }
+                current = pool;
+                if (current == null) {
+                    long start = System.nanoTime();
+                    current = new ConnectionPool(url, user, password, DEFAULT_MIN_CONNECTIONS, DEFAULT_MAX_CONNECTIONS,
+                            DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_LEAK_THRESHOLD_MILLIS, DEFAULT_BORROW_TIMEOUT_MILLIS,
+                            DEFAULT_STATEMENT_CACHE_SIZE, queryMetrics);
+                    connectNanos = System.nanoTime() - start;
+                    if (schemaScript != null) {
+                        try {
+                            bootstrap(current);
+                        } catch (SQLException | RuntimeException e) {
+                            current.close();
+                            throw e;
+                        }
+                    }
+                    registerQueryMetrics();
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Registers the query metrics with the platform MBean server. This is done when the pool is opened rather
+     * than at construction so that starting the application does not pay for initializing JMX. A failure
+     * only loses the JMX view, so it is reported and otherwise ignored.
+     */
+    private void registerQueryMetrics() {
+        try {
+            ObjectName name = new ObjectName(QUERY_METRICS_MBEAN_NAME);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(queryMetrics, name);
+                queryMetricsMBean = name;
+            }
+        } catch (JMException e) {
+            System.err.println("Query metrics are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the schema and seed scripts if the database has no employees table yet.
+     */
+    private void bootstrap(ConnectionPool newPool) throws SQLException {
+        try (Connection connection = newPool.borrow()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean exists;
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), null,
+                    metaData.storesUpperCaseIdentifiers() ? "EMPLOYEES" : "employees", null)) {
+                exists = tables.next();
+            }
+            if (!exists) {
+                SqlScript.run(connection, schemaScript);
+                if (seedScript != null) {
+                    SqlScript.run(connection, seedScript);
+                }
+            }
+        } catch (IOException e) {
+            newPool.close();
+            throw new SQLException("Cannot read database script: " + e.getMessage(), e);
+        } catch (SQLException e) {
+            newPool.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how long opening the connection pool took, for startup timing reports.
+     * 
+     * @return The time spent connecting in nanoseconds, or 0 if no connection has been opened yet.
+     */
+    long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * Leases a connection from the pool for a single operation. The caller must close the returned connection,
+     * preferably with try-with-resources, which hands it back to the pool.
+     * 
+     * @return A leased connection.
+     * @throws SQLException If no connection can be obtained.
+     */
+    Connection getConnection() throws SQLException {
+        return pool().borrow();
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL text on a connection leased for it. Statements are cached
+     * per connection and reused across calls, so constant SQL is prepared once per connection rather than on
+     * every invocation. Closing the statement clears its parameters, returns it to the cache, and returns the
+     * connection to the pool, so it should always be used with try-with-resources.
+     * 
+     * @param sql The SQL text of the statement.
+     * @return A cached prepared statement.
+     * @throws SQLException If no connection can be obtained or the statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        return pool().prepare(sql);
+    }
+
+    /**
+     * Returns a cached prepared statement, like prepare(), whose result sets are streamed from the database a
+     * fetch-size batch of rows at a time instead of being read into memory in full before the first row is
+     * returned. Use it for queries whose result can be large, such as reports over all employees, so that heap
+     * usage does not grow with the size of the tables. With MySQL Connector/J this needs useCursorFetch=true
+     * on the JDBC URL, which the default configuration sets.
+     * 
+     * @param sql The SQL text of the query.
+     * @return A cached prepared statement with the streaming fetch size set.
+     * @throws SQLException If no connection can be obtained or the statement cannot be prepared.
+     */
+    PreparedStatement prepareStreaming(String sql) throws SQLException {
+        PreparedStatement pstmt = prepare(sql);
+        try {
+            pstmt.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        return pstmt;
+    }
+
+    /**
+     * Returns the number of prepared statements that were served from the statement cache.
+     * 
+     * @return The number of statement cache hits.
+     */
+    long getStatementCacheHits() {
+        ConnectionPool current = pool;
+        return current == null ? 0 : current.statementCacheHits();
+    }
+
+    /**
+     * Returns the number of prepared statements that had to be prepared because they were not cached.
+     * 
+     * @return The number of statement cache misses.
+     */
+    long getStatementCacheMisses() {
+        ConnectionPool current = pool;
+        return current == null ? 0 : current.statementCacheMisses();
+    }
+
+    /**
+     * Returns the execution metrics of every SQL statement run on this database: call and error counts, rows,
+     * latency percentiles and the slow query log.
      * 
-     * @param connection The connection to the database that will be used for SQL operations.
+     * @return The query metrics.
      */
-    EmployeeDatabase(Connection connection) {
-        this.connection = connection;
+    QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Returns the audit log that write paths record their changes in after committing them.
+     * 
+     * @return The audit log.
+     */
+    AuditLog getAuditLog() {
+        return auditLog;
     }
 
     /**
@@ -40,16 +431,329 @@ public class EmployeeDatabase {
         return pstmt.executeQuery();
     }
 
+    /**
+     * Returns the catalog of table and column metadata for this database.
+     * 
+     * @return The schema catalog.
+     */
+    SchemaCatalog getSchemaCatalog() {
+        return schemaCatalog;
+    }
+
     /**
      * Checks if the SSN column is available in the 'employees' table of the database.
+     * The answer comes from the schema catalog, so no metadata round trip is made once it is loaded.
      * 
      * @return true if the SSN column exists, otherwise false.
-     * @throws SQLException If there is a database error while accessing the metadata.
+     * @throws SQLException If there is a database error while loading the metadata.
      */
     boolean isSSNColumnAvailable() throws SQLException {
-        DatabaseMetaData metaData = connection.getMetaData();
-        try (ResultSet columns = metaData.getColumns(null, null, "employees", "SSN")) {
-            return columns.next(); // Returns true if the SSN column exists.
+        return schemaCatalog.hasColumn("employees", "SSN");
+    }
+
+    /**
+     * Returns the employee with the given ID, served from the employee cache when possible and
+     * read from the database and cached otherwise.
+     * 
+     * @param empId The employee ID.
+     * @return The employee, or null if no employee has that ID.
+     * @throws SQLException If the employee cannot be read from the database.
+     */
+    Employee findEmployee(int empId) throws SQLException {
+        Employee employee = employeeCache.get(empId);
+        if (employee != null) {
+            return employee;
+        }
+        long version = employeeCache.version();
+        boolean ssnAvailable = isSSNColumnAvailable();
+        try (PreparedStatement pstmt = prepare("SELECT * FROM employees WHERE empid = ?")) {
+            pstmt.setInt(1, empId);
+            try (ResultSet resultSet = executeQuery(pstmt)) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                employee = Employee.fromResultSet(resultSet, ssnAvailable);
+            }
+        }
+        employeeCache.put(employee, version);
+        return employee;
+    }
+
+    /**
+     * Returns the employees with the given IDs, in ascending ID order. Cached employees are served from the
+     * employee cache; the rest are read by primary key with batched IN (...) queries and cached.
+     * IDs that do not exist are skipped.
+     * 
+     * @param empIds The employee IDs to look up.
+     * @return The employees found.
+     * @throws SQLException If the employees cannot be read from the database.
+     */
+    List<Employee> findEmployees(Collection<Integer> empIds) throws SQLException {
+        Map<Integer, Employee> found = new TreeMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer empId : empIds) {
+            Employee employee = employeeCache.get(empId);
+            if (employee != null) {
+                found.put(empId, employee);
+            } else {
+                missing.add(empId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long version = employeeCache.version();
+            boolean ssnAvailable = isSSNColumnAvailable();
+            try (Connection connection = getConnection()) {
+                for (int start = 0; start < missing.size(); start += MAX_IDS_PER_QUERY) {
+                    List<Integer> batch = missing.subList(start, Math.min(missing.size(), start + MAX_IDS_PER_QUERY));
+                    StringBuilder query = new StringBuilder("SELECT * FROM employees WHERE empid IN (");
+                    for (int i = 0; i < batch.size(); i++) {
+                        query.append(i == 0 ? "?" : ", ?");
+                    }
+                    query.append(')');
+                    try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+                        for (int i = 0; i < batch.size(); i++) {
+                            pstmt.setInt(i + 1, batch.get(i));
+                        }
+                        try (ResultSet resultSet = executeQuery(pstmt)) {
+                            while (resultSet.next()) {
+                                Employee employee = Employee.fromResultSet(resultSet, ssnAvailable);
+                                employeeCache.put(employee, version);
+                                found.put(employee.getEmpId(), employee);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Returns one page of employees in ascending ID order, starting after the given ID. Pages are addressed
+     * by the last ID of the previous page rather than by an offset, so every page is read with a primary key
+     * range scan no matter how far into the table it is. The employees read are added to the employee cache.
+     * 
+     * @param afterEmpId The last employee ID of the previous page, or 0 for the first page.
+     * @param pageSize The maximum number of employees to return.
+     * @return The employees of the page; fewer than pageSize only on the last page.
+     * @throws SQLException If the employees cannot be read from the database.
+     */
+    List<Employee> listEmployees(int afterEmpId, int pageSize) throws SQLException {
+        List<Employee> page = new ArrayList<>(pageSize);
+        long version = employeeCache.version();
+        boolean ssnAvailable = isSSNColumnAvailable();
+        try (PreparedStatement pstmt = prepare("SELECT * FROM employees WHERE empid > ? ORDER BY empid LIMIT ?")) {
+            pstmt.setInt(1, afterEmpId);
+            pstmt.setInt(2, pageSize);
+            try (ResultSet resultSet = executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    Employee employee = Employee.fromResultSet(resultSet, ssnAvailable);
+                    employeeCache.put(employee, version);
+                    page.add(employee);
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Checks if an employee with the given ID exists, using the employee cache.
+     * 
+     * @param empId The employee ID to check.
+     * @return true if the employee exists, false otherwise.
+     * @throws SQLException If the employee cannot be read from the database.
+     */
+    boolean employeeExists(int empId) throws SQLException {
+        return findEmployee(empId) != null;
+    }
+
+    /**
+     * Records that an employee row was inserted, updated or deleted, so that stale copies are not served.
+     * Every write path that changes a single employee must call this after the change.
+     * 
+     * @param empId The ID of the changed employee.
+     */
+    void employeeChanged(int empId) {
+        employeeCache.invalidate(empId);
+    }
+
+    /**
+     * Records that many employee rows may have changed at once, such as after a salary range update.
+     */
+    void employeesChanged() {
+        employeeCache.invalidateAll();
+    }
+
+    /**
+     * Returns the name index used for searches by first name, last name or email.
+     * Write paths that insert, delete or rename employees must keep it current.
+     * 
+     * @return The name index.
+     */
+    NameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Returns the payroll summary that total-pay reports read instead of the payroll history.
+     * Write paths that insert payroll rows should refresh it.
+     * 
+     * @return The payroll summary.
+     */
+    PayrollSummary getPayrollSummary() {
+        return payrollSummary;
+    }
+
+    /**
+     * Returns the service that runs employee operations asynchronously, creating it the first time.
+     * 
+     * @return The employee service.
+     */
+    EmployeeService getEmployeeService() {
+        EmployeeService service = employeeService;
+        if (service == null) {
+            synchronized (this) {
+                service = employeeService;
+                if (service == null) {
+                    service = new EmployeeService(this, EmployeeService.DEFAULT_THREADS, EmployeeService.DEFAULT_QUEUE_CAPACITY);
+                    employeeService = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Returns the in-memory payroll snapshot that analytic queries run against, loading it the first time.
+     * The snapshot does not follow later changes to the payroll tables; see reloadPayrollAnalytics().
+     * 
+     * @return The payroll snapshot.
+     * @throws SQLException If the snapshot cannot be loaded.
+     */
+    PayrollAnalytics getPayrollAnalytics() throws SQLException {
+        PayrollAnalytics analytics = payrollAnalytics;
+        if (analytics == null) {
+            synchronized (this) {
+                analytics = payrollAnalytics;
+                if (analytics == null) {
+                    SnapshotFile saved = getSnapshot();
+                    analytics = saved == null || saved.payroll == null
+                            ? PayrollAnalytics.load(this)
+                            : PayrollAnalytics.load(this, saved.payroll.stubs, saved.payroll.watermark);
+                    payrollAnalytics = analytics;
+                }
+            }
+        }
+        return analytics;
+    }
+
+    /**
+     * Replaces the payroll snapshot with one loaded from the current payroll tables. Queries already running
+     * finish on the previous snapshot.
+     * 
+     * @return The new payroll snapshot.
+     * @throws SQLException If the snapshot cannot be loaded; the previous snapshot is kept.
+     */
+    PayrollAnalytics reloadPayrollAnalytics() throws SQLException {
+        PayrollAnalytics analytics = PayrollAnalytics.load(this);
+        payrollAnalytics = analytics;
+        return analytics;
+    }
+
+    /**
+     * Returns the snapshot saved by an earlier run, reading the snapshot file the first time.
+     * 
+     * @return The snapshot, or null if snapshots are off, none was saved, or it was saved from another
+     *         database or cannot be read.
+     */
+    SnapshotFile getSnapshot() {
+        synchronized (snapshotLock) {
+            if (!snapshotRead && snapshotFile != null) {
+                snapshot = SnapshotFile.read(snapshotFile, snapshotSource());
+                snapshotRead = true;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Saves the name index and the payroll snapshot, where they were loaded and changed during this run, to
+     * the snapshot file. A part that was not loaded is carried over from the previous file.
+     */
+    private void saveSnapshot() {
+        SnapshotFile.Names names = nameIndex.snapshot();
+        PayrollAnalytics analytics = payrollAnalytics;
+        SnapshotFile.Payroll payroll = analytics != null && analytics.hasNewStubs()
+                ? new SnapshotFile.Payroll(analytics.watermark(), analytics.stubs()) : null;
+        if (names == null && payroll == null) {
+            return;
+        }
+        SnapshotFile previous = getSnapshot();
+        if (previous != null) {
+            names = names != null ? names : previous.names;
+            payroll = payroll != null ? payroll : previous.payroll;
+        }
+        try {
+            SnapshotFile.write(snapshotFile, snapshotSource(), names, payroll);
+        } catch (IOException e) {
+            System.err.println("Failed to save the snapshot " + snapshotFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Identifies the database a snapshot belongs to without writing the URL, which may hold credentials, to the file.
+     */
+    private String snapshotSource() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((url + "\n" + user).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Returns the employee cache, mainly so that its statistics can be reported.
+     * 
+     * @return The employee cache.
+     */
+    EmployeeCache getEmployeeCache() {
+        return employeeCache;
+    }
+
+    /**
+     * Waits for the employee service to finish its operations, saves the snapshot file if snapshots are on,
+     * closes the connection pool and all of its idle connections, if it was opened, and waits for the audit log
+     * to write the changes still queued.
+     */
+    @Override
+    public void close() {
+        // Done before taking this object's lock, since the service's operations and reading the name index
+        // take locks of their own
+        EmployeeService service = employeeService;
+        if (service != null) {
+            service.close();
+        }
+        if (snapshotFile != null && snapshotSaved.compareAndSet(false, true)) {
+            saveSnapshot();
+        }
+        closeResources();
+    }
+
+    private synchronized void closeResources() {
+        closed = true;
+        auditLog.close();
+        if (pool != null) {
+            pool.close();
+        }
+        if (queryMetricsMBean != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(queryMetricsMBean);
+            } catch (JMException e) {
+                // The metrics are going away with the database; nothing more can be done with them.
+            }
+            queryMetricsMBean = null;
         }
     }
 }
@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.sql.SQLException;
+
 /**
  * The EmployeeReport class serves as an abstract base for creating reports about employees.
  * It holds common functionality and structures needed by specific types of employee reports.
@@ -20,12 +23,27 @@ public abstract class EmployeeReport {
     }
 
     /**
-     * Generates a report for employees. This method is intended to be overridden
+     * Generates a report for employees and writes it to the console.
+     */
+    public void generateEmployeeReport() {
+        try (ReportSink sink = ReportSink.console()) {
+            generateEmployeeReport(sink);
+        } catch (IOException | SQLException e) {
+            System.out.println("ERROR " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Generates a report for employees into the given sink. This method is intended to be overridden
      * by subclasses to provide specific reporting logic based on different criteria.
      * The default implementation is empty because the specific details and implementation
      * will depend on the subclass.
+     * 
+     * @param sink The destination the report rows are written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the report data cannot be read.
      */
-    public void generateEmployeeReport() {
+    public void generateEmployeeReport(ReportSink sink) throws IOException, SQLException {
         // Implementation to be provided by subclasses
     }
-}
+}
\ No newline at end of file
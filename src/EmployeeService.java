@@ -0,0 +1,532 @@
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The EmployeeService class is the non-interactive front of the employee operations: every operation returns a
+ * CompletableFuture that is completed on the service's own executor, so callers that have no console, such as
+ * the HTTP API and batch commands, can start several operations at once and combine their results. The console
+ * classes call the same methods and wait for the result before printing it.
+ *
+ * The executor has as many threads as the connection pool has connections, since every task holds a connection
+ * while it runs, and a bounded queue; when the queue is full, the returned future fails at once with a
+ * RejectedExecutionException instead of the caller waiting for a connection. A failed operation completes its
+ * future exceptionally with the SQLException or IllegalArgumentException the operation threw; await() rethrows
+ * it for callers that want the blocking form.
+ *
+ * Tasks never wait for other tasks of the service, so operations composed from several queries, such as
+ * divisionReport(), cannot starve the executor.
+ */
+final class EmployeeService implements AutoCloseable {
+    /**
+     * Default number of operations running at the same time.
+     */
+    static final int DEFAULT_THREADS = EmployeeDatabase.DEFAULT_MAX_CONNECTIONS;
+
+    /**
+     * Default number of operations waiting for a thread before further operations are rejected.
+     */
+    static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /**
+     * Seconds close() waits for running and queued operations to finish.
+     */
+    private static final int CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final EmployeeDatabase employeeDatabase;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Constructs an EmployeeService with its own executor.
+     *
+     * @param employeeDatabase The database the operations run against.
+     * @param threads The number of operations running at the same time.
+     * @param queueCapacity The number of operations that may wait for a thread.
+     */
+    EmployeeService(EmployeeDatabase employeeDatabase, int threads, int queueCapacity) {
+        this.employeeDatabase = employeeDatabase;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "employee-service-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Looks up an employee by ID, from the employee cache when possible.
+     *
+     * @param empId The employee ID.
+     * @return The employee, or null if no employee has the ID.
+     */
+    CompletableFuture<Employee> findById(int empId) {
+        return submit(() -> employeeDatabase.findEmployee(empId));
+    }
+
+    /**
+     * Returns a page of employees in employee ID order.
+     *
+     * @param afterEmpId The page starts after this employee ID; 0 for the first page.
+     * @param limit The largest number of employees returned.
+     * @return The employees of the page.
+     */
+    CompletableFuture<List<Employee>> list(int afterEmpId, int limit) {
+        return submit(() -> employeeDatabase.listEmployees(afterEmpId, limit));
+    }
+
+    /**
+     * Finds the employees whose first name, last name or email contains a text, through the name index. If the
+     * index cannot be built, first and last names are scanned in the employees table instead.
+     *
+     * @param text The text to search for.
+     * @return The matching employees.
+     */
+    CompletableFuture<List<Employee>> search(String text) {
+        return submit(() -> {
+            NameIndex nameIndex = employeeDatabase.getNameIndex();
+            try {
+                nameIndex.ensureBuilt();
+            } catch (SQLException e) {
+                return scanNames(text);
+            }
+            return employeeDatabase.findEmployees(nameIndex.search(text));
+        });
+    }
+
+    private List<Employee> scanNames(String text) throws SQLException {
+        List<Employee> employees = new ArrayList<>();
+        boolean ssnAvailable = employeeDatabase.isSSNColumnAvailable();
+        String query = "SELECT * FROM employees WHERE Fname LIKE ? OR Lname LIKE ?";
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(query)) {
+            pstmt.setString(1, "%" + text + "%");
+            pstmt.setString(2, "%" + text + "%");
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    employees.add(Employee.fromResultSet(resultSet, ssnAvailable));
+                }
+            }
+        }
+        return employees;
+    }
+
+    /**
+     * Adds an employee; see AddEmployee.insert(). The SSN is stored only if the employees table has an SSN column.
+     *
+     * @param employee The employee to add.
+     * @return true if the employee was added.
+     */
+    CompletableFuture<Boolean> add(Employee employee) {
+        return submit(() -> new AddEmployee(employeeDatabase).insert(employee, employeeDatabase.isSSNColumnAvailable()));
+    }
+
+    /**
+     * Applies changes to an employee in one transaction; see UpdateEmployee.update(). Each field is recorded in
+     * the audit log on its own once the changes have been committed.
+     *
+     * @param empId The employee ID.
+     * @param changes The fields to change.
+     * @return The employee after the changes, or null if no employee has the ID. The future fails with an
+     *         IllegalArgumentException if the SSN is to be changed and the employees table has no SSN column.
+     */
+    CompletableFuture<Employee> update(int empId, Changes changes) {
+        return submit(() -> {
+            if (!employeeDatabase.employeeExists(empId)) {
+                return null;
+            }
+            if (changes.values.containsKey(Field.SSN) && !employeeDatabase.isSSNColumnAvailable()) {
+                throw new IllegalArgumentException("SSN column is not available in the employees table.");
+            }
+            new UpdateEmployee(employeeDatabase).update(empId, changes.values);
+            return employeeDatabase.findEmployee(empId);
+        });
+    }
+
+    /**
+     * Deletes an employee; see DeleteEmployee.delete().
+     *
+     * @param empId The employee ID.
+     * @return true if the employee was deleted, false if no employee has the ID.
+     */
+    CompletableFuture<Boolean> delete(int empId) {
+        return submit(() -> new DeleteEmployee(employeeDatabase).delete(empId));
+    }
+
+    /**
+     * Returns the full-time and part-time pay stubs of an employee in pay date order. The two payroll tables
+     * are read at the same time.
+     *
+     * @param empId The employee ID.
+     * @return The pay stubs; empty if the employee has none or does not exist.
+     */
+    CompletableFuture<List<PayStub>> payHistory(int empId) {
+        CompletableFuture<List<PayStub>> fullTime = submit(() -> readStubs(
+                "SELECT empid, pay_date, earnings, fed_tax, fed_med, fed_SS, state_tax, retire_401k, health_care, " +
+                "health_cost FROM payroll WHERE empid = ? ORDER BY pay_date", empId, false));
+        CompletableFuture<List<PayStub>> partTime = submit(() -> readStubs(
+                "SELECT empid, pay_date, hours_worked, hourly_wage, fed_tax, fed_med, fed_SS, state_tax " +
+                "FROM part_time_payroll WHERE empid = ? ORDER BY pay_date", empId, true));
+        return fullTime.thenCombine(partTime, (stubs, partTimeStubs) -> {
+            if (partTimeStubs.isEmpty()) {
+                return stubs;
+            }
+            List<PayStub> merged = new ArrayList<>(stubs.size() + partTimeStubs.size());
+            merged.addAll(stubs);
+            merged.addAll(partTimeStubs);
+            merged.sort(Comparator.comparing(stub -> stub.payDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+            return merged;
+        });
+    }
+
+    private List<PayStub> readStubs(String query, int id, boolean partTime) throws SQLException {
+        List<PayStub> stubs = new ArrayList<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(query)) {
+            pstmt.setInt(1, id);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    stubs.add(partTime ? PayStub.partTime(resultSet) : PayStub.fullTime(resultSet));
+                }
+            }
+        }
+        return stubs;
+    }
+
+    /**
+     * Reads the total pay report of a division after bringing the payroll summary up to date; if the summary
+     * cannot be refreshed, total pay is summed from the payroll history instead.
+     *
+     * @param divisionId The division ID.
+     * @return The report, or null if no division has the ID.
+     */
+    CompletableFuture<DivisionReport> divisionReport(int divisionId) {
+        return divisionReport(divisionId, null);
+    }
+
+    /**
+     * Reads the total pay report of a division. The division and its employees with their totals are read by
+     * two tasks running at the same time. The pay stubs of the employees are not part of the report, since a
+     * division's history can be large; see streamDivisionPayHistory().
+     *
+     * @param divisionId The division ID.
+     * @param summaryAvailable Whether the payroll summary is up to date, or null to refresh it first.
+     * @return The report, or null if no division has the ID.
+     */
+    CompletableFuture<DivisionReport> divisionReport(int divisionId, Boolean summaryAvailable) {
+        CompletableFuture<DivisionReport> division = submit(() -> readDivision(divisionId));
+        CompletableFuture<List<DivisionEmployee>> employees = submit(() -> readDivisionEmployees(divisionId,
+                summaryAvailable != null ? summaryAvailable : refreshPayrollSummary()));
+        return division.thenCombine(employees, (report, rows) -> {
+            if (report != null) {
+                report.employees = rows;
+            }
+            return report;
+        });
+    }
+
+    /**
+     * Reads the full-time pay stubs of every employee of a division, ordered by employee and pay date, and hands
+     * them to a consumer one row at a time as they are fetched. Unlike the other operations, this runs on the
+     * calling thread, so that the stubs are written out while they are read instead of being collected first.
+     *
+     * @param divisionId The division ID.
+     * @param consumer Receives each pay stub.
+     * @throws IOException If the consumer fails to write a stub.
+     * @throws SQLException If the pay stubs cannot be read.
+     */
+    void streamDivisionPayHistory(int divisionId, PayStubConsumer consumer) throws IOException, SQLException {
+        String query = "SELECT p.empid, p.pay_date, p.earnings, p.fed_tax, p.fed_med, p.fed_SS, p.state_tax, " +
+                       "p.retire_401k, p.health_care, p.health_cost " +
+                       "FROM employee_division ed " +
+                       "JOIN employees e ON e.empid = ed.empid " +
+                       "JOIN payroll p ON p.empid = e.empid " +
+                       "WHERE ed.div_ID = ? " +
+                       "ORDER BY p.empid, p.pay_date";
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(query)) {
+            pstmt.setInt(1, divisionId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    consumer.accept(PayStub.fullTime(resultSet));
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives pay stubs from streamDivisionPayHistory().
+     */
+    @FunctionalInterface
+    interface PayStubConsumer {
+        void accept(PayStub stub) throws IOException;
+    }
+
+    private boolean refreshPayrollSummary() {
+        try {
+            employeeDatabase.getPayrollSummary().refresh();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private DivisionReport readDivision(int divisionId) throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT * FROM division WHERE ID = ?")) {
+            pstmt.setInt(1, divisionId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                DivisionReport report = new DivisionReport();
+                report.divisionId = divisionId;
+                report.name = resultSet.getString("Name");
+                report.city = resultSet.getString("city");
+                report.addressLine1 = resultSet.getString("addressLine1");
+                report.addressLine2 = resultSet.getString("addressLine2");
+                report.state = resultSet.getString("state");
+                report.country = resultSet.getString("country");
+                report.postalCode = resultSet.getString("postalCode");
+                return report;
+            }
+        }
+    }
+
+    private List<DivisionEmployee> readDivisionEmployees(int divisionId, boolean summaryAvailable) throws SQLException {
+        String query = summaryAvailable
+                ? "SELECT e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary, " +
+                  "COALESCE(pt.pay_periods, 0) AS PayPeriods, COALESCE(pt.earnings, 0) AS TotalPay " +
+                  "FROM employee_division ed " +
+                  "JOIN employees e ON e.empid = ed.empid " +
+                  "LEFT JOIN payroll_totals pt ON pt.empid = e.empid AND pt.pay_year = " + PayrollSummary.ALL_YEARS +
+                  " AND pt.pay_month = " + PayrollSummary.ALL_MONTHS + " " +
+                  "WHERE ed.div_ID = ? " +
+                  "ORDER BY e.empid"
+                : "SELECT e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary, " +
+                  "COUNT(p.payID) AS PayPeriods, COALESCE(SUM(p.earnings), 0) AS TotalPay " +
+                  "FROM employee_division ed " +
+                  "JOIN employees e ON e.empid = ed.empid " +
+                  "LEFT JOIN payroll p ON p.empid = e.empid " +
+                  "WHERE ed.div_ID = ? " +
+                  "GROUP BY e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary " +
+                  "ORDER BY e.empid";
+        List<DivisionEmployee> employees = new ArrayList<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(query)) {
+            pstmt.setInt(1, divisionId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    DivisionEmployee employee = new DivisionEmployee();
+                    employee.empId = resultSet.getInt("empid");
+                    employee.firstName = resultSet.getString("Fname");
+                    employee.lastName = resultSet.getString("Lname");
+                    employee.email = resultSet.getString("email");
+                    employee.hireDate = resultSet.getDate("HireDate");
+                    employee.salary = resultSet.getDouble("Salary");
+                    employee.payPeriods = resultSet.getInt("PayPeriods");
+                    employee.totalPay = resultSet.getDouble("TotalPay");
+                    employees.add(employee);
+                }
+            }
+        }
+        return employees;
+    }
+
+    /**
+     * Waits for an operation and returns its result, rethrowing the exception it failed with.
+     *
+     * @param future The future of the operation.
+     * @param <T> The type of the result.
+     * @return The result of the operation.
+     * @throws SQLException If the operation failed with a database error or the wait was interrupted.
+     */
+    static <T> T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the database.", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Employee operation failed.", cause);
+        }
+    }
+
+    /**
+     * Stops accepting operations and waits up to CLOSE_TIMEOUT_SECONDS for the running and queued ones.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface Task<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * The fields of an employee that update() can change.
+     */
+    enum Field {
+        EMAIL, SALARY, JOB_TITLE, ADDRESS, DATE_OF_BIRTH, SSN
+    }
+
+    /**
+     * The changes to apply to an employee; only the fields that were set are changed.
+     */
+    static final class Changes {
+        private final Map<Field, Object> values = new EnumMap<>(Field.class);
+
+        Changes email(String email) {
+            values.put(Field.EMAIL, email);
+            return this;
+        }
+
+        Changes salary(double salary) {
+            values.put(Field.SALARY, salary);
+            return this;
+        }
+
+        Changes jobTitle(String jobTitle) {
+            values.put(Field.JOB_TITLE, jobTitle);
+            return this;
+        }
+
+        Changes address(String address) {
+            values.put(Field.ADDRESS, address);
+            return this;
+        }
+
+        Changes dateOfBirth(Date dateOfBirth) {
+            values.put(Field.DATE_OF_BIRTH, dateOfBirth);
+            return this;
+        }
+
+        Changes ssn(String ssn) {
+            values.put(Field.SSN, ssn);
+            return this;
+        }
+    }
+
+    /**
+     * A full-time or part-time pay stub. Part-time stubs have hours and an hourly wage, and their earnings are
+     * the product of the two; they have no retirement or health care deductions.
+     */
+    static final class PayStub {
+        final int empId;
+        final Date payDate;
+        final boolean partTime;
+        final double earnings;
+        final double fedTax;
+        final double fedMed;
+        final double fedSS;
+        final double stateTax;
+        final double retire401k;
+        final double healthCare;
+        final double healthCost;
+        final double hoursWorked;
+        final double hourlyWage;
+
+        private PayStub(int empId, Date payDate, boolean partTime, double earnings, double fedTax, double fedMed,
+                        double fedSS, double stateTax, double retire401k, double healthCare, double healthCost,
+                        double hoursWorked, double hourlyWage) {
+            this.empId = empId;
+            this.payDate = payDate;
+            this.partTime = partTime;
+            this.earnings = earnings;
+            this.fedTax = fedTax;
+            this.fedMed = fedMed;
+            this.fedSS = fedSS;
+            this.stateTax = stateTax;
+            this.retire401k = retire401k;
+            this.healthCare = healthCare;
+            this.healthCost = healthCost;
+            this.hoursWorked = hoursWorked;
+            this.hourlyWage = hourlyWage;
+        }
+
+        private static PayStub fullTime(ResultSet resultSet) throws SQLException {
+            return new PayStub(resultSet.getInt("empid"), resultSet.getDate("pay_date"), false,
+                    resultSet.getDouble("earnings"), resultSet.getDouble("fed_tax"), resultSet.getDouble("fed_med"),
+                    resultSet.getDouble("fed_SS"), resultSet.getDouble("state_tax"), resultSet.getDouble("retire_401k"),
+                    resultSet.getDouble("health_care"), resultSet.getDouble("health_cost"), 0, 0);
+        }
+
+        private static PayStub partTime(ResultSet resultSet) throws SQLException {
+            double hours = resultSet.getDouble("hours_worked");
+            double wage = resultSet.getDouble("hourly_wage");
+            return new PayStub(resultSet.getInt("empid"), resultSet.getDate("pay_date"), true, hours * wage,
+                    resultSet.getDouble("fed_tax"), resultSet.getDouble("fed_med"), resultSet.getDouble("fed_SS"),
+                    resultSet.getDouble("state_tax"), 0, 0, 0, hours, wage);
+        }
+    }
+
+    /**
+     * The total pay report of a division: the division's address and its employees in employee ID order.
+     */
+    static final class DivisionReport {
+        int divisionId;
+        String name;
+        String city;
+        String addressLine1;
+        String addressLine2;
+        String state;
+        String country;
+        String postalCode;
+        List<DivisionEmployee> employees = Collections.emptyList();
+    }
+
+    /**
+     * An employee of a division with the number of pay periods and total pay of their payroll history.
+     */
+    static final class DivisionEmployee {
+        int empId;
+        String firstName;
+        String lastName;
+        String email;
+        Date hireDate;
+        double salary;
+        int payPeriods;
+        double totalPay;
+    }
+}
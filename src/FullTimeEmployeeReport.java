@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.sql.*;
 
 /**
@@ -16,93 +17,58 @@ public class FullTimeEmployeeReport extends EmployeeReport {
     }
 
     /**
-     * Generates and prints a detailed report of all full-time employees including their personal information
-     * and detailed monthly payroll data. It queries the database for employees who have payroll entries,
-     * indicating full-time status, and prints out each individual's job title, email, and payroll details.
+     * Generates a detailed report of all full-time employees including their personal information
+     * and detailed monthly payroll data. Employees, their job titles and every payroll row are fetched in a single
+     * ordered join, so the report is produced from one scan of one result set instead of one payroll query per
+     * employee. Rows are grouped by employee and job title as they arrive, keeping the per-employee layout of
+     * a name/title line followed by that employee's payroll table, and each row is written to the sink as soon
+     * as it is formatted.
+     * 
+     * @param sink The destination the report rows are written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the employees or their payroll cannot be read.
      */
     @Override
-    public void generateEmployeeReport() {
-        StringBuilder output = new StringBuilder("");
-        String sqlcommand = "SELECT e.Fname, e.Lname, e.email, jt.job_title, e.empid " +
-                "FROM employees e  " +
+    public void generateEmployeeReport(ReportSink sink) throws IOException, SQLException {
+        StringBuilder output = new StringBuilder(256);
+        String sqlcommand = "SELECT e.empid, e.Fname, e.Lname, e.email, jt.job_title_id, jt.job_title, " +
+                "p.pay_date, p.earnings, p.fed_tax, p.fed_med, p.fed_SS, p.state_tax, p.retire_401k, " +
+                "p.health_care, p.health_cost " +
+                "FROM employees e " +
                 "JOIN employee_job_titles ejt ON e.empid = ejt.empid " +
-                "JOIN job_titles jt ON ejt.job_title_id = jt.job_title_id  " +
-                "WHERE e.empid IN (SELECT empid FROM payroll) " +
-                "ORDER BY e.empid ; ";
+                "JOIN job_titles jt ON ejt.job_title_id = jt.job_title_id " +
+                "JOIN payroll p ON e.empid = p.empid " +
+                "ORDER BY e.empid, jt.job_title_id, p.pay_date;";
 
-        try {
-            PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(sqlcommand);
-            ResultSet myRS = employeeDatabase.executeQuery(pstmt);
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(sqlcommand);
+             ResultSet myRS = employeeDatabase.executeQuery(pstmt)) {
             if (!myRS.next()) {
-                System.out.println("No full-time employees found.");
+                sink.write("No full-time employees found.\n");
                 return;
             }
+            int currentEmpId = -1;
+            int currentJobTitleId = -1;
             do {
-                output.append("Name= " + myRS.getString("e.Fname") + " " + myRS.getString("e.Lname") + "\t");
-                output.append("Title=" + myRS.getString("jt.job_title") + "     " + myRS.getString("e.email") + "\n");
-                System.out.print(output.toString());
+                int empId = myRS.getInt("e.empid");
+                int jobTitleId = myRS.getInt("jt.job_title_id");
+                if (empId != currentEmpId || jobTitleId != currentJobTitleId) {
+                    // A new employee/title group starts: close the previous payroll table first
+                    if (currentEmpId != -1) {
+                        sink.write("\n");
+                    }
+                    currentEmpId = empId;
+                    currentJobTitleId = jobTitleId;
+                    output.append("Name= ").append(myRS.getString("e.Fname")).append(' ')
+                            .append(myRS.getString("e.Lname")).append('\t');
+                    output.append("Title=").append(myRS.getString("jt.job_title")).append("     ")
+                            .append(myRS.getString("e.email")).append('\n');
+                    output.append(Payroll.HEADER);
+                }
+                Payroll.appendPayRow(output, myRS);
+                sink.write(output);
                 output.setLength(0);
-                Payroll p1 = new Payroll(employeeDatabase);
-                output.append(p1.getPayByMonth(myRS.getInt("e.empid")));
             } while (myRS.next());
-        } catch (SQLException e) {
-            System.out.println("ERROR " + e.getLocalizedMessage());
-        }
-    }
-}
-
-/**
- * The Payroll class handles the retrieval and formatting of payroll data for individual employees.
- */
-class Payroll {
-    private final EmployeeDatabase employeeDatabase;
-
-    /**
-     * Constructs a Payroll object with a given EmployeeDatabase instance.
-     * 
-     * @param employeeDatabase The database handler for employee data.
-     */
-    public Payroll(EmployeeDatabase employeeDatabase) {
-        this.employeeDatabase = employeeDatabase;
-    }
-
-    /**
-     * Retrieves and formats the payroll data for a specific employee by their employee ID.
-     * The method queries the database for payroll details and formats them in a tabulated string format.
-     * 
-     * @param empID The employee ID for which payroll data is to be retrieved.
-     * @return A StringBuilder object containing formatted payroll data.
-     */
-    public StringBuilder getPayByMonth(int empID) {
-        StringBuilder output = new StringBuilder("");
-        String sqlcommand1 = "SELECT e.empid, p.pay_date, p.earnings, p.fed_tax, " +
-        "p.fed_med, p.fed_SS, p.state_tax, p.retire_401k, p.health_care, p.health_cost " + 
-        "FROM employees e " +
-        "JOIN payroll p ON e.empid = p.empid " +
-        "WHERE e.empid = ? " +
-        "ORDER BY p.pay_date;";
-
-        try {
-            PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(sqlcommand1);
-            pstmt.setInt(1, empID);
-            ResultSet myRS1 = employeeDatabase.executeQuery(pstmt);
-            if (!myRS1.next()) {
-                return output; // If no payroll data found, return an empty StringBuilder
-            }
-            output.append("\tEMP ID\tPAY DATE\tGROSS\tFederal\tFedMed\tFedSS\tState\t401K\tHealthCare\tHealthCost\n");
-            do {
-                output.append("\t" + myRS1.getString("e.empid") + "\t");
-                output.append(myRS1.getDate("p.pay_date") + "\t" + myRS1.getDouble("p.earnings") + "\t");
-                output.append(myRS1.getDouble("p.fed_tax") + "\t" + myRS1.getDouble("p.fed_med") + "\t");
-                output.append(myRS1.getDouble("p.fed_SS") + "\t" + myRS1.getDouble("p.state_tax") + "\t");
-                output.append(myRS1.getDouble("p.retire_401K") + "\t" + myRS1.getDouble("p.health_care")+"\t\t" );
-                output.append(myRS1.getDouble("p.health_cost") + "\n");
-            } while (myRS1.next());
-            System.out.println(output.toString());
-            output.setLength(0);
-        } catch (SQLException e) {
-            System.out.println("ERROR " + e.getLocalizedMessage());
+            sink.write("\n");
         }
-        return output;
     }
 }
@@ -0,0 +1,649 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The HttpApi class serves the employee operations as a JSON API over HTTP, so that several users and
+ * integrations can work with the employee database at the same time instead of through one console session.
+ * It runs on the JDK's built-in HttpServer and handles every request on its own virtual thread; the employee
+ * operations run on the EmployeeService, whose executor is sized to the shared connection pool:
+ *
+ *   GET    /api/health                            liveness and request counters
+ *   GET    /api/employees?after=id&amp;limit=n         employees in ID order, a page at a time
+ *   GET    /api/employees/search?q=text           employees whose name or email contains the text
+ *   POST   /api/employees                         add an employee
+ *   GET    /api/employees/{id}                    one employee
+ *   PATCH  /api/employees/{id}                    change email, salary, address, dateOfBirth or ssn
+ *   DELETE /api/employees/{id}                    remove an employee
+ *   PUT    /api/employees/{id}/division           move an employee to the division {"divisionId": n}
+ *   GET    /api/employees/{id}/payroll            the pay stubs of an employee
+ *   GET    /api/reports/full-time|part-time       the employee reports, streamed
+ *   GET    /api/reports/job-titles[/{id}]         total pay by job title, streamed
+ *   GET    /api/reports/divisions[/{id}]?history=true  total pay by division, streamed
+ *   GET    /api/analytics?by=division&amp;measure=net&amp;from=...  totals from the in-memory payroll snapshot
+ *
+ * Employees are returned without their SSN. Admission is limited twice: at most maxRequests requests are
+ * handled at a time and at most MAX_CONCURRENT_REPORTS of them may be reports, which hold connections for
+ * longer. A request beyond either limit is answered at once with 503 and a Retry-After header instead of
+ * queueing behind the connection pool. Reports are streamed as JSON while they are generated, so they are
+ * never held in memory as a whole; a report that fails after its first lines were sent ends with an error
+ * member.
+ *
+ * The API has no authentication of its own and binds to the loopback address unless told otherwise; expose it
+ * only behind a proxy that authenticates users.
+ */
+final class HttpApi implements AutoCloseable {
+    static final int DEFAULT_PORT = 8080;
+    static final String DEFAULT_BIND_ADDRESS = "127.0.0.1";
+
+    /**
+     * Default number of requests handled at the same time; more than the pool has connections, since many
+     * requests are answered from caches or spend part of their time writing the response.
+     */
+    static final int DEFAULT_MAX_REQUESTS = EmployeeDatabase.DEFAULT_MAX_CONNECTIONS * 4;
+
+    /**
+     * Number of reports generated at the same time; a report over all job titles or divisions alone uses up to
+     * ReportGeneratorByJobTitleOrDivision.REPORT_PARALLELISM connections.
+     */
+    static final int MAX_CONCURRENT_REPORTS = 2;
+
+    /**
+     * Largest request body accepted, in bytes.
+     */
+    static final int MAX_BODY_BYTES = 64 * 1024;
+
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Seconds the server waits for running requests to finish when it is stopped.
+     */
+    private static final int STOP_DELAY_SECONDS = 5;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final EmployeeDatabase employeeDatabase;
+    private final EmployeeService employeeService;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int maxRequests;
+    private final Semaphore requestPermits;
+    private final Semaphore reportPermits = new Semaphore(MAX_CONCURRENT_REPORTS);
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Constructs an HttpApi bound to an address. Requests are not accepted until start() is called.
+     *
+     * @param employeeDatabase The database the operations run against.
+     * @param address The address and port to listen on.
+     * @param maxRequests The number of requests handled at the same time.
+     * @throws IOException If the address cannot be bound.
+     */
+    HttpApi(EmployeeDatabase employeeDatabase, InetSocketAddress address, int maxRequests) throws IOException {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("Maximum number of requests must be positive: " + maxRequests);
+        }
+        this.employeeDatabase = employeeDatabase;
+        this.employeeService = employeeDatabase.getEmployeeService();
+        this.maxRequests = maxRequests;
+        this.requestPermits = new Semaphore(maxRequests);
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on, with the actual port if port 0 was requested.
+     *
+     * @return The listening address.
+     */
+    InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and waits up to STOP_DELAY_SECONDS for the running ones to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!requestPermits.tryAcquire()) {
+            rejected.increment();
+            try (exchange) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many requests in progress; try again shortly.");
+            }
+            return;
+        }
+        try {
+            route(exchange);
+        } catch (HttpError e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Too many operations queued; try again shortly.");
+        } catch (SQLIntegrityConstraintViolationException e) {
+            sendError(exchange, 409, "The change conflicts with existing data.");
+        } catch (SQLException e) {
+            System.err.println("HTTP " + exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath()
+                    + " failed: " + e.getMessage());
+            sendError(exchange, 500, "Database error.");
+        } finally {
+            exchange.close();
+            served.increment();
+            requestPermits.release();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> query = query(exchange);
+        String resource = path[0];
+        if (resource.equals("health") && path.length == 1) {
+            requireMethod(exchange, "GET");
+            StringBuilder json = new StringBuilder("{\"status\":\"ok\",\"served\":").append(served.sum())
+                    .append(",\"rejected\":").append(rejected.sum())
+                    .append(",\"inProgress\":").append(maxRequests - requestPermits.availablePermits())
+                    .append('}');
+            send(exchange, 200, json);
+        } else if (resource.equals("employees")) {
+            routeEmployees(exchange, method, path, query);
+        } else if (resource.equals("reports") && (path.length == 2 || path.length == 3)) {
+            requireMethod(exchange, "GET");
+            if (!reportPermits.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "5");
+                throw new HttpError(503, "Too many reports in progress; try again shortly.");
+            }
+            try {
+                report(exchange, path[1], path.length == 3 ? id(path[2]) : null,
+                        Boolean.parseBoolean(query.getOrDefault("history", "false")));
+            } finally {
+                reportPermits.release();
+            }
+        } else if (resource.equals("analytics") && path.length == 1) {
+            requireMethod(exchange, "GET");
+            analytics(exchange, query);
+        } else {
+            throw new HttpError(404, "No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void routeEmployees(HttpExchange exchange, String method, String[] path, Map<String, String> query)
+            throws IOException, SQLException {
+        if (path.length == 1) {
+            requireMethod(exchange, "GET", "POST");
+            if (method.equals("GET")) {
+                int after = query.containsKey("after") ? Integer.parseInt(query.get("after")) : 0;
+                int limit = Math.min(MAX_PAGE_SIZE, query.containsKey("limit")
+                        ? Integer.parseInt(query.get("limit")) : DEFAULT_PAGE_SIZE);
+                if (limit < 1) {
+                    throw new IllegalArgumentException("limit must be positive: " + limit);
+                }
+                sendEmployees(exchange, EmployeeService.await(employeeService.list(after, limit)));
+            } else {
+                addEmployee(exchange);
+            }
+            return;
+        }
+        if (path.length == 2 && path[1].equals("search")) {
+            requireMethod(exchange, "GET");
+            String text = query.get("q");
+            if (text == null || text.isBlank()) {
+                throw new IllegalArgumentException("Search needs a q parameter.");
+            }
+            List<Employee> employees = EmployeeService.await(employeeService.search(text));
+            sendEmployees(exchange, employees.subList(0, Math.min(employees.size(), MAX_PAGE_SIZE)));
+            return;
+        }
+        int empId = id(path[1]);
+        if (path.length == 2) {
+            requireMethod(exchange, "GET", "PATCH", "DELETE");
+            if (method.equals("DELETE")) {
+                if (!EmployeeService.await(employeeService.delete(empId))) {
+                    throw new HttpError(404, "Employee with ID " + empId + " does not exist.");
+                }
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            Employee employee = method.equals("PATCH")
+                    ? updateEmployee(empId, body(exchange))
+                    : EmployeeService.await(employeeService.findById(empId));
+            if (employee == null) {
+                throw new HttpError(404, "Employee with ID " + empId + " does not exist.");
+            }
+            StringBuilder json = new StringBuilder(256);
+            appendEmployee(json, employee);
+            send(exchange, 200, json);
+        } else if (path.length == 3 && path[2].equals("division")) {
+            requireMethod(exchange, "PUT");
+            assignDivision(exchange, empId, body(exchange));
+        } else if (path.length == 3 && path[2].equals("payroll")) {
+            requireMethod(exchange, "GET");
+            payroll(exchange, empId);
+        } else {
+            throw new HttpError(404, "No such resource: " + exchange.getRequestURI().getPath());
+        }
+    }
+
+    private void addEmployee(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, Object> body = body(exchange);
+        int empId = (int) integer(body, "empid", true);
+        if (employeeDatabase.employeeExists(empId)) {
+            throw new HttpError(409, "Employee with ID " + empId + " already exists.");
+        }
+        String ssn = ssn(body);
+        if (ssn != null && new AddEmployee(employeeDatabase).ssnTaken(ssn)) {
+            throw new HttpError(409, "An employee with this SSN already exists.");
+        }
+        Employee employee = new Employee(empId, text(body, "firstName", true), text(body, "lastName", true),
+                text(body, "email", false), date(body, "hireDate"), number(body, "salary", true), ssn,
+                text(body, "address", false), date(body, "dateOfBirth"));
+        if (!EmployeeService.await(employeeService.add(employee))) {
+            throw new HttpError(500, "The employee was not added.");
+        }
+        exchange.getResponseHeaders().set("Location", "/api/employees/" + empId);
+        StringBuilder json = new StringBuilder(256);
+        appendEmployee(json, employee);
+        send(exchange, 201, json);
+    }
+
+    /**
+     * Applies a PATCH body to an employee. A new SSN is checked as when adding an employee, except that the
+     * employee may keep the SSN it already has.
+     */
+    private Employee updateEmployee(int empId, Map<String, Object> body) throws SQLException {
+        EmployeeService.Changes changes = changes(body);
+        String ssn = ssn(body);
+        if (ssn != null && new AddEmployee(employeeDatabase).ssnTaken(ssn)) {
+            Employee current = employeeDatabase.findEmployee(empId);
+            if (current != null && !ssn.equals(current.getSsn())) {
+                throw new HttpError(409, "An employee with this SSN already exists.");
+            }
+        }
+        return EmployeeService.await(employeeService.update(empId, changes));
+    }
+
+    /**
+     * Reads the optional ssn field, which must be 9 digits without dashes and needs the SSN column.
+     */
+    private String ssn(Map<String, Object> body) throws SQLException {
+        String ssn = text(body, "ssn", false);
+        if (ssn == null) {
+            return null;
+        }
+        if (!ssn.matches("\\d{9}")) {
+            throw new IllegalArgumentException("ssn must be 9 digits without dashes.");
+        }
+        if (!employeeDatabase.isSSNColumnAvailable()) {
+            throw new IllegalArgumentException("The employees table has no SSN column.");
+        }
+        return ssn;
+    }
+
+    /**
+     * Converts a PATCH body to the changes of an update, checking the names and types of its fields. The job
+     * title cannot be patched: the console's job title change renames the title row shared by every employee
+     * who holds it, which one employee's request must not do.
+     */
+    private static EmployeeService.Changes changes(Map<String, Object> body) {
+        Set<String> fields = Set.of("email", "salary", "address", "dateOfBirth", "ssn");
+        for (String name : body.keySet()) {
+            if (!fields.contains(name)) {
+                throw new IllegalArgumentException("Unknown field " + name + "; expected one of " + fields);
+            }
+        }
+        EmployeeService.Changes changes = new EmployeeService.Changes();
+        if (body.containsKey("email")) {
+            changes.email(text(body, "email", false));
+        }
+        if (body.containsKey("salary")) {
+            changes.salary(number(body, "salary", true));
+        }
+        if (body.containsKey("address")) {
+            changes.address(text(body, "address", false));
+        }
+        if (body.containsKey("dateOfBirth")) {
+            changes.dateOfBirth(date(body, "dateOfBirth"));
+        }
+        if (body.containsKey("ssn")) {
+            changes.ssn(text(body, "ssn", false));
+        }
+        return changes;
+    }
+
+    private void assignDivision(HttpExchange exchange, int empId, Map<String, Object> body) throws IOException, SQLException {
+        int divisionId = (int) integer(body, "divisionId", true);
+        UpdateEmployeeDivision updateEmployeeDivision = new UpdateEmployeeDivision(employeeDatabase);
+        if (!employeeDatabase.employeeExists(empId)) {
+            throw new HttpError(404, "Employee with ID " + empId + " does not exist.");
+        }
+        UpdateEmployeeDivision.ReassignmentResult result;
+        try {
+            // The division is checked inside the reassignment's transaction; that is its only validation error
+            result = updateEmployeeDivision.reassignEmployees(Collections.singletonList(empId), divisionId);
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(404, e.getMessage());
+        }
+        StringBuilder json = new StringBuilder(64);
+        json.append("{\"empid\":").append(empId).append(",\"divisionId\":").append(divisionId)
+                .append(",\"moved\":").append(result.moved).append(",\"created\":").append(result.created)
+                .append(",\"skipped\":").append(result.skipped).append('}');
+        send(exchange, 200, json);
+    }
+
+    /**
+     * Returns the full-time and part-time pay stubs of an employee, oldest first. The employee and the stubs
+     * are read at the same time.
+     */
+    private void payroll(HttpExchange exchange, int empId) throws IOException, SQLException {
+        CompletableFuture<Employee> employee = employeeService.findById(empId);
+        CompletableFuture<List<EmployeeService.PayStub>> payHistory = employeeService.payHistory(empId);
+        if (EmployeeService.await(employee) == null) {
+            throw new HttpError(404, "Employee with ID " + empId + " does not exist.");
+        }
+        List<EmployeeService.PayStub> stubs = EmployeeService.await(payHistory);
+        StringBuilder json = new StringBuilder(64 + stubs.size() * 160);
+        json.append("{\"empid\":").append(empId).append(",\"payroll\":[");
+        boolean first = true;
+        for (EmployeeService.PayStub stub : stubs) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"payDate\":");
+            Json.appendValue(json, stub.payDate);
+            json.append(",\"partTime\":").append(stub.partTime);
+            if (stub.partTime) {
+                json.append(",\"hoursWorked\":").append(stub.hoursWorked)
+                        .append(",\"hourlyWage\":").append(stub.hourlyWage);
+            }
+            json.append(",\"earnings\":").append(stub.earnings)
+                    .append(",\"fedTax\":").append(stub.fedTax)
+                    .append(",\"fedMed\":").append(stub.fedMed)
+                    .append(",\"fedSS\":").append(stub.fedSS)
+                    .append(",\"stateTax\":").append(stub.stateTax);
+            if (!stub.partTime) {
+                json.append(",\"retire401k\":").append(stub.retire401k)
+                        .append(",\"healthCare\":").append(stub.healthCare)
+                        .append(",\"healthCost\":").append(stub.healthCost);
+            }
+            json.append('}');
+        }
+        json.append("]}");
+        send(exchange, 200, json);
+    }
+
+    private void report(HttpExchange exchange, String type, Integer id, boolean includeHistory)
+            throws IOException, SQLException {
+        ReportGeneratorByJobTitleOrDivision generator = new ReportGeneratorByJobTitleOrDivision(employeeDatabase);
+        switch (type) {
+            case "full-time":
+            case "part-time":
+                if (id != null) {
+                    throw new HttpError(404, "No such resource: " + exchange.getRequestURI().getPath());
+                }
+                break;
+            case "job-titles":
+            case "divisions":
+                break;
+            default:
+                throw new HttpError(404, "Unknown report: " + type);
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonReportSink sink = new JsonReportSink(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), type)) {
+            try {
+                writeReport(generator, type, id, includeHistory, sink);
+            } catch (SQLException | RuntimeException e) {
+                sink.fail("The report could not be completed.");
+                throw e;
+            }
+        }
+    }
+
+    private void writeReport(ReportGeneratorByJobTitleOrDivision generator, String type, Integer id,
+                             boolean includeHistory, ReportSink sink) throws IOException, SQLException {
+        switch (type) {
+            case "full-time":
+                new FullTimeEmployeeReport(employeeDatabase).generateEmployeeReport(sink);
+                break;
+            case "part-time":
+                new PartTimeEmployeeReport(employeeDatabase).generateEmployeeReport(sink);
+                break;
+            case "job-titles":
+                if (id == null) {
+                    generator.writeAllJobTitleReports(sink);
+                } else {
+                    generator.writeJobTitleReport(id, sink);
+                }
+                break;
+            default:
+                if (id == null) {
+                    generator.writeAllDivisionReports(includeHistory, sink);
+                } else {
+                    generator.writeDivisionReport(id, includeHistory, sink);
+                }
+        }
+    }
+
+    private void analytics(HttpExchange exchange, Map<String, String> query) throws IOException, SQLException {
+        String by = query.get("by");
+        if (by == null) {
+            throw new IllegalArgumentException("analytics needs a by parameter.");
+        }
+        PayrollAnalytics.Dimension dimension = PayrollAnalytics.dimension(by);
+        PayrollAnalytics.Measure measure = PayrollAnalytics.measure(query.getOrDefault("measure", "gross"));
+        PayrollAnalytics.Filter filter = new PayrollAnalytics.Filter();
+        filter.from = query.containsKey("from") ? LocalDate.parse(query.get("from")) : null;
+        filter.to = query.containsKey("to") ? LocalDate.parse(query.get("to")) : null;
+        filter.jobTitleId = query.containsKey("title") ? Integer.valueOf(query.get("title")) : null;
+        filter.divisionId = query.containsKey("division") ? Integer.valueOf(query.get("division")) : null;
+        if (query.containsKey("type")) {
+            String type = query.get("type");
+            if (!type.equals("full-time") && !type.equals("part-time")) {
+                throw new IllegalArgumentException("type must be full-time or part-time: " + type);
+            }
+            filter.partTime = type.equals("part-time");
+        }
+        PayrollAnalytics.Totals totals = employeeDatabase.getPayrollAnalytics().totals(dimension, measure, filter);
+
+        StringBuilder json = new StringBuilder(128 + totals.labels.length * 64);
+        json.append("{\"by\":\"").append(dimension.name().toLowerCase()).append("\",\"measure\":\"")
+                .append(measure.name().toLowerCase()).append("\",\"groups\":[");
+        for (int i = 0; i < totals.labels.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"label\":");
+            Json.appendString(json, totals.labels[i]);
+            json.append(",\"stubs\":").append(totals.stubs[i]).append(",\"total\":")
+                    .append(measure.money ? BigDecimal.valueOf(totals.totals[i], 2) : BigDecimal.valueOf(totals.totals[i]))
+                    .append('}');
+        }
+        json.append("]}");
+        send(exchange, 200, json);
+    }
+
+    private void sendEmployees(HttpExchange exchange, List<Employee> employees) throws IOException {
+        StringBuilder json = new StringBuilder(64 + employees.size() * 256);
+        json.append("{\"employees\":[");
+        for (int i = 0; i < employees.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendEmployee(json, employees.get(i));
+        }
+        json.append("]}");
+        send(exchange, 200, json);
+    }
+
+    /**
+     * Appends an employee as a JSON object. The SSN is never included.
+     */
+    static void appendEmployee(StringBuilder json, Employee employee) {
+        json.append("{\"empid\":").append(employee.getEmpId());
+        json.append(",\"firstName\":");
+        Json.appendValue(json, employee.getFirstName());
+        json.append(",\"lastName\":");
+        Json.appendValue(json, employee.getLastName());
+        json.append(",\"email\":");
+        Json.appendValue(json, employee.getEmail());
+        json.append(",\"hireDate\":");
+        Json.appendValue(json, employee.getHireDate());
+        json.append(",\"salary\":").append(employee.getSalary());
+        json.append(",\"address\":");
+        Json.appendValue(json, employee.getAddress());
+        json.append(",\"dateOfBirth\":");
+        Json.appendValue(json, employee.getDateOfBirth());
+        json.append('}');
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence json) throws IOException {
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            // The response has already started; all that can be done is to cut it short
+            return;
+        }
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        Json.appendValue(json, message);
+        send(exchange, status, json.append('}'));
+    }
+
+    private static void requireMethod(HttpExchange exchange, String... allowed) {
+        String method = exchange.getRequestMethod();
+        for (String candidate : allowed) {
+            if (candidate.equals(method)) {
+                return;
+            }
+        }
+        exchange.getResponseHeaders().set("Allow", String.join(", ", allowed));
+        throw new HttpError(405, "Method " + method + " is not allowed here; use " + String.join(" or ", allowed) + ".");
+    }
+
+    private static int id(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not an ID: " + segment);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.put(name, value);
+        }
+        return parameters;
+    }
+
+    private static Map<String, Object> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "The request body is larger than " + MAX_BODY_BYTES + " bytes.");
+            }
+            return Json.parseObject(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String text(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (value == null) {
+            if (required) {
+                throw new IllegalArgumentException(name + " is required.");
+            }
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(name + " must be a string.");
+        }
+        return (String) value;
+    }
+
+    private static double number(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(name + (value == null && required ? " is required." : " must be a number."));
+        }
+        return ((Number) value).doubleValue();
+    }
+
+    private static long integer(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(name + (value == null && required ? " is required." : " must be an integer."));
+        }
+        return (Long) value;
+    }
+
+    private static Date date(Map<String, Object> body, String name) {
+        String value = text(body, name, false);
+        return value == null ? null : Date.valueOf(LocalDate.parse(value));
+    }
+
+    /**
+     * An error answered with a given HTTP status and message.
+     */
+    private static final class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The JsonReportSink class streams a text report as a JSON document, {"report": name, "lines": [...]}, with
+ * one array element per line of the report. Each line is written as soon as it is complete, so a large report
+ * is sent to the client while it is generated instead of being built in memory first.
+ */
+class JsonReportSink implements ReportSink {
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+    private final StringBuilder json = new StringBuilder(512);
+    private boolean firstLine = true;
+    private String error;
+
+    /**
+     * Constructs a JsonReportSink and writes the start of the document.
+     *
+     * @param writer The writer that receives the JSON; it is wrapped in a BufferedWriter and closed with the sink.
+     * @param report The name of the report, written as the report member.
+     * @throws IOException If the start of the document cannot be written.
+     */
+    JsonReportSink(Writer writer, String report) throws IOException {
+        this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+        json.append("{\"report\":");
+        Json.appendString(json, report);
+        json.append(",\"lines\":[");
+        this.writer.append(json);
+        json.setLength(0);
+    }
+
+    @Override
+    public void write(StringBuilder row) throws IOException {
+        append(row);
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        append(text);
+    }
+
+    private void append(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                writeLine();
+            } else if (c != '\r') {
+                line.append(c);
+            }
+        }
+    }
+
+    private void writeLine() throws IOException {
+        if (!firstLine) {
+            json.append(',');
+        }
+        firstLine = false;
+        Json.appendString(json, line);
+        writer.append(json);
+        json.setLength(0);
+        line.setLength(0);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    /**
+     * Marks the report as failed; the document then ends with an error member after the lines written so far,
+     * so that a client can tell a cut-short report from a complete one.
+     *
+     * @param message The reason the report failed.
+     */
+    void fail(String message) {
+        error = message;
+    }
+
+    /**
+     * Writes the last, unterminated line if there is one, ends the document and closes the writer.
+     */
+    @Override
+    public void close() throws IOException {
+        if (line.length() > 0) {
+            writeLine();
+        }
+        json.append(']');
+        if (error != null) {
+            json.append(",\"error\":");
+            Json.appendString(json, error);
+        }
+        writer.append(json.append("}\n"));
+        writer.close();
+    }
+}
@@ -3,49 +3,43 @@
  * It provides an interface to add, remove, search, and update employee details, manage divisions,
  * add new database columns, and generate various reports based on employment type and job divisions.
  *
- * The application uses JDBC to connect to a MySQL database, with operations encapsulated in various
- * utility classes for specific functionalities. User interactions are handled via console input.
+ * The application uses JDBC to connect to a MySQL database, or to an embedded H2 database in MySQL mode,
+ * as selected by DatabaseConfig, with operations encapsulated in various utility classes for specific
+ * functionalities. User interactions are handled via console input.
  */
+import java.io.IOException;
 import java.sql.*;
 import java.util.Scanner;
 
 public class Main {
-    /**
-     * Database URL for connecting to the MySQL database.
-     */
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/employeeData";
-
-    /**
-     * Database user for connection authentication.
-     */
-    private static final String USER = "root";
-
-    /**
-     * Database password for connection authentication.
-     */
-    private static final String PASSWORD = "@Godblessyou001";
-
     /**
      * The main method serves as the entry point of the application.
-     * It establishes a connection to the database and presents a menu to the user
-     * to perform various operations related to employee management.
+     * It opens a pool of connections to the database and presents a menu to the user
+     * to perform various operations related to employee management. When a command is given
+     * on the command line, that command is run instead of the menu and its status becomes the exit code.
+     * Startup is kept short by connecting and constructing operation classes only when they are first needed;
+     * run with -Dems.startupTimings=true to print how long each startup phase took.
      * 
-     * @param args The command line arguments (not used).
+     * @param args An optional batch command and its arguments; see BatchCommand.
      */
     public static void main(String[] args) {
-        try (Connection connection = DriverManager.getConnection(DB_URL, USER, PASSWORD);
+        StartupTimings timings = new StartupTimings();
+        DatabaseConfig config;
+        try {
+            config = DatabaseConfig.load();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Invalid database configuration: " + e.getMessage());
+            System.exit(BatchCommand.EXIT_USAGE);
+            return;
+        }
+        if (args.length > 0) {
+            System.exit(runBatchCommand(args, config, timings));
+        }
+        // No connection is opened and no cache is loaded until the chosen operation needs it
+        try (EmployeeDatabase myEmployeeDatabase = new EmployeeDatabase(config);
              Scanner scanner = new Scanner(System.in)) {
-            // Initialization of all operation classes related to employee management
-            EmployeeDatabase myEmployeeDatabase = new EmployeeDatabase(connection);
-            UpdateEmployee myUpdateEmployee = new UpdateEmployee(myEmployeeDatabase);
-            ReportGeneratorByJobTitleOrDivision myReportGeneratorByJobTitleOrDivision = new ReportGeneratorByJobTitleOrDivision(myEmployeeDatabase, scanner);
-            SearchEmployee mySearchEmployee = new SearchEmployee(myEmployeeDatabase);
-            DeleteEmployee myDeleteEmployee = new DeleteEmployee(myEmployeeDatabase);
-            AddEmployee myAddEmployee = new AddEmployee(myEmployeeDatabase);
-            AddSsnColumnInDatabase myAddSsnColumnInDatabase = new AddSsnColumnInDatabase(myEmployeeDatabase);
-            FullTimeEmployeeReport myFullTimeEmployeeReport = new FullTimeEmployeeReport(myEmployeeDatabase);
-            PartTimeEmployeeReport myPartTimeEmployeeReport = new PartTimeEmployeeReport(myEmployeeDatabase);
-            UpdateEmployeeDivision myUpdateEmployeeDivision = new UpdateEmployeeDivision(myEmployeeDatabase);
+            timings.mark("setup");
+            boolean firstPrompt = true;
 
             // Main loop for user interaction
             int choice;
@@ -62,54 +56,117 @@ public class Main {
                 System.out.println("8. Full Time Employee Information with past payroll history");
                 System.out.println("9. Part Time Employee Information with past payroll history");
                 System.out.println("10. Generate Reports by Division or Job Titles");
-                System.out.println("11. Exit");
+                System.out.println("11. Bulk Import Employees from CSV or JSON-lines File");
+                System.out.println("12. Show Cache and Query Statistics");
+                System.out.println("13. Bulk Reassign Employees to a Division");
+                System.out.println("14. List Employees");
+                System.out.println("15. Roll Back a Salary Raise");
+                System.out.println("16. Run Payroll for a Pay Date");
+                System.out.println("17. Exit");
                 System.out.print("Enter your choice: ");
+                if (firstPrompt) {
+                    timings.mark("first prompt");
+                    timings.print(myEmployeeDatabase);
+                    firstPrompt = false;
+                }
                 choice = scanner.nextInt();
                 scanner.nextLine(); 
                 System.out.print("\033[H\033[2J");
                 System.out.flush();
 
-                // Perform the selected operation
+                // Perform the selected operation; each operation class is constructed only when it is chosen
                 switch (choice) {
                     case 1:
-                        myAddEmployee.addEmployee(scanner);                        
+                        new AddEmployee(myEmployeeDatabase).addEmployee(scanner);
                         break;
                     case 2:
-                        myDeleteEmployee.deleteEmployee(scanner);
+                        new DeleteEmployee(myEmployeeDatabase).deleteEmployee(scanner);
                         break;
                     case 3:
-                        mySearchEmployee.searchEmployee(scanner);
+                        new SearchEmployee(myEmployeeDatabase).searchEmployee(scanner);
                         break;
                     case 4:
-                        myUpdateEmployee.updateEmployeeData(scanner);
+                        new UpdateEmployee(myEmployeeDatabase).updateEmployeeData(scanner);
                         break;
                     case 5:
-                        myUpdateEmployeeDivision.updateEmployeeDivision(scanner);
+                        new UpdateEmployeeDivision(myEmployeeDatabase).updateEmployeeDivision(scanner);
                         break;
                     case 6:
-                        myUpdateEmployee.updateEmployeeSalaryRange(scanner);
+                        new UpdateEmployee(myEmployeeDatabase).updateEmployeeSalaryRange(scanner);
                         break;
                     case 7:
-                        myAddSsnColumnInDatabase.addSSNColumn();
+                        new AddSsnColumnInDatabase(myEmployeeDatabase).addSSNColumn();
                         break;
                     case 8:
-                        myFullTimeEmployeeReport.generateEmployeeReport();
+                        new FullTimeEmployeeReport(myEmployeeDatabase).generateEmployeeReport();
                         break;
                     case 9:
-                        myPartTimeEmployeeReport.generateEmployeeReport();
+                        new PartTimeEmployeeReport(myEmployeeDatabase).generateEmployeeReport();
                         break;
                     case 10:
-                        myReportGeneratorByJobTitleOrDivision.showMenu();
+                        new ReportGeneratorByJobTitleOrDivision(myEmployeeDatabase, scanner).showMenu();
                         break;
                     case 11:
+                        new BulkEmployeeImport(myEmployeeDatabase).importEmployees(scanner);
+                        break;
+                    case 12:
+                        System.out.println(myEmployeeDatabase.getEmployeeCache().stats());
+                        System.out.printf("Statement cache: %d hits, %d misses%n",
+                                myEmployeeDatabase.getStatementCacheHits(), myEmployeeDatabase.getStatementCacheMisses());
+                        myEmployeeDatabase.getQueryMetrics().print(System.out);
+                        System.out.println(myEmployeeDatabase.getAuditLog().stats());
+                        break;
+                    case 13:
+                        new UpdateEmployeeDivision(myEmployeeDatabase).bulkReassignDivision(scanner);
+                        break;
+                    case 14:
+                        new SearchEmployee(myEmployeeDatabase).listEmployees(scanner);
+                        break;
+                    case 15:
+                        new UpdateEmployee(myEmployeeDatabase).rollbackSalaryRaise(scanner);
+                        break;
+                    case 16:
+                        new PayRun(myEmployeeDatabase).runPayroll(scanner);
+                        break;
+                    case 17:
                         System.out.println("\nGood Bye!\n");
                         break;
                     default:
-                        System.out.println("Invalid choice. Please enter a number between 1 and 6.");
+                        System.out.println("Invalid choice. Please enter a number between 1 and 17.");
                 }
-            } while (choice != 11);
+            } while (choice != 17);
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Runs one batch command without the menu.
+     *
+     * @param args The command and its arguments.
+     * @param config The database configuration.
+     * @param timings The startup timings, printed once the command has finished.
+     * @return The exit status of the command.
+     */
+    private static int runBatchCommand(String[] args, DatabaseConfig config, StartupTimings timings) {
+        BatchCommand command;
+        try {
+            command = BatchCommand.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            BatchCommand.printUsage(System.err);
+            return BatchCommand.EXIT_USAGE;
+        }
+        if (command.isHelp()) {
+            BatchCommand.printUsage(System.out);
+            return BatchCommand.EXIT_OK;
+        }
+        try (EmployeeDatabase myEmployeeDatabase = new EmployeeDatabase(config)) {
+            timings.mark("setup");
+            int status = command.run(myEmployeeDatabase);
+            timings.mark(command.name());
+            timings.print(myEmployeeDatabase);
+            return status;
+        }
+    }
 }
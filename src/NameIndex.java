@@ -0,0 +1,377 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The NameIndex class is an in-memory index over the first name, last name and email of every employee.
+ * It answers name searches with candidate employee IDs without scanning the employees table, which a
+ * leading-wildcard LIKE always does.
+ *
+ * Queries of three or more characters are answered from a trigram index: the candidates are the employees
+ * whose indexed values contain every trigram of the query, and each candidate is then checked for the whole
+ * query as a substring. Shorter queries cannot be split into trigrams; they are checked as a substring of
+ * every indexed value, which is a scan of memory rather than of the table. Matching is case-insensitive.
+ *
+ * The index is built from one scan of the employees table on first use and must be kept current by the
+ * write paths through put() and remove().
+ *
+ * When the employees table has a last_modified column, the index can instead start from the names saved in a
+ * SnapshotFile by an earlier run and fetch only the employees modified since the snapshot's watermark. The
+ * watermark is the database time when the snapshot's scan started, less WATERMARK_OVERLAP_MILLIS, so that
+ * changes made by transactions still open at that time are fetched again rather than missed. Deleted employees
+ * leave no modified row behind; they are found by comparing the number of employees with the size of the index.
+ */
+class NameIndex {
+    /**
+     * How far before the start of a scan the watermark of the resulting index is set.
+     */
+    static final long WATERMARK_OVERLAP_MILLIS = 10 * 60 * 1000;
+
+    private final EmployeeDatabase employeeDatabase;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The lower-cased indexed values of every employee, keyed by employee ID.
+     */
+    private final Map<Integer, String[]> values = new HashMap<>();
+    private final Map<String, Set<Integer>> trigrams = new HashMap<>();
+    private volatile boolean built;
+
+    /**
+     * The time up to which changes to the employees table are included, or null if the table has no
+     * last_modified column.
+     */
+    private Timestamp watermark;
+
+    /**
+     * Whether the index was built from a snapshot without finding any change, so saving it again gains nothing.
+     */
+    private boolean unchangedSinceSnapshot;
+
+    /**
+     * Constructs an empty NameIndex for the given database.
+     *
+     * @param employeeDatabase The database the index is built from.
+     */
+    NameIndex(EmployeeDatabase employeeDatabase) {
+        this.employeeDatabase = employeeDatabase;
+    }
+
+    /**
+     * Builds the index from a single scan of the employees table, replacing its previous contents.
+     *
+     * @throws SQLException If the employees cannot be read.
+     */
+    void build() throws SQLException {
+        lock.writeLock().lock();
+        try {
+            clear();
+            watermark = startWatermark();
+            unchangedSinceSnapshot = false;
+            try (PreparedStatement pstmt = employeeDatabase.prepareStreaming("SELECT empid, Fname, Lname, email FROM employees");
+                 ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    add(resultSet.getInt("empid"), resultSet.getString("Fname"),
+                            resultSet.getString("Lname"), resultSet.getString("email"));
+                }
+            }
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the index unless it has been built already, so that the table scan is paid by the first name
+     * search rather than at startup.
+     *
+     * @throws SQLException If the employees cannot be read.
+     */
+    void ensureBuilt() throws SQLException {
+        if (built) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                SnapshotFile snapshot = employeeDatabase.getSnapshot();
+                if (snapshot == null || snapshot.names == null || !restore(snapshot.names)) {
+                    build();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fills the index from the names of a snapshot and fetches the employees changed since. The caller holds
+     * the write lock.
+     *
+     * @return false if the snapshot cannot be used and the index has to be built from a full scan.
+     */
+    private boolean restore(SnapshotFile.Names names) throws SQLException {
+        Timestamp start = startWatermark();
+        if (start == null) {
+            return false;
+        }
+        clear();
+        for (int i = 0; i < names.empIds.length; i++) {
+            add(names.empIds[i], names.values[i * 3], names.values[i * 3 + 1], names.values[i * 3 + 2]);
+        }
+        int changed = 0;
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT empid, Fname, Lname, email FROM employees WHERE last_modified >= ?")) {
+            pstmt.setTimestamp(1, new Timestamp(names.watermarkMillis));
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    int empId = resultSet.getInt("empid");
+                    removeEntry(empId);
+                    add(empId, resultSet.getString("Fname"), resultSet.getString("Lname"), resultSet.getString("email"));
+                    changed++;
+                }
+            }
+        }
+        if (countEmployees() != values.size()) {
+            Set<Integer> present = new HashSet<>();
+            try (PreparedStatement pstmt = employeeDatabase.prepareStreaming("SELECT empid FROM employees");
+                 ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    present.add(resultSet.getInt(1));
+                }
+            }
+            for (Integer empId : new ArrayList<>(values.keySet())) {
+                if (!present.contains(empId)) {
+                    removeEntry(empId);
+                    changed++;
+                }
+            }
+            if (present.size() != values.size()) {
+                // Rows exist that are neither in the snapshot nor modified since; the watermark cannot be trusted
+                return false;
+            }
+        }
+        watermark = start;
+        unchangedSinceSnapshot = changed == 0;
+        built = true;
+        return true;
+    }
+
+    /**
+     * Returns the watermark of an index built by a scan starting now, or null if the employees table has no
+     * last_modified column.
+     */
+    private Timestamp startWatermark() throws SQLException {
+        if (!employeeDatabase.getSchemaCatalog().hasColumn("employees", "last_modified")) {
+            return null;
+        }
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT CURRENT_TIMESTAMP");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            resultSet.next();
+            return new Timestamp(resultSet.getTimestamp(1).getTime() - WATERMARK_OVERLAP_MILLIS);
+        }
+    }
+
+    private int countEmployees() throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT COUNT(*) FROM employees");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Returns the indexed names for saving in a snapshot file.
+     *
+     * @return The names and their watermark, or null if the index was not built, has no watermark, or was
+     *         restored from a snapshot without changes.
+     */
+    SnapshotFile.Names snapshot() {
+        lock.readLock().lock();
+        try {
+            if (!built || watermark == null || unchangedSinceSnapshot) {
+                return null;
+            }
+            int[] empIds = new int[values.size()];
+            String[] names = new String[empIds.length * 3];
+            int i = 0;
+            for (Map.Entry<Integer, String[]> entry : values.entrySet()) {
+                empIds[i] = entry.getKey();
+                System.arraycopy(entry.getValue(), 0, names, i * 3, 3);
+                i++;
+            }
+            return new SnapshotFile.Names(watermark.getTime(), empIds, names);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns whether the index has been built.
+     *
+     * @return true once build() has completed.
+     */
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Adds an employee to the index, replacing any values indexed for the same ID before.
+     *
+     * @param empId The employee ID.
+     * @param firstName The first name.
+     * @param lastName The last name.
+     * @param email The email address.
+     */
+    void put(int empId, String firstName, String lastName, String email) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(empId);
+            add(empId, firstName, lastName, email);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the email indexed for an employee, keeping the indexed names.
+     *
+     * @param empId The employee ID.
+     * @param email The new email address.
+     */
+    void updateEmail(int empId, String email) {
+        lock.writeLock().lock();
+        try {
+            String[] current = values.get(empId);
+            if (current != null) {
+                removeEntry(empId);
+                add(empId, current[0], current[1], email);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an employee from the index.
+     *
+     * @param empId The employee ID.
+     */
+    void remove(int empId) {
+        lock.writeLock().lock();
+        try {
+            removeEntry(empId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the IDs of the employees whose first name, last name or email matches the query, in ascending order.
+     *
+     * @param query The text to search for.
+     * @return The matching employee IDs.
+     */
+    List<Integer> search(String query) {
+        String needle = query.trim().toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            TreeSet<Integer> matches = new TreeSet<>();
+            if (needle.length() < 3) {
+                for (Map.Entry<Integer, String[]> entry : values.entrySet()) {
+                    for (String value : entry.getValue()) {
+                        if (value != null && value.contains(needle)) {
+                            matches.add(entry.getKey());
+                            break;
+                        }
+                    }
+                }
+                return new ArrayList<>(matches);
+            }
+
+            // Start from the rarest trigram and verify each candidate against the full query
+            Set<Integer> smallest = null;
+            for (int i = 0; i + 3 <= needle.length(); i++) {
+                Set<Integer> posting = trigrams.get(needle.substring(i, i + 3));
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                if (smallest == null || posting.size() < smallest.size()) {
+                    smallest = posting;
+                }
+            }
+            for (Integer empId : smallest) {
+                for (String value : values.get(empId)) {
+                    if (value != null && value.contains(needle)) {
+                        matches.add(empId);
+                        break;
+                    }
+                }
+            }
+            return new ArrayList<>(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Empties every structure. The caller holds the write lock.
+     */
+    private void clear() {
+        values.clear();
+        trigrams.clear();
+    }
+
+    /**
+     * Indexes the values of one employee. The caller holds the write lock.
+     */
+    private void add(int empId, String firstName, String lastName, String email) {
+        String[] indexed = { lower(firstName), lower(lastName), lower(email) };
+        values.put(empId, indexed);
+        for (String value : indexed) {
+            if (value == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                trigrams.computeIfAbsent(value.substring(i, i + 3), key -> new HashSet<>()).add(empId);
+            }
+        }
+    }
+
+    /**
+     * Removes the values of one employee from every structure. The caller holds the write lock.
+     */
+    private void removeEntry(int empId) {
+        String[] indexed = values.remove(empId);
+        if (indexed == null) {
+            return;
+        }
+        for (String value : indexed) {
+            if (value == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                String trigram = value.substring(i, i + 3);
+                Set<Integer> posting = trigrams.get(trigram);
+                if (posting != null && posting.remove(empId) && posting.isEmpty()) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static String lower(String value) {
+        return value == null || value.isEmpty() ? null : value.toLowerCase(Locale.ROOT);
+    }
+}
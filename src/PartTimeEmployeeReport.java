@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.sql.*;
 
 /**
@@ -16,13 +17,17 @@ public class PartTimeEmployeeReport extends EmployeeReport {
     }
 
     /**
-     * Generates and prints a detailed report of all part-time employees including their personal information
+     * Generates a detailed report of all part-time employees including their personal information
      * and detailed payroll data. It queries the database for employees who are in the part_time_payroll table,
-     * indicating part-time status, and prints out each individual's job title, email, and payroll details.
+     * indicating part-time status, and writes out each individual's job title, email, and payroll details.
+     * 
+     * @param sink The destination the report rows are written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the employees or their payroll cannot be read.
      */
     @Override
-    public void generateEmployeeReport() {
-        StringBuilder output = new StringBuilder("");
+    public void generateEmployeeReport(ReportSink sink) throws IOException, SQLException {
+        StringBuilder output = new StringBuilder(256);
         String sqlcommand = "SELECT e.Fname, e.Lname, e.email, jt.job_title, e.empid " +
                 "FROM employees e  " +
                 "JOIN employee_job_titles ejt ON e.empid = ejt.empid " +
@@ -30,23 +35,22 @@ public class PartTimeEmployeeReport extends EmployeeReport {
                 "WHERE e.empid IN (SELECT empid FROM part_time_payroll) " +
                 "ORDER BY e.empid ; ";
 
-        try {
-            PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(sqlcommand);
-            ResultSet myRS = employeeDatabase.executeQuery(pstmt);
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(sqlcommand);
+             ResultSet myRS = employeeDatabase.executeQuery(pstmt)) {
             if (!myRS.next()) {
-                System.out.println("No part-time employees found.");
+                sink.write("No part-time employees found.\n");
                 return;
             }
+            PartTimePayroll p1 = new PartTimePayroll(employeeDatabase);
             do {
-                output.append("Name= " + myRS.getString("e.Fname") + " " + myRS.getString("e.Lname") + "\t");
-                output.append("Title=" + myRS.getString("jt.job_title") + "     " + myRS.getString("e.email") + "\n");
-                System.out.print(output.toString());
+                output.append("Name= ").append(myRS.getString("e.Fname")).append(' ')
+                        .append(myRS.getString("e.Lname")).append('\t');
+                output.append("Title=").append(myRS.getString("jt.job_title")).append("     ")
+                        .append(myRS.getString("e.email")).append('\n');
+                sink.write(output);
                 output.setLength(0);
-                PartTimePayroll p1 = new PartTimePayroll(employeeDatabase);
-                output.append(p1.getPayByMonth(myRS.getInt("e.empid")));
+                p1.writePayByMonth(myRS.getInt("e.empid"), sink);
             } while (myRS.next());
-        } catch (SQLException e) {
-            System.out.println("ERROR " + e.getLocalizedMessage());
         }
     }
 }
@@ -67,41 +71,56 @@ class PartTimePayroll {
     }
 
     /**
-     * Retrieves and formats the payroll data for a specific part-time employee by their employee ID.
-     * The method queries the database for payroll details specifically for part-time workers and
-     * formats them in a tabulated string format.
+     * Retrieves and prints the payroll data for a specific part-time employee by their employee ID.
      * 
      * @param empID The employee ID for which payroll data is to be retrieved.
-     * @return A StringBuilder object containing formatted payroll data for the specified part-time employee.
+     * @return An empty StringBuilder; the payroll data is written to the console as it is read.
      */
     public StringBuilder getPayByMonth(int empID) {
-        StringBuilder output = new StringBuilder("");
+        try (ReportSink sink = ReportSink.console()) {
+            writePayByMonth(empID, sink);
+        } catch (IOException e) {
+            System.out.println("ERROR " + e.getLocalizedMessage());
+        }
+        return new StringBuilder("");
+    }
+
+    /**
+     * Retrieves the payroll data for a specific part-time employee by their employee ID and writes it to
+     * a sink in a tabulated format, one row at a time through a reusable row buffer.
+     * 
+     * @param empID The employee ID for which payroll data is to be retrieved.
+     * @param sink The destination the payroll rows are written to.
+     * @throws IOException If the payroll output cannot be written.
+     */
+    public void writePayByMonth(int empID, ReportSink sink) throws IOException {
+        StringBuilder output = new StringBuilder(256);
         String sqlcommand1 = "SELECT e.empid, p.pay_date, p.hours_worked, p.hourly_wage, " +
                 "p.fed_tax,p.fed_med,p.fed_SS,p.state_tax " +
                 "FROM employees e " +
                 "JOIN part_time_payroll p ON e.empid = p.empid " +
                 "WHERE e.empid = ? " +
                 "ORDER BY p.pay_date;";
-        try {
-            PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(sqlcommand1);
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(sqlcommand1)) {
             pstmt.setInt(1, empID);
-            ResultSet myRS1 = employeeDatabase.executeQuery(pstmt);
-            if (!myRS1.next()) {
-                return output; // If no payroll data found, return an empty StringBuilder
+            try (ResultSet myRS1 = employeeDatabase.executeQuery(pstmt)) {
+                if (!myRS1.next()) {
+                    return; // If no payroll data found, write nothing
+                }
+                sink.write("\tEMP ID\tPAY DATE\tHOURS WORKED\tHOURLY WAGE\tFederal\tFedMed\tFedSS\tState\n");
+                do {
+                    output.append('\t').append(myRS1.getInt("e.empid")).append('\t');
+                    output.append(myRS1.getDate("p.pay_date")).append('\t').append(myRS1.getDouble("p.hours_worked")).append('\t');
+                    output.append(myRS1.getDouble("p.hourly_wage")).append('\t').append(myRS1.getDouble("p.fed_tax")).append('\t');
+                    output.append(myRS1.getDouble("p.fed_med")).append('\t').append(myRS1.getDouble("p.fed_SS")).append('\t');
+                    output.append(myRS1.getDouble("p.state_tax")).append('\n');
+                    sink.write(output);
+                    output.setLength(0);
+                } while (myRS1.next());
+                sink.write("\n");
             }
-            output.append("\tEMP ID\tPAY DATE\tHOURS WORKED\tHOURLY WAGE\tFederal\tFedMed\tFedSS\tState\n");
-            do {
-                output.append("\t" + myRS1.getString("e.empid") + "\t");
-                output.append(myRS1.getDate("p.pay_date") + "\t" + myRS1.getDouble("p.hours_worked") + "\t");
-                output.append(myRS1.getDouble("p.hourly_wage") + "\t" + myRS1.getDouble("p.fed_tax") + "\t");
-                output.append(myRS1.getDouble("p.fed_med") + "\t" + myRS1.getDouble("p.fed_SS") + "\t");
-                output.append(myRS1.getDouble("p.state_tax") + "\n");
-            } while (myRS1.next());
-            System.out.println(output.toString());
-            output.setLength(0);
         } catch (SQLException e) {
-            System.out.println("ERROR " + e.getLocalizedMessage());
+            sink.write("ERROR " + e.getLocalizedMessage() + "\n");
         }
-        return output;
     }
 }
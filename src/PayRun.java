@@ -0,0 +1,480 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * The PayRun class produces the pay stubs of one pay date: a payroll row for every full-time employee and a
+ * part_time_payroll row for every part-time employee. Part-time employees are those with part_time_payroll
+ * history; everyone else is paid a biweekly share of their salary.
+ *
+ * A pay run reads its inputs into primitive arrays with two streaming queries, computes the pay and deduction
+ * columns in parallel, and writes all rows with batched inserts in one transaction. It is idempotent per pay
+ * date: employees who already have a row for the date are skipped, so running it twice pays nobody twice.
+ * With replace, the rows of the date are deleted and written again instead, e.g. after a salary correction;
+ * only the rows of the employees paid by the run are deleted, so a part-time employee missing from the
+ * timesheet keeps the stub they already have. The UNIQUE (empid, pay_date) keys of both payroll tables make
+ * a concurrent pay run of the same date fail and roll back instead of paying anyone twice. The payroll
+ * summary is brought up to date after the rows are committed.
+ */
+class PayRun {
+    /**
+     * Number of full-time pay periods per year.
+     */
+    static final int PAY_PERIODS_PER_YEAR = 26;
+
+    static final double FED_TAX_RATE = 0.32;
+    static final double FED_MED_RATE = 0.0145;
+    static final double FED_SS_RATE = 0.062;
+    static final double STATE_TAX_RATE = 0.12;
+    static final double RETIRE_401K_RATE = 0.004;
+
+    /**
+     * Flat health care deduction of a full-time pay period.
+     */
+    static final double HEALTH_CARE = 31.50;
+
+    /**
+     * Number of rows sent to the database per JDBC batch.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private final EmployeeDatabase employeeDatabase;
+
+    /**
+     * Constructs a PayRun.
+     *
+     * @param employeeDatabase The database holding the employees and payroll tables.
+     */
+    PayRun(EmployeeDatabase employeeDatabase) {
+        this.employeeDatabase = employeeDatabase;
+    }
+
+    /**
+     * Asks for a pay date and an optional timesheet of part-time hours and runs the payroll for that date.
+     *
+     * @param scanner The scanner object to receive the pay date and timesheet from the user.
+     */
+    void runPayroll(Scanner scanner) {
+        System.out.print("Enter pay date (YYYY-MM-DD): ");
+        String date = scanner.nextLine().trim();
+        System.out.print("Enter timesheet file of part-time hours (empid,hours), or leave empty to repeat the last hours: ");
+        String timesheet = scanner.nextLine().trim();
+        try {
+            Map<Integer, Double> hours = timesheet.isEmpty() ? null : readHours(Paths.get(timesheet));
+            run(LocalDate.parse(date), hours, false).print();
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid pay date: " + date);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (IOException e) {
+            System.out.println("Failed to read the timesheet: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to run the payroll: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the pay stubs of a pay date.
+     *
+     * @param payDate The pay date.
+     * @param hours The hours worked by each part-time employee by employee ID, or null to repeat the hours of
+     *              each one's most recent pay period. Part-time employees missing from the map are not paid.
+     * @param replace Whether to delete and rewrite rows that already exist for the pay date.
+     * @return The number of rows written and skipped and the gross pay.
+     * @throws SQLException If the pay run fails, for example because another pay run of the same date wrote
+     *         its rows first; nothing is written in that case.
+     */
+    Result run(LocalDate payDate, Map<Integer, Double> hours, boolean replace) throws SQLException {
+        long start = System.nanoTime();
+        Date date = Date.valueOf(payDate);
+        Result result = new Result();
+        FullTimePay fullTime;
+        PartTimePay partTime;
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Set<Integer> paid = replace ? Set.of() : paidEmployees(connection, date);
+                fullTime = loadFullTime(paid);
+                partTime = loadPartTime(paid, hours, result);
+                result.skipped = paid.size();
+                fullTime.compute();
+                partTime.compute();
+                if (replace) {
+                    result.replaced = deleteRows(connection, date, fullTime.empIds, fullTime.size)
+                            + deleteRows(connection, date, partTime.empIds, partTime.size);
+                }
+                writeFullTime(connection, date, fullTime);
+                writePartTime(connection, date, partTime);
+                connection.commit();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                connection.rollback();
+                throw new SQLException("Another pay run wrote pay stubs for " + payDate + " at the same time; "
+                        + "nothing was written. Run it again to pay the employees it left out.", e);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        result.fullTime = fullTime.size;
+        result.partTime = partTime.size;
+        result.grossPay = fullTime.totalEarnings() + partTime.totalGross();
+        if (result.replaced > 0) {
+            employeeDatabase.getPayrollSummary().rebuild();
+        } else {
+            // A concurrent pay run may have committed rows below the watermark, so check the count too
+            employeeDatabase.getPayrollSummary().reconcile();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Reads a timesheet of part-time hours: one "empid,hours" line per employee, optionally after a header line.
+     *
+     * @param file The timesheet file.
+     * @return The hours worked by employee ID.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is not an employee ID and a finite, non-negative number of hours.
+     */
+    static Map<Integer, Double> readHours(Path file) throws IOException {
+        Map<Integer, Double> hours = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || (lineNumber == 1 && !Character.isDigit(trimmed.charAt(0)))) {
+                    continue;
+                }
+                String[] fields = trimmed.split(",");
+                try {
+                    double worked = Double.parseDouble(fields[1].trim());
+                    if (fields.length != 2 || !Double.isFinite(worked) || worked < 0) {
+                        throw new NumberFormatException();
+                    }
+                    hours.put(Integer.parseInt(fields[0].trim()), worked);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IllegalArgumentException(file + " line " + lineNumber + ": expected empid,hours but got: " + line);
+                }
+            }
+        }
+        return hours;
+    }
+
+    /**
+     * Rounds an amount to cents.
+     */
+    static double cents(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+
+    /**
+     * Deletes the rows of the pay date of the given employees from both payroll tables, so that an employee
+     * who changed between full-time and part-time is not paid twice.
+     */
+    private static int deleteRows(Connection connection, Date date, int[] empIds, int count) throws SQLException {
+        int deleted = 0;
+        for (String table : new String[] { "payroll", "part_time_payroll" }) {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "DELETE FROM " + table + " WHERE pay_date = ? AND empid = ?")) {
+                for (int i = 0; i < count; i++) {
+                    pstmt.setDate(1, date);
+                    pstmt.setInt(2, empIds[i]);
+                    pstmt.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        deleted += sum(pstmt.executeBatch());
+                    }
+                }
+                deleted += sum(pstmt.executeBatch());
+            }
+        }
+        return deleted;
+    }
+
+    private static int sum(int[] updateCounts) {
+        int total = 0;
+        for (int count : updateCounts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the employees who already have a payroll or part_time_payroll row for the pay date.
+     */
+    private static Set<Integer> paidEmployees(Connection connection, Date date) throws SQLException {
+        Set<Integer> paid = new HashSet<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT empid FROM payroll WHERE pay_date = ? UNION SELECT empid FROM part_time_payroll WHERE pay_date = ?")) {
+            pstmt.setDate(1, date);
+            pstmt.setDate(2, date);
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                while (resultSet.next()) {
+                    paid.add(resultSet.getInt(1));
+                }
+            }
+        }
+        return paid;
+    }
+
+    /**
+     * Reads the ID and salary of every full-time employee not yet paid into primitive arrays.
+     */
+    private FullTimePay loadFullTime(Set<Integer> paid) throws SQLException {
+        FullTimePay pay = new FullTimePay();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT e.empid, e.Salary FROM employees e " +
+                "WHERE NOT EXISTS (SELECT 1 FROM part_time_payroll p WHERE p.empid = e.empid) ORDER BY e.empid");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            while (resultSet.next()) {
+                int empId = resultSet.getInt(1);
+                if (!paid.contains(empId)) {
+                    pay.add(empId, resultSet.getDouble(2));
+                }
+            }
+        }
+        return pay;
+    }
+
+    /**
+     * Reads the ID, hourly wage and hours of every part-time employee not yet paid into primitive arrays. The
+     * wage, and the hours unless a timesheet is given, come from the employee's most recent pay period. Timesheet
+     * lines for anyone who is not a part-time employee are counted as unknown.
+     */
+    private PartTimePay loadPartTime(Set<Integer> paid, Map<Integer, Double> hours, Result result) throws SQLException {
+        PartTimePay pay = new PartTimePay();
+        Set<Integer> partTimeIds = new HashSet<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT p.empid, p.hours_worked, p.hourly_wage FROM part_time_payroll p " +
+                "JOIN (SELECT empid, MAX(payID) AS payID FROM part_time_payroll GROUP BY empid) latest " +
+                "ON p.payID = latest.payID " +
+                "JOIN employees e ON e.empid = p.empid ORDER BY p.empid");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            while (resultSet.next()) {
+                int empId = resultSet.getInt(1);
+                partTimeIds.add(empId);
+                if (paid.contains(empId)) {
+                    continue;
+                }
+                Double worked = hours == null ? Double.valueOf(resultSet.getDouble(2)) : hours.get(empId);
+                if (worked == null) {
+                    result.missingHours++;
+                    continue;
+                }
+                pay.add(empId, worked, resultSet.getDouble(3));
+            }
+        }
+        if (hours != null) {
+            for (Integer empId : hours.keySet()) {
+                if (!partTimeIds.contains(empId)) {
+                    result.unknownHours++;
+                }
+            }
+        }
+        return pay;
+    }
+
+    private static void writeFullTime(Connection connection, Date date, FullTimePay pay) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO payroll (pay_date, earnings, fed_tax, fed_med, fed_SS, state_tax, retire_401k, " +
+                "health_care, health_cost, empid) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < pay.size; i++) {
+                pstmt.setDate(1, date);
+                pstmt.setDouble(2, pay.earnings[i]);
+                pstmt.setDouble(3, pay.fedTax[i]);
+                pstmt.setDouble(4, pay.fedMed[i]);
+                pstmt.setDouble(5, pay.fedSS[i]);
+                pstmt.setDouble(6, pay.stateTax[i]);
+                pstmt.setDouble(7, pay.retire401k[i]);
+                pstmt.setDouble(8, HEALTH_CARE);
+                pstmt.setDouble(9, 0);
+                pstmt.setInt(10, pay.empIds[i]);
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void writePartTime(Connection connection, Date date, PartTimePay pay) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT INTO part_time_payroll (pay_date, hours_worked, hourly_wage, fed_tax, fed_med, fed_SS, " +
+                "state_tax, empid) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < pay.size; i++) {
+                pstmt.setDate(1, date);
+                pstmt.setDouble(2, pay.hours[i]);
+                pstmt.setDouble(3, pay.wages[i]);
+                pstmt.setDouble(4, pay.fedTax[i]);
+                pstmt.setDouble(5, pay.fedMed[i]);
+                pstmt.setDouble(6, pay.fedSS[i]);
+                pstmt.setDouble(7, pay.stateTax[i]);
+                pstmt.setInt(8, pay.empIds[i]);
+                pstmt.addBatch();
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * The inputs and computed columns of the full-time pay stubs, one array element per employee.
+     */
+    private static final class FullTimePay {
+        int size;
+        int[] empIds = new int[1024];
+        double[] salaries = new double[1024];
+        double[] earnings;
+        double[] fedTax;
+        double[] fedMed;
+        double[] fedSS;
+        double[] stateTax;
+        double[] retire401k;
+
+        void add(int empId, double salary) {
+            if (size == empIds.length) {
+                empIds = Arrays.copyOf(empIds, size * 2);
+                salaries = Arrays.copyOf(salaries, size * 2);
+            }
+            empIds[size] = empId;
+            salaries[size] = salary;
+            size++;
+        }
+
+        /**
+         * Computes the pay columns in parallel; every element is independent of the others.
+         */
+        void compute() {
+            earnings = new double[size];
+            fedTax = new double[size];
+            fedMed = new double[size];
+            fedSS = new double[size];
+            stateTax = new double[size];
+            retire401k = new double[size];
+            IntStream.range(0, size).parallel().forEach(i -> {
+                double gross = cents(salaries[i] / PAY_PERIODS_PER_YEAR);
+                earnings[i] = gross;
+                fedTax[i] = cents(gross * FED_TAX_RATE);
+                fedMed[i] = cents(gross * FED_MED_RATE);
+                fedSS[i] = cents(gross * FED_SS_RATE);
+                stateTax[i] = cents(gross * STATE_TAX_RATE);
+                retire401k[i] = cents(gross * RETIRE_401K_RATE);
+            });
+        }
+
+        double totalEarnings() {
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += earnings[i];
+            }
+            return total;
+        }
+    }
+
+    /**
+     * The inputs and computed columns of the part-time pay stubs, one array element per employee.
+     */
+    private static final class PartTimePay {
+        int size;
+        int[] empIds = new int[256];
+        double[] hours = new double[256];
+        double[] wages = new double[256];
+        double[] gross;
+        double[] fedTax;
+        double[] fedMed;
+        double[] fedSS;
+        double[] stateTax;
+
+        void add(int empId, double worked, double wage) {
+            if (size == empIds.length) {
+                empIds = Arrays.copyOf(empIds, size * 2);
+                hours = Arrays.copyOf(hours, size * 2);
+                wages = Arrays.copyOf(wages, size * 2);
+            }
+            empIds[size] = empId;
+            hours[size] = worked;
+            wages[size] = wage;
+            size++;
+        }
+
+        /**
+         * Computes the pay columns in parallel; every element is independent of the others.
+         */
+        void compute() {
+            gross = new double[size];
+            fedTax = new double[size];
+            fedMed = new double[size];
+            fedSS = new double[size];
+            stateTax = new double[size];
+            IntStream.range(0, size).parallel().forEach(i -> {
+                double pay = hours[i] * wages[i];
+                gross[i] = cents(pay);
+                fedTax[i] = cents(pay * FED_TAX_RATE);
+                fedMed[i] = cents(pay * FED_MED_RATE);
+                fedSS[i] = cents(pay * FED_SS_RATE);
+                stateTax[i] = cents(pay * STATE_TAX_RATE);
+            });
+        }
+
+        double totalGross() {
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += gross[i];
+            }
+            return total;
+        }
+    }
+
+    /**
+     * The outcome of a pay run.
+     */
+    static final class Result {
+        int fullTime;
+        int partTime;
+        int skipped;
+        int missingHours;
+        int unknownHours;
+        int replaced;
+        double grossPay;
+        long elapsedNanos;
+
+        /**
+         * Prints the outcome on standard output.
+         */
+        void print() {
+            System.out.printf("Pay run complete in %d ms: %d full-time and %d part-time pay stubs, gross pay $%.2f.%n",
+                    elapsedNanos / 1_000_000, fullTime, partTime, grossPay);
+            if (replaced > 0) {
+                System.out.printf("%d existing rows for the pay date were replaced.%n", replaced);
+            }
+            if (skipped > 0) {
+                System.out.printf("%d employees already paid on this date were skipped.%n", skipped);
+            }
+            if (missingHours > 0) {
+                System.out.printf("%d part-time employees had no hours in the timesheet and were not paid; "
+                    + "any stubs they already had for the date were kept.%n", missingHours);
+            }
+            if (unknownHours > 0) {
+                System.out.printf("%d timesheet lines were for employees who are not part-time employees "
+                    + "and were ignored.%n", unknownHours);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.sql.*;
+
+/**
+ * The Payroll class handles the retrieval and formatting of payroll data for individual employees.
+ */
+class Payroll {
+    /**
+     * Column header line printed above an employee's payroll rows.
+     */
+    static final String HEADER = "\tEMP ID\tPAY DATE\tGROSS\tFederal\tFedMed\tFedSS\tState\t401K\tHealthCare\tHealthCost\n";
+
+    private final EmployeeDatabase employeeDatabase;
+
+    /**
+     * Constructs a Payroll object with a given EmployeeDatabase instance.
+     * 
+     * @param employeeDatabase The database handler for employee data.
+     */
+    public Payroll(EmployeeDatabase employeeDatabase) {
+        this.employeeDatabase = employeeDatabase;
+    }
+
+    /**
+     * Retrieves and prints the payroll data for a specific employee by their employee ID.
+     * 
+     * @param empID The employee ID for which payroll data is to be retrieved.
+     * @return An empty StringBuilder; the payroll data is written to the console as it is read.
+     */
+    public StringBuilder getPayByMonth(int empID) {
+        try (ReportSink sink = ReportSink.console()) {
+            writePayByMonth(empID, sink);
+        } catch (IOException e) {
+            System.out.println("ERROR " + e.getLocalizedMessage());
+        }
+        return new StringBuilder("");
+    }
+
+    /**
+     * Retrieves the payroll data for a specific employee by their employee ID and writes it to a sink
+     * in a tabulated format, one row at a time through a reusable row buffer.
+     * 
+     * @param empID The employee ID for which payroll data is to be retrieved.
+     * @param sink The destination the payroll rows are written to.
+     * @throws IOException If the payroll output cannot be written.
+     */
+    public void writePayByMonth(int empID, ReportSink sink) throws IOException {
+        StringBuilder output = new StringBuilder(256);
+        String sqlcommand1 = "SELECT e.empid, p.pay_date, p.earnings, p.fed_tax, " +
+        "p.fed_med, p.fed_SS, p.state_tax, p.retire_401k, p.health_care, p.health_cost " + 
+        "FROM employees e " +
+        "JOIN payroll p ON e.empid = p.empid " +
+        "WHERE e.empid = ? " +
+        "ORDER BY p.pay_date;";
+
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(sqlcommand1)) {
+            pstmt.setInt(1, empID);
+            try (ResultSet myRS1 = employeeDatabase.executeQuery(pstmt)) {
+                if (!myRS1.next()) {
+                    return; // If no payroll data found, write nothing
+                }
+                sink.write(HEADER);
+                do {
+                    appendPayRow(output, myRS1);
+                    sink.write(output);
+                    output.setLength(0);
+                } while (myRS1.next());
+                sink.write("\n");
+            }
+        } catch (SQLException e) {
+            sink.write("ERROR " + e.getLocalizedMessage() + "\n");
+        }
+    }
+
+    /**
+     * Appends one formatted payroll line for the current row of a result set. The result set must expose the
+     * employee ID as {@code e.empid} and the payroll columns under the {@code p} alias.
+     * 
+     * @param output The buffer the formatted line is appended to.
+     * @param myRS1 The result set positioned on the payroll row to format.
+     * @throws SQLException If a column cannot be read from the result set.
+     */
+    static void appendPayRow(StringBuilder output, ResultSet myRS1) throws SQLException {
+        output.append('\t').append(myRS1.getInt("e.empid")).append('\t');
+        output.append(myRS1.getDate("p.pay_date")).append('\t').append(myRS1.getDouble("p.earnings")).append('\t');
+        output.append(myRS1.getDouble("p.fed_tax")).append('\t').append(myRS1.getDouble("p.fed_med")).append('\t');
+        output.append(myRS1.getDouble("p.fed_SS")).append('\t').append(myRS1.getDouble("p.state_tax")).append('\t');
+        output.append(myRS1.getDouble("p.retire_401K")).append('\t').append(myRS1.getDouble("p.health_care")).append("\t\t");
+        output.append(myRS1.getDouble("p.health_cost")).append('\n');
+    }
+
+    /**
+     * Appends a full-time pay stub in the same layout as a payroll row read from the database.
+     * 
+     * @param output The buffer to append to.
+     * @param stub The pay stub.
+     */
+    static void appendPayRow(StringBuilder output, EmployeeService.PayStub stub) {
+        output.append('\t').append(stub.empId).append('\t');
+        output.append(stub.payDate).append('\t').append(stub.earnings).append('\t');
+        output.append(stub.fedTax).append('\t').append(stub.fedMed).append('\t');
+        output.append(stub.fedSS).append('\t').append(stub.stateTax).append('\t');
+        output.append(stub.retire401k).append('\t').append(stub.healthCare).append("\t\t");
+        output.append(stub.healthCost).append('\n');
+    }
+}
@@ -0,0 +1,698 @@
+import java.io.PrintStream;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The PayrollAnalytics class is an in-memory, column-oriented snapshot of the payroll history for ad-hoc
+ * analytic queries. Every full-time and part-time pay stub becomes one position in a set of primitive arrays:
+ * the employee ID, the pay date as an epoch day and month, the money columns as whole cents, and the job title
+ * and division of the employee as codes into small dictionaries. A query such as "gross pay by division in
+ * 2024" is then a single loop over a few arrays, run in parallel slices for large snapshots, and never
+ * touches the database.
+ *
+ * A snapshot reflects the tables at the time load() was called; EmployeeDatabase keeps one and reloads it on
+ * request. An employee with several job titles is counted under the lowest job title ID, so that every pay
+ * stub is counted exactly once. Stubs without a pay date only appear in queries without a date range, under
+ * the month and year "unknown".
+ *
+ * The pay stubs of a snapshot can be saved in a SnapshotFile and used as the base of the next load. Payroll
+ * rows are only ever appended with a higher payID, so a snapshot records the highest payID and the number of
+ * rows at or below it of both payroll tables as its watermark; a load from a base only fetches the rows above
+ * the base's watermark, provided the number of rows at or below it is unchanged. A rewritten pay date, or a row
+ * committed late with a lower payID, changes that number and makes the load read everything again. Rows
+ * updated in place are not detected, as with PayrollSummary; reload() reads everything.
+ */
+final class PayrollAnalytics {
+    /**
+     * Number of pay stubs each parallel slice of a query aggregates; smaller snapshots are aggregated in one loop.
+     */
+    private static final int SLICE_SIZE = 1 << 16;
+
+    /**
+     * The epoch day and month stored for a pay stub without a pay date.
+     */
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The title or division code of a pay stub whose employee has none.
+     */
+    private static final int NO_CODE = -1;
+
+    /**
+     * What a query groups the pay stubs by.
+     */
+    enum Dimension {
+        JOB_TITLE, DIVISION, YEAR, MONTH, EMPLOYMENT_TYPE
+    }
+
+    /**
+     * What a query adds up per group.
+     */
+    enum Measure {
+        STUBS(false), GROSS(true), NET(true), FED_TAX(true), FED_MED(true), FED_SS(true), STATE_TAX(true),
+        RETIRE_401K(true), HEALTH_CARE(true);
+
+        final boolean money;
+
+        Measure(boolean money) {
+            this.money = money;
+        }
+    }
+
+    private final int size;
+    private final int[] empIds;
+    private final int[] payDays;
+    private final int[] payMonths;
+    private final boolean[] partTime;
+    private final long[] gross;
+    private final long[] net;
+    private final long[] fedTax;
+    private final long[] fedMed;
+    private final long[] fedSS;
+    private final long[] stateTax;
+    private final long[] retire401k;
+    private final long[] healthCare;
+    private final int[] titleCodes;
+    private final int[] divisionCodes;
+    private final int[] titleIds;
+    private final String[] titleNames;
+    private final int[] divisionIds;
+    private final String[] divisionNames;
+    private final int minMonth;
+    private final int maxMonth;
+    private final Watermark watermark;
+    private final boolean fromBase;
+    private final long fetchedStubs;
+    private final long loadNanos;
+
+    private PayrollAnalytics(Builder builder, Watermark watermark, boolean fromBase, long fetchedStubs,
+                             long loadNanos) {
+        Stubs stubs = builder.stubs;
+        this.size = stubs.size;
+        this.empIds = Arrays.copyOf(stubs.empIds, size);
+        this.payDays = Arrays.copyOf(stubs.payDays, size);
+        this.partTime = Arrays.copyOf(stubs.partTime, size);
+        this.gross = Arrays.copyOf(stubs.gross, size);
+        this.fedTax = Arrays.copyOf(stubs.fedTax, size);
+        this.fedMed = Arrays.copyOf(stubs.fedMed, size);
+        this.fedSS = Arrays.copyOf(stubs.fedSS, size);
+        this.stateTax = Arrays.copyOf(stubs.stateTax, size);
+        this.retire401k = Arrays.copyOf(stubs.retire401k, size);
+        this.healthCare = Arrays.copyOf(stubs.healthCare, size);
+        this.watermark = watermark;
+        this.fromBase = fromBase;
+        this.fetchedStubs = fetchedStubs;
+        this.titleIds = builder.titleIds;
+        this.titleNames = builder.titleNames;
+        this.divisionIds = builder.divisionIds;
+        this.divisionNames = builder.divisionNames;
+        this.loadNanos = loadNanos;
+
+        payMonths = new int[size];
+        net = new long[size];
+        titleCodes = new int[size];
+        divisionCodes = new int[size];
+        int lowest = Integer.MAX_VALUE;
+        int highest = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            if (payDays[i] == NO_DATE) {
+                payMonths[i] = NO_DATE;
+            } else {
+                LocalDate date = LocalDate.ofEpochDay(payDays[i]);
+                payMonths[i] = date.getYear() * 12 + date.getMonthValue() - 1;
+                lowest = Math.min(lowest, payMonths[i]);
+                highest = Math.max(highest, payMonths[i]);
+            }
+            net[i] = gross[i] - fedTax[i] - fedMed[i] - fedSS[i] - stateTax[i] - retire401k[i] - healthCare[i];
+            titleCodes[i] = builder.titleOfEmployee.getOrDefault(empIds[i], NO_CODE);
+            divisionCodes[i] = builder.divisionOfEmployee.getOrDefault(empIds[i], NO_CODE);
+        }
+        this.minMonth = lowest == Integer.MAX_VALUE ? 0 : lowest;
+        this.maxMonth = highest == Integer.MIN_VALUE ? -1 : highest;
+    }
+
+    /**
+     * Loads the payroll, part-time payroll, job title and division tables into a new snapshot. Every table is
+     * read with one streaming query.
+     *
+     * @param employeeDatabase The database to load from.
+     * @return The snapshot.
+     * @throws SQLException If a table cannot be read.
+     */
+    static PayrollAnalytics load(EmployeeDatabase employeeDatabase) throws SQLException {
+        return load(employeeDatabase, null, null);
+    }
+
+    /**
+     * Loads a new snapshot starting from the pay stubs of an earlier one. If the payroll rows the base was
+     * loaded from are unchanged, only the rows added since are fetched; otherwise the base is discarded and
+     * every row is read. The job title and division tables and the assignments of employees to them are small
+     * and carry no change marker, so they are always read in full.
+     *
+     * @param employeeDatabase The database to load from.
+     * @param baseStubs The pay stubs of the earlier snapshot, or null to read every row; they are extended in place.
+     * @param baseWatermark The watermark of the earlier snapshot, or null.
+     * @return The snapshot.
+     * @throws SQLException If a table cannot be read.
+     */
+    static PayrollAnalytics load(EmployeeDatabase employeeDatabase, Stubs baseStubs, Watermark baseWatermark)
+            throws SQLException {
+        long start = System.nanoTime();
+        Builder builder = new Builder();
+        Map<Integer, Integer> titleCodes = new HashMap<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT job_title_id, job_title FROM job_titles ORDER BY job_title_id");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            Dictionary dictionary = new Dictionary();
+            while (resultSet.next()) {
+                titleCodes.put(resultSet.getInt(1), dictionary.add(resultSet.getInt(1), resultSet.getString(2)));
+            }
+            builder.titleIds = dictionary.ids();
+            builder.titleNames = dictionary.names();
+        }
+        Map<Integer, Integer> divisionCodes = new HashMap<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming("SELECT ID, Name FROM division ORDER BY ID");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            Dictionary dictionary = new Dictionary();
+            while (resultSet.next()) {
+                divisionCodes.put(resultSet.getInt(1), dictionary.add(resultSet.getInt(1), resultSet.getString(2)));
+            }
+            builder.divisionIds = dictionary.ids();
+            builder.divisionNames = dictionary.names();
+        }
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT empid, MIN(job_title_id) FROM employee_job_titles GROUP BY empid");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            while (resultSet.next()) {
+                Integer code = titleCodes.get(resultSet.getInt(2));
+                if (code != null) {
+                    builder.titleOfEmployee.put(resultSet.getInt(1), code);
+                }
+            }
+        }
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming("SELECT empid, div_ID FROM employee_division");
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            while (resultSet.next()) {
+                Integer code = divisionCodes.get(resultSet.getInt(2));
+                if (code != null) {
+                    builder.divisionOfEmployee.put(resultSet.getInt(1), code);
+                }
+            }
+        }
+
+        // Rows above the highest payID seen now are left for the next load, so none is counted twice
+        int payrollMaxId = maxPayId(employeeDatabase, "payroll");
+        int partTimeMaxId = maxPayId(employeeDatabase, "part_time_payroll");
+        boolean fromBase = baseStubs != null && baseWatermark != null
+                && baseWatermark.payrollMaxId <= payrollMaxId && baseWatermark.partTimeMaxId <= partTimeMaxId
+                && rowsUpTo(employeeDatabase, "payroll", baseWatermark.payrollMaxId) == baseWatermark.payrollRows
+                && rowsUpTo(employeeDatabase, "part_time_payroll", baseWatermark.partTimeMaxId) == baseWatermark.partTimeRows;
+        builder.stubs = fromBase ? baseStubs : new Stubs();
+        long payrollRows = fromBase ? baseWatermark.payrollRows : 0;
+        long partTimeRows = fromBase ? baseWatermark.partTimeRows : 0;
+        long fetched = 0;
+
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT empid, pay_date, earnings, fed_tax, fed_med, fed_SS, state_tax, retire_401k, health_care " +
+                "FROM payroll WHERE payID > ? AND payID <= ?")) {
+            pstmt.setInt(1, fromBase ? baseWatermark.payrollMaxId : Integer.MIN_VALUE);
+            pstmt.setInt(2, payrollMaxId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    builder.stubs.add(resultSet.getInt(1), resultSet.getDate(2), false, cents(resultSet.getDouble(3)),
+                            cents(resultSet.getDouble(4)), cents(resultSet.getDouble(5)), cents(resultSet.getDouble(6)),
+                            cents(resultSet.getDouble(7)), cents(resultSet.getDouble(8)), cents(resultSet.getDouble(9)));
+                    payrollRows++;
+                    fetched++;
+                }
+            }
+        }
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT empid, pay_date, hours_worked, hourly_wage, fed_tax, fed_med, fed_SS, state_tax " +
+                "FROM part_time_payroll WHERE payID > ? AND payID <= ?")) {
+            pstmt.setInt(1, fromBase ? baseWatermark.partTimeMaxId : Integer.MIN_VALUE);
+            pstmt.setInt(2, partTimeMaxId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    builder.stubs.add(resultSet.getInt(1), resultSet.getDate(2), true,
+                            cents(resultSet.getDouble(3) * resultSet.getDouble(4)), cents(resultSet.getDouble(5)),
+                            cents(resultSet.getDouble(6)), cents(resultSet.getDouble(7)), cents(resultSet.getDouble(8)),
+                            0, 0);
+                    partTimeRows++;
+                    fetched++;
+                }
+            }
+        }
+        Watermark watermark = new Watermark(payrollMaxId, payrollRows, partTimeMaxId, partTimeRows);
+        return new PayrollAnalytics(builder, watermark, fromBase, fetched, System.nanoTime() - start);
+    }
+
+    private static int maxPayId(EmployeeDatabase employeeDatabase, String table) throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT COALESCE(MAX(payID), 0) FROM " + table);
+             ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private static long rowsUpTo(EmployeeDatabase employeeDatabase, String table, int payId) throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT COUNT(*) FROM " + table + " WHERE payID <= ?")) {
+            pstmt.setInt(1, payId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the pay stubs of the snapshot, for saving them as the base of a later load. The arrays are
+     * shared with the snapshot; since they are exactly full, adding a stub copies them first.
+     *
+     * @return The pay stubs.
+     */
+    Stubs stubs() {
+        return new Stubs(size, empIds, payDays, partTime, gross, fedTax, fedMed, fedSS, stateTax, retire401k, healthCare);
+    }
+
+    /**
+     * Returns the payroll rows the snapshot was loaded from.
+     *
+     * @return The watermark.
+     */
+    Watermark watermark() {
+        return watermark;
+    }
+
+    /**
+     * Returns whether the snapshot holds rows its base did not, so that it is worth saving.
+     *
+     * @return false if the snapshot was loaded from a base and no rows were added.
+     */
+    boolean hasNewStubs() {
+        return !fromBase || fetchedStubs > 0;
+    }
+
+    /**
+     * Returns the number of pay stubs in the snapshot.
+     *
+     * @return The number of pay stubs.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns how long loading the snapshot took.
+     *
+     * @return The load time in nanoseconds.
+     */
+    long loadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * Adds up a measure per group over the pay stubs that pass a filter.
+     *
+     * @param dimension What to group the pay stubs by.
+     * @param measure What to add up.
+     * @param filter Which pay stubs to include.
+     * @return The total of every group that has at least one pay stub.
+     */
+    Totals totals(Dimension dimension, Measure measure, Filter filter) {
+        long start = System.nanoTime();
+        int[] keys = groupKeys(dimension);
+        int groups = groupCount(dimension);
+        long[] values = measureColumn(measure);
+        int titleCode = filter.jobTitleId == null ? NO_CODE : codeOf(titleIds, filter.jobTitleId);
+        int divisionCode = filter.divisionId == null ? NO_CODE : codeOf(divisionIds, filter.divisionId);
+        if ((filter.jobTitleId != null && titleCode == NO_CODE) || (filter.divisionId != null && divisionCode == NO_CODE)) {
+            return new Totals(dimension, measure, new String[0], new long[0], new long[0], System.nanoTime() - start);
+        }
+        int fromDay = filter.from == null ? Integer.MIN_VALUE : (int) filter.from.toEpochDay();
+        int toDay = filter.to == null ? Integer.MAX_VALUE : (int) filter.to.toEpochDay();
+        boolean dated = filter.from != null || filter.to != null;
+
+        int slices = (size + SLICE_SIZE - 1) / SLICE_SIZE;
+        long[][] partials = IntStream.range(0, slices).parallel().mapToObj(slice -> {
+            long[] sums = new long[groups * 2];
+            int end = Math.min(size, (slice + 1) * SLICE_SIZE);
+            for (int i = slice * SLICE_SIZE; i < end; i++) {
+                if (dated && (payDays[i] == NO_DATE || payDays[i] < fromDay || payDays[i] > toDay)) {
+                    continue;
+                }
+                if ((filter.partTime != null && partTime[i] != filter.partTime)
+                        || (titleCode != NO_CODE && titleCodes[i] != titleCode)
+                        || (divisionCode != NO_CODE && divisionCodes[i] != divisionCode)) {
+                    continue;
+                }
+                int key = keys == null ? (partTime[i] ? 1 : 0) : keys[i];
+                int group = key == NO_CODE || key == NO_DATE ? groups - 1 : groupIndex(dimension, key);
+                sums[group * 2] += values == null ? 1 : values[i];
+                sums[group * 2 + 1]++;
+            }
+            return sums;
+        }).toArray(long[][]::new);
+
+        long[] sums = new long[groups * 2];
+        for (long[] partial : partials) {
+            for (int g = 0; g < sums.length; g++) {
+                sums[g] += partial[g];
+            }
+        }
+        int present = 0;
+        for (int g = 0; g < groups; g++) {
+            if (sums[g * 2 + 1] > 0) {
+                present++;
+            }
+        }
+        String[] labels = new String[present];
+        long[] totals = new long[present];
+        long[] stubs = new long[present];
+        int row = 0;
+        for (int g = 0; g < groups; g++) {
+            if (sums[g * 2 + 1] > 0) {
+                labels[row] = label(dimension, g, groups);
+                totals[row] = sums[g * 2];
+                stubs[row] = sums[g * 2 + 1];
+                row++;
+            }
+        }
+        return new Totals(dimension, measure, labels, totals, stubs, System.nanoTime() - start);
+    }
+
+    private int[] groupKeys(Dimension dimension) {
+        switch (dimension) {
+            case JOB_TITLE:
+                return titleCodes;
+            case DIVISION:
+                return divisionCodes;
+            case YEAR:
+            case MONTH:
+                return payMonths;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns the number of groups of a dimension, including a last group for stubs without a title,
+     * division or date.
+     */
+    private int groupCount(Dimension dimension) {
+        switch (dimension) {
+            case JOB_TITLE:
+                return titleIds.length + 1;
+            case DIVISION:
+                return divisionIds.length + 1;
+            case YEAR:
+                return Math.max(0, maxMonth / 12 - minMonth / 12 + 1) + 1;
+            case MONTH:
+                return Math.max(0, maxMonth - minMonth + 1) + 1;
+            default:
+                return 3;
+        }
+    }
+
+    private int groupIndex(Dimension dimension, int key) {
+        switch (dimension) {
+            case YEAR:
+                return key / 12 - minMonth / 12;
+            case MONTH:
+                return key - minMonth;
+            default:
+                return key;
+        }
+    }
+
+    private String label(Dimension dimension, int group, int groups) {
+        boolean none = group == groups - 1;
+        switch (dimension) {
+            case JOB_TITLE:
+                return none ? "(no job title)" : titleIds[group] + " " + titleNames[group];
+            case DIVISION:
+                return none ? "(no division)" : divisionIds[group] + " " + divisionNames[group];
+            case YEAR:
+                return none ? "(unknown)" : String.valueOf(minMonth / 12 + group);
+            case MONTH:
+                if (none) {
+                    return "(unknown)";
+                }
+                int month = minMonth + group;
+                return String.format("%d-%02d", month / 12, month % 12 + 1);
+            default:
+                return group == 0 ? "full-time" : "part-time";
+        }
+    }
+
+    private long[] measureColumn(Measure measure) {
+        switch (measure) {
+            case GROSS:
+                return gross;
+            case NET:
+                return net;
+            case FED_TAX:
+                return fedTax;
+            case FED_MED:
+                return fedMed;
+            case FED_SS:
+                return fedSS;
+            case STATE_TAX:
+                return stateTax;
+            case RETIRE_401K:
+                return retire401k;
+            case HEALTH_CARE:
+                return healthCare;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses the name of a dimension as typed by a user, e.g. "title", "division", "month".
+     *
+     * @param name The name, case-insensitive; "title" and "type" are short for job-title and employment-type.
+     * @return The dimension.
+     * @throws IllegalArgumentException If the name is not a dimension.
+     */
+    static Dimension dimension(String name) {
+        String key = name.trim().toUpperCase().replace('-', '_');
+        if (key.equals("TITLE")) {
+            return Dimension.JOB_TITLE;
+        }
+        if (key.equals("TYPE")) {
+            return Dimension.EMPLOYMENT_TYPE;
+        }
+        try {
+            return Dimension.valueOf(key);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown grouping: " + name + " (title, division, year, month or type)");
+        }
+    }
+
+    /**
+     * Parses the name of a measure as typed by a user, e.g. "gross", "net", "fed-tax".
+     *
+     * @param name The name, case-insensitive.
+     * @return The measure.
+     * @throws IllegalArgumentException If the name is not a measure.
+     */
+    static Measure measure(String name) {
+        try {
+            return Measure.valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown measure: " + name + " (stubs, gross, net, fed-tax, fed-med, "
+                    + "fed-ss, state-tax, retire-401k or health-care)");
+        }
+    }
+
+    private static int codeOf(int[] ids, int id) {
+        for (int code = 0; code < ids.length; code++) {
+            if (ids[code] == id) {
+                return code;
+            }
+        }
+        return NO_CODE;
+    }
+
+    private static long cents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * Which pay stubs a query includes; a null field does not restrict the query.
+     */
+    static final class Filter {
+        LocalDate from;
+        LocalDate to;
+        Integer jobTitleId;
+        Integer divisionId;
+        Boolean partTime;
+    }
+
+    /**
+     * The result of a query: one label, total and number of pay stubs per group, in group order.
+     */
+    static final class Totals {
+        final Dimension dimension;
+        final Measure measure;
+        final String[] labels;
+        final long[] totals;
+        final long[] stubs;
+        final long queryNanos;
+
+        Totals(Dimension dimension, Measure measure, String[] labels, long[] totals, long[] stubs, long queryNanos) {
+            this.dimension = dimension;
+            this.measure = measure;
+            this.labels = labels;
+            this.totals = totals;
+            this.stubs = stubs;
+            this.queryNanos = queryNanos;
+        }
+
+        /**
+         * Prints the totals as a table followed by the grand total.
+         *
+         * @param out The stream to print to.
+         */
+        void print(PrintStream out) {
+            String heading = measure.name().toLowerCase().replace('_', ' ');
+            out.printf("%-40s %10s %16s%n", dimension.name().toLowerCase().replace('_', ' '), "Stubs", heading);
+            long grandTotal = 0;
+            long grandStubs = 0;
+            for (int i = 0; i < labels.length; i++) {
+                out.printf("%-40s %10d %16s%n", labels[i], stubs[i], format(totals[i]));
+                grandTotal += totals[i];
+                grandStubs += stubs[i];
+            }
+            out.printf("%-40s %10d %16s%n", "Total", grandStubs, format(grandTotal));
+            out.printf("(%.2f ms)%n", queryNanos / 1_000_000.0);
+        }
+
+        private String format(long value) {
+            return measure.money ? String.format("%.2f", value / 100.0) : String.valueOf(value);
+        }
+    }
+
+    /**
+     * Assigns dense codes to the IDs of a dictionary-encoded column, in the order they are added.
+     */
+    private static final class Dictionary {
+        private int[] ids = new int[16];
+        private String[] names = new String[16];
+        private int size;
+
+        int add(int id, String name) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                names = Arrays.copyOf(names, size * 2);
+            }
+            ids[size] = id;
+            names[size] = name;
+            return size++;
+        }
+
+        int[] ids() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        String[] names() {
+            return Arrays.copyOf(names, size);
+        }
+    }
+
+    /**
+     * The highest payID of both payroll tables that a snapshot includes, and the number of rows at or below it.
+     */
+    static final class Watermark {
+        final int payrollMaxId;
+        final long payrollRows;
+        final int partTimeMaxId;
+        final long partTimeRows;
+
+        Watermark(int payrollMaxId, long payrollRows, int partTimeMaxId, long partTimeRows) {
+            this.payrollMaxId = payrollMaxId;
+            this.payrollRows = payrollRows;
+            this.partTimeMaxId = partTimeMaxId;
+            this.partTimeRows = partTimeRows;
+        }
+    }
+
+    /**
+     * The job title and division dictionaries and assignments that a snapshot is loaded with.
+     */
+    private static final class Builder {
+        Stubs stubs;
+        int[] titleIds;
+        String[] titleNames;
+        int[] divisionIds;
+        String[] divisionNames;
+        final Map<Integer, Integer> titleOfEmployee = new HashMap<>();
+        final Map<Integer, Integer> divisionOfEmployee = new HashMap<>();
+    }
+
+    /**
+     * Growable pay stub columns that a snapshot is loaded into; the first size positions of each array are used.
+     */
+    static final class Stubs {
+        int size;
+        int[] empIds = new int[1024];
+        int[] payDays = new int[1024];
+        boolean[] partTime = new boolean[1024];
+        long[] gross = new long[1024];
+        long[] fedTax = new long[1024];
+        long[] fedMed = new long[1024];
+        long[] fedSS = new long[1024];
+        long[] stateTax = new long[1024];
+        long[] retire401k = new long[1024];
+        long[] healthCare = new long[1024];
+
+        Stubs() {
+        }
+
+        Stubs(int size, int[] empIds, int[] payDays, boolean[] partTime, long[] gross, long[] fedTax, long[] fedMed,
+              long[] fedSS, long[] stateTax, long[] retire401k, long[] healthCare) {
+            this.size = size;
+            this.empIds = empIds;
+            this.payDays = payDays;
+            this.partTime = partTime;
+            this.gross = gross;
+            this.fedTax = fedTax;
+            this.fedMed = fedMed;
+            this.fedSS = fedSS;
+            this.stateTax = stateTax;
+            this.retire401k = retire401k;
+            this.healthCare = healthCare;
+        }
+
+        void add(int empId, Date payDate, boolean partTimeStub, long grossPay, long fedTaxPaid, long fedMedPaid,
+                 long fedSSPaid, long stateTaxPaid, long retire401kPaid, long healthCarePaid) {
+            if (size == empIds.length) {
+                int capacity = Math.max(1024, size * 2);
+                empIds = Arrays.copyOf(empIds, capacity);
+                payDays = Arrays.copyOf(payDays, capacity);
+                partTime = Arrays.copyOf(partTime, capacity);
+                gross = Arrays.copyOf(gross, capacity);
+                fedTax = Arrays.copyOf(fedTax, capacity);
+                fedMed = Arrays.copyOf(fedMed, capacity);
+                fedSS = Arrays.copyOf(fedSS, capacity);
+                stateTax = Arrays.copyOf(stateTax, capacity);
+                retire401k = Arrays.copyOf(retire401k, capacity);
+                healthCare = Arrays.copyOf(healthCare, capacity);
+            }
+            empIds[size] = empId;
+            payDays[size] = payDate == null ? NO_DATE : (int) payDate.toLocalDate().toEpochDay();
+            partTime[size] = partTimeStub;
+            gross[size] = grossPay;
+            fedTax[size] = fedTaxPaid;
+            fedMed[size] = fedMedPaid;
+            fedSS[size] = fedSSPaid;
+            stateTax[size] = stateTaxPaid;
+            retire401k[size] = retire401kPaid;
+            healthCare[size] = healthCarePaid;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+import java.sql.*;
+
+/**
+ * The PayrollSummary class maintains the payroll_totals table: per-employee totals of the payroll columns for
+ * every month, every year and all time, so that total-pay reports read one row per employee instead of
+ * summing the whole payroll history. A row with pay_month 0 holds the total of a year and a row with
+ * pay_year 0 and pay_month 0 holds the all-time total.
+ *
+ * The totals are maintained incrementally. A watermark records the highest payID already added and the number
+ * of payroll rows at or below it; refresh() adds the payroll rows above it with one grouped upsert per
+ * granularity, so its cost depends on the number of new rows rather than on the length of the history. The
+ * reports call it before reading the totals. A row committed late with a lower payID, or a deleted row, is not
+ * seen by refresh(); it changes the number of rows at or below the watermark, which reconcile() counts before
+ * adding new rows, rebuilding every total if the count differs. Counting reads the whole history, so it is
+ * left to the code that writes payroll rows: the pay run calls reconcile() after committing, or rebuild()
+ * after replacing stubs, and the payroll-totals batch command runs either on demand. Payroll rows that are
+ * updated in place after they were summed are not detected, as with PayrollAnalytics; rebuild() recomputes
+ * every total from scratch.
+ */
+class PayrollSummary {
+    /**
+     * The pay_month of a row that holds the total of a whole year.
+     */
+    static final int ALL_MONTHS = 0;
+
+    /**
+     * The pay_year of a row that holds the all-time total.
+     */
+    static final int ALL_YEARS = 0;
+
+    private static final String[] DDL = {
+        "CREATE TABLE IF NOT EXISTS payroll_totals (" +
+                "empid INT NOT NULL, pay_year INT NOT NULL, pay_month INT NOT NULL, pay_periods INT NOT NULL, " +
+                "earnings DOUBLE NOT NULL, fed_tax DOUBLE NOT NULL, fed_med DOUBLE NOT NULL, fed_SS DOUBLE NOT NULL, " +
+                "state_tax DOUBLE NOT NULL, retire_401k DOUBLE NOT NULL, health_care DOUBLE NOT NULL, " +
+                "health_cost DOUBLE NOT NULL, PRIMARY KEY (empid, pay_year, pay_month))",
+        "CREATE TABLE IF NOT EXISTS payroll_totals_watermark (id INT PRIMARY KEY, last_pay_id INT NOT NULL, " +
+                "summed_rows BIGINT NOT NULL DEFAULT 0)",
+    };
+
+    /**
+     * Adds the row count to a watermark table created before it was recorded. The existing watermark then
+     * counts no rows, so the next reconcile rebuilds the totals.
+     */
+    private static final String ADD_SUMMED_ROWS =
+            "ALTER TABLE payroll_totals_watermark ADD COLUMN summed_rows BIGINT NOT NULL DEFAULT 0";
+
+    /**
+     * The summed payroll columns, in the order they appear in payroll_totals after pay_periods.
+     */
+    private static final String[] COLUMNS = {
+        "earnings", "fed_tax", "fed_med", "fed_SS", "state_tax", "retire_401k", "health_care", "health_cost",
+    };
+
+    /**
+     * Upserts adding the payroll rows with lastPayID < payID <= highPayID to the month, year and all-time totals.
+     */
+    private static final String[] UPSERTS = {
+        upsert("YEAR(pay_date)", "MONTH(pay_date)", " AND pay_date IS NOT NULL", "empid, YEAR(pay_date), MONTH(pay_date)"),
+        upsert("YEAR(pay_date)", String.valueOf(ALL_MONTHS), " AND pay_date IS NOT NULL", "empid, YEAR(pay_date)"),
+        upsert(String.valueOf(ALL_YEARS), String.valueOf(ALL_MONTHS), "", "empid"),
+    };
+
+    private final EmployeeDatabase employeeDatabase;
+
+    /**
+     * Constructs a PayrollSummary for the given database.
+     *
+     * @param employeeDatabase The database holding the payroll and payroll_totals tables.
+     */
+    PayrollSummary(EmployeeDatabase employeeDatabase) {
+        this.employeeDatabase = employeeDatabase;
+    }
+
+    /**
+     * Adds the payroll rows above the watermark to the totals, creating the summary tables first if they do not
+     * exist. The totals and the watermark are updated in one transaction, and the watermark row is locked so
+     * that concurrent refreshes do not add the same rows twice.
+     *
+     * @return The number of payroll rows added to the totals.
+     * @throws SQLException If the totals cannot be updated; nothing is changed in that case.
+     */
+    int refresh() throws SQLException {
+        createTables();
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int added = addNewRows(connection, lockWatermark(connection));
+                connection.commit();
+                return added;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Refreshes the totals after checking that the payroll rows at or below the watermark are still the ones
+     * summed, and rebuilds them if rows were committed late below it or deleted. The check counts the whole
+     * payroll history, so this is for code that writes payroll rows rather than for every report.
+     *
+     * @return true if the totals were rebuilt, false if only new rows were added.
+     * @throws SQLException If the totals cannot be updated; nothing is changed in that case.
+     */
+    boolean reconcile() throws SQLException {
+        createTables();
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                Watermark watermark = lockWatermark(connection);
+                boolean stale = rowsUpTo(connection, watermark.lastPayId) != watermark.summedRows;
+                if (stale) {
+                    rebuild(connection);
+                } else {
+                    addNewRows(connection, watermark);
+                }
+                connection.commit();
+                return stale;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Recomputes every total from the full payroll history, for use after payroll rows were changed or deleted.
+     *
+     * @throws SQLException If the totals cannot be rebuilt; nothing is changed in that case.
+     */
+    void rebuild() throws SQLException {
+        createTables();
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                lockWatermark(connection);
+                rebuild(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Empties the totals and adds every payroll row. The caller owns the transaction and has locked the watermark.
+     */
+    private int rebuild(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DELETE FROM payroll_totals");
+            stmt.executeUpdate("UPDATE payroll_totals_watermark SET last_pay_id = 0, summed_rows = 0 WHERE id = 1");
+        }
+        return addNewRows(connection, new Watermark(0, 0));
+    }
+
+    /**
+     * Adds the payroll rows above the watermark and advances it. The caller owns the transaction and has locked
+     * the watermark.
+     */
+    private int addNewRows(Connection connection, Watermark watermark) throws SQLException {
+        int lastPayId = watermark.lastPayId;
+        int highPayId;
+        int added;
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT MAX(payID) AS high, COUNT(*) AS added FROM payroll WHERE payID > ?")) {
+            pstmt.setInt(1, lastPayId);
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                resultSet.next();
+                highPayId = resultSet.getInt("high");
+                added = resultSet.getInt("added");
+            }
+        }
+        if (added == 0) {
+            return 0;
+        }
+        for (String upsert : UPSERTS) {
+            try (PreparedStatement pstmt = connection.prepareStatement(upsert)) {
+                pstmt.setInt(1, lastPayId);
+                pstmt.setInt(2, highPayId);
+                pstmt.executeUpdate();
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "UPDATE payroll_totals_watermark SET last_pay_id = ?, summed_rows = ? WHERE id = 1")) {
+            pstmt.setInt(1, highPayId);
+            pstmt.setLong(2, watermark.summedRows + added);
+            pstmt.executeUpdate();
+        }
+        return added;
+    }
+
+    /**
+     * Locks the watermark row for the rest of the transaction and returns it, creating it on first use.
+     */
+    private Watermark lockWatermark(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet resultSet = stmt.executeQuery(
+                    "SELECT last_pay_id, summed_rows FROM payroll_totals_watermark WHERE id = 1 FOR UPDATE")) {
+                if (resultSet.next()) {
+                    return new Watermark(resultSet.getInt("last_pay_id"), resultSet.getLong("summed_rows"));
+                }
+            }
+            stmt.executeUpdate("INSERT INTO payroll_totals_watermark (id, last_pay_id, summed_rows) VALUES (1, 0, 0)");
+            return new Watermark(0, 0);
+        }
+    }
+
+    /**
+     * Counts the payroll rows at or below a payID.
+     */
+    private static long rowsUpTo(Connection connection, int payId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT COUNT(*) FROM payroll WHERE payID <= ?")) {
+            pstmt.setInt(1, payId);
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Creates the summary tables if the schema catalog does not list them.
+     */
+    private void createTables() throws SQLException {
+        SchemaCatalog schemaCatalog = employeeDatabase.getSchemaCatalog();
+        boolean hasWatermark = schemaCatalog.hasTable("payroll_totals_watermark");
+        if (schemaCatalog.hasTable("payroll_totals") && hasWatermark
+                && schemaCatalog.hasColumn("payroll_totals_watermark", "summed_rows")) {
+            return;
+        }
+        try (Connection connection = employeeDatabase.getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (String ddl : DDL) {
+                stmt.execute(ddl);
+            }
+            if (hasWatermark && !schemaCatalog.hasColumn("payroll_totals_watermark", "summed_rows")) {
+                stmt.execute(ADD_SUMMED_ROWS);
+            }
+        } finally {
+            schemaCatalog.invalidate();
+        }
+    }
+
+    /**
+     * Builds the upsert that adds a range of payroll rows to the totals of one granularity. The grouped rows
+     * are selected in a derived table so that the update clause refers only to payroll_totals. Rows without
+     * a pay date only count towards the all-time total.
+     */
+    private static String upsert(String year, String month, String filter, String groupBy) {
+        StringBuilder sql = new StringBuilder("INSERT INTO payroll_totals (empid, pay_year, pay_month, pay_periods");
+        for (String column : COLUMNS) {
+            sql.append(", ").append(column);
+        }
+        sql.append(") SELECT * FROM (SELECT empid, ").append(year).append(" AS y, ").append(month)
+                .append(" AS m, COUNT(*) AS n");
+        for (String column : COLUMNS) {
+            sql.append(", COALESCE(SUM(").append(column).append("), 0) AS s_").append(column);
+        }
+        sql.append(" FROM payroll WHERE payID > ? AND payID <= ?").append(filter).append(" GROUP BY ").append(groupBy).append(") AS delta")
+                .append(" ON DUPLICATE KEY UPDATE pay_periods = payroll_totals.pay_periods + VALUES(pay_periods)");
+        for (String column : COLUMNS) {
+            sql.append(", ").append(column).append(" = payroll_totals.").append(column)
+                    .append(" + VALUES(").append(column).append(')');
+        }
+        return sql.toString();
+    }
+
+    /**
+     * The highest payID added to the totals and the number of payroll rows at or below it that were summed.
+     */
+    private static final class Watermark {
+        final int lastPayId;
+        final long summedRows;
+
+        Watermark(int lastPayId, long summedRows) {
+            this.lastPayId = lastPayId;
+            this.summedRows = summedRows;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * The QueryMetrics class measures every SQL statement executed on the connections of a pool. The pool's
+ * statement proxies route each execute call through execute(), so statements are measured whether they
+ * were prepared through EmployeeDatabase or directly on a leased connection. For each distinct SQL text it
+ * keeps the number of calls and errors, the rows returned or affected, and a latency histogram from which
+ * p50, p99 and the maximum are read.
+ *
+ * The latency of a query is the time until executeQuery() returns, which for a streamed result set is the
+ * time to its first fetch; the rows of a query are counted as the result set is read and added when it is
+ * closed. Executions that take at least the slow query threshold are logged to standard error with their
+ * bound parameters. Parameters of statements that mention the SSN column, and any value shaped like an SSN,
+ * are redacted from the log.
+ */
+class QueryMetrics implements QueryMetricsMBean {
+    /**
+     * Maximum number of distinct SQL texts measured separately; executions of further statements are
+     * counted together so that generated SQL cannot grow the table without bound.
+     */
+    static final int MAX_STATEMENTS = 1000;
+
+    /**
+     * The SQL text under which statements beyond MAX_STATEMENTS are counted.
+     */
+    static final String OTHER_STATEMENTS = "(other statements)";
+
+    private static final Pattern SSN_COLUMN = Pattern.compile("(?i)\\bSSN\\b");
+    private static final Pattern SSN_VALUE = Pattern.compile("\\d{3}-?\\d{2}-?\\d{4}");
+
+    private final ConcurrentHashMap<String, StatementStats> statements = new ConcurrentHashMap<>();
+    private final AtomicLong slowQueries = new AtomicLong();
+    private volatile long slowQueryNanos;
+
+    /**
+     * Constructs a QueryMetrics.
+     *
+     * @param slowQueryMillis The execution time from which a statement is logged as slow, 0 to log none.
+     */
+    QueryMetrics(long slowQueryMillis) {
+        setSlowQueryThresholdMillis(slowQueryMillis);
+    }
+
+    /**
+     * Invokes an execute method on a statement and records its latency, rows and outcome under the given SQL
+     * text. A returned result set is wrapped so that its rows are counted as it is read.
+     *
+     * @param sql The SQL text the execution is recorded under.
+     * @param statement The statement to invoke the method on.
+     * @param method The execute method.
+     * @param args The arguments of the method.
+     * @param parameters The bound parameters by index, for the slow query log; may be null.
+     * @return The result of the method.
+     * @throws Throwable Whatever the method throws.
+     */
+    Object execute(String sql, Statement statement, Method method, Object[] args, Object[] parameters) throws Throwable {
+        StatementStats stats = stats(sql);
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            stats.errors.increment();
+            record(stats, System.nanoTime() - start, 0, parameters);
+            throw e.getCause();
+        }
+        if (result instanceof ResultSet) {
+            record(stats, System.nanoTime() - start, 0, parameters);
+            return new CountingResultSet((ResultSet) result, stats).proxy;
+        }
+        record(stats, System.nanoTime() - start, rowsAffected(result), parameters);
+        return result;
+    }
+
+    /**
+     * Wraps a statement that did not come from a statement cache, such as one from createStatement(), so that
+     * its executions are measured too.
+     *
+     * @param statement The statement to wrap.
+     * @param sql The SQL text of a prepared statement, or null for a plain statement whose SQL is passed to
+     *            each execute call.
+     * @return A proxy implementing the same JDBC statement interface.
+     */
+    Statement instrument(Statement statement, String sql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] { type },
+                new InstrumentedStatement(statement, sql));
+    }
+
+    /**
+     * Records a parameter bound by a set method of a prepared statement, for the slow query log.
+     *
+     * @param parameters The parameters bound so far by index, or null if none.
+     * @param method The method called on the statement.
+     * @param args The arguments of the method.
+     * @return The parameters, grown if needed; cleared by clearParameters().
+     */
+    static Object[] bind(Object[] parameters, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("clearParameters")) {
+            if (parameters != null) {
+                Arrays.fill(parameters, null);
+            }
+        } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+            int index = (Integer) args[0];
+            if (index >= 1) {
+                if (parameters == null || parameters.length < index) {
+                    parameters = Arrays.copyOf(parameters == null ? new Object[0] : parameters, Math.max(index, 8));
+                }
+                parameters[index - 1] = args[1];
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns the measurements of every statement, the one with the most total execution time first.
+     *
+     * @return A snapshot of the statement measurements.
+     */
+    List<StatementSnapshot> snapshot() {
+        List<StatementSnapshot> snapshot = new ArrayList<>(statements.size());
+        for (StatementStats stats : statements.values()) {
+            snapshot.add(stats.snapshot());
+        }
+        snapshot.sort(Comparator.comparingLong((StatementSnapshot s) -> s.totalNanos).reversed());
+        return snapshot;
+    }
+
+    /**
+     * Prints the measurements of every statement as a table, the one with the most total execution time first.
+     *
+     * @param out The stream to print to.
+     */
+    void print(PrintStream out) {
+        List<StatementSnapshot> snapshot = snapshot();
+        if (snapshot.isEmpty()) {
+            out.println("No SQL statements have been executed.");
+            return;
+        }
+        out.printf("%8s %6s %9s %10s %10s %10s %10s  %s%n",
+                "Calls", "Errors", "Rows", "Total ms", "p50 ms", "p99 ms", "Max ms", "Statement");
+        for (StatementSnapshot s : snapshot) {
+            out.printf("%8d %6d %9d %10.1f %10.2f %10.2f %10.2f  %s%n", s.calls, s.errors, s.rows, millis(s.totalNanos),
+                    millis(s.p50Nanos), millis(s.p99Nanos), millis(s.maxNanos), abbreviate(s.sql, 80));
+        }
+        out.printf("%d slow statements logged (threshold %d ms).%n", slowQueries.get(), getSlowQueryThresholdMillis());
+    }
+
+    @Override
+    public int getStatementCount() {
+        return statements.size();
+    }
+
+    @Override
+    public long getTotalCalls() {
+        long calls = 0;
+        for (StatementStats stats : statements.values()) {
+            calls += stats.calls.sum();
+        }
+        return calls;
+    }
+
+    @Override
+    public long getTotalErrors() {
+        long errors = 0;
+        for (StatementStats stats : statements.values()) {
+            errors += stats.errors.sum();
+        }
+        return errors;
+    }
+
+    @Override
+    public long getSlowQueries() {
+        return slowQueries.get();
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative: " + millis);
+        }
+        slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public String[] getStatements() {
+        List<StatementSnapshot> snapshot = snapshot();
+        String[] lines = new String[snapshot.size()];
+        for (int i = 0; i < lines.length; i++) {
+            StatementSnapshot s = snapshot.get(i);
+            lines[i] = String.format("calls=%d errors=%d rows=%d total=%.1fms p50=%.2fms p99=%.2fms max=%.2fms %s",
+                    s.calls, s.errors, s.rows, millis(s.totalNanos), millis(s.p50Nanos), millis(s.p99Nanos),
+                    millis(s.maxNanos), abbreviate(s.sql, 200));
+        }
+        return lines;
+    }
+
+    @Override
+    public void reset() {
+        statements.clear();
+        slowQueries.set(0);
+    }
+
+    private StatementStats stats(String sql) {
+        StatementStats stats = statements.get(sql);
+        if (stats == null) {
+            String key = statements.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS;
+            stats = statements.computeIfAbsent(key, StatementStats::new);
+        }
+        return stats;
+    }
+
+    private void record(StatementStats stats, long nanos, long rows, Object[] parameters) {
+        stats.calls.increment();
+        stats.rows.add(rows);
+        stats.totalNanos.add(nanos);
+        stats.latency.record(nanos);
+        long threshold = slowQueryNanos;
+        if (threshold > 0 && nanos >= threshold) {
+            slowQueries.incrementAndGet();
+            System.err.printf("Slow SQL statement (%.1f ms): %s%s%n", millis(nanos), abbreviate(stats.sql, 500),
+                    describeParameters(stats.sql, parameters));
+        }
+    }
+
+    /**
+     * Formats the bound parameters for the slow query log, redacting anything that may be an SSN.
+     */
+    private static String describeParameters(String sql, Object[] parameters) {
+        if (parameters == null) {
+            return "";
+        }
+        int count = parameters.length;
+        while (count > 0 && parameters[count - 1] == null) {
+            count--;
+        }
+        if (count == 0) {
+            return "";
+        }
+        boolean ssnStatement = SSN_COLUMN.matcher(sql).find();
+        StringBuilder text = new StringBuilder(" with parameters [");
+        for (int i = 0; i < count; i++) {
+            Object parameter = parameters[i];
+            if (i > 0) {
+                text.append(", ");
+            }
+            if (parameter instanceof String) {
+                if (ssnStatement || SSN_VALUE.matcher((String) parameter).matches()) {
+                    text.append("<redacted>");
+                } else {
+                    text.append('\'').append(abbreviate((String) parameter, 100)).append('\'');
+                }
+            } else {
+                text.append(parameter);
+            }
+        }
+        return text.append(']').toString();
+    }
+
+    /**
+     * Returns the rows affected according to the result of an execute method.
+     */
+    private static long rowsAffected(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return Math.max(0, ((Number) result).longValue());
+        }
+        long rows = 0;
+        if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        } else if (result instanceof long[]) {
+            for (long count : (long[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+        }
+        return rows;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Collapses the whitespace of SQL text and cuts it to a maximum length.
+     */
+    private static String abbreviate(String text, int maxLength) {
+        String collapsed = text.replaceAll("\\s+", " ").trim();
+        return collapsed.length() <= maxLength ? collapsed : collapsed.substring(0, maxLength - 3) + "...";
+    }
+
+    /**
+     * The measurements of one SQL text.
+     */
+    private static final class StatementStats {
+        final String sql;
+        final LongAdder calls = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        StatementSnapshot snapshot() {
+            return new StatementSnapshot(sql, calls.sum(), errors.sum(), rows.sum(), totalNanos.sum(),
+                    latency.percentile(0.50), latency.percentile(0.99), latency.max());
+        }
+    }
+
+    /**
+     * A latency histogram with logarithmic buckets that are each split into eight linear sub-buckets, in the
+     * style of an HDR histogram: every recorded value lands in a bucket at most 12.5% wider than the value,
+     * so percentiles are accurate to that precision from nanoseconds to hours in under 500 counters.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        /**
+         * Adds a value to the histogram.
+         *
+         * @param value The value, e.g. a latency in nanoseconds; negative values count as 0.
+         */
+        void record(long value) {
+            long v = Math.max(0, value);
+            counts.incrementAndGet(index(v));
+            max.accumulate(v);
+        }
+
+        /**
+         * Returns the value below or at which the given fraction of the recorded values lie.
+         *
+         * @param fraction The fraction, e.g. 0.99 for the 99th percentile.
+         * @return The highest value of the bucket holding the percentile, at most the maximum; 0 if empty.
+         */
+        long percentile(double fraction) {
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts.get(i);
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(fraction * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(upperBound(i), max());
+                }
+            }
+            return max();
+        }
+
+        /**
+         * Returns the largest recorded value.
+         *
+         * @return The maximum, or 0 if nothing was recorded.
+         */
+        long max() {
+            return max.get();
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = index % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+
+    /**
+     * The measurements of one SQL text at a point in time.
+     */
+    static final class StatementSnapshot {
+        final String sql;
+        final long calls;
+        final long errors;
+        final long rows;
+        final long totalNanos;
+        final long p50Nanos;
+        final long p99Nanos;
+        final long maxNanos;
+
+        StatementSnapshot(String sql, long calls, long errors, long rows, long totalNanos,
+                          long p50Nanos, long p99Nanos, long maxNanos) {
+            this.sql = sql;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+    }
+
+    /**
+     * A result set proxy that counts the rows read and adds them to the statement's measurements when closed.
+     */
+    private static final class CountingResultSet implements InvocationHandler {
+        final ResultSet resultSet;
+        final StatementStats stats;
+        final ResultSet proxy;
+        private long rows;
+        private boolean closed;
+
+        CountingResultSet(ResultSet resultSet, StatementStats stats) {
+            this.resultSet = resultSet;
+            this.stats = stats;
+            this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    if (resultSet.next()) {
+                        rows++;
+                        return true;
+                    }
+                    return false;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        stats.rows.add(rows);
+                    }
+                    resultSet.close();
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    try {
+                        return method.invoke(resultSet, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * A proxy for a statement that is not cached, measuring its executions and remembering its parameters.
+     */
+    private final class InstrumentedStatement implements InvocationHandler {
+        final Statement statement;
+        final String sql;
+        private Object[] parameters;
+
+        InstrumentedStatement(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String text = sql != null ? sql
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : "(statement batch)";
+                return execute(text, statement, method, args, parameters);
+            }
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    parameters = bind(parameters, method, args);
+                    try {
+                        return method.invoke(statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
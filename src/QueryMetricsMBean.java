@@ -0,0 +1,60 @@
+/**
+ * The management interface of QueryMetrics, registered with the platform MBean server as
+ * EmployeeManagement:type=QueryMetrics once the database is first used, so that jconsole or any other JMX
+ * client can watch which statements are hot in a running application.
+ */
+public interface QueryMetricsMBean {
+    /**
+     * Returns the number of distinct SQL statements measured.
+     *
+     * @return The number of statements.
+     */
+    int getStatementCount();
+
+    /**
+     * Returns how many statement executions were measured.
+     *
+     * @return The number of executions of all statements.
+     */
+    long getTotalCalls();
+
+    /**
+     * Returns how many statement executions failed.
+     *
+     * @return The number of failed executions of all statements.
+     */
+    long getTotalErrors();
+
+    /**
+     * Returns how many executions took at least the slow query threshold.
+     *
+     * @return The number of slow executions.
+     */
+    long getSlowQueries();
+
+    /**
+     * Returns the execution time from which a statement is logged as slow.
+     *
+     * @return The threshold in milliseconds, 0 if slow queries are not logged.
+     */
+    long getSlowQueryThresholdMillis();
+
+    /**
+     * Changes the execution time from which a statement is logged as slow.
+     *
+     * @param millis The threshold in milliseconds, 0 to stop logging slow queries.
+     */
+    void setSlowQueryThresholdMillis(long millis);
+
+    /**
+     * Returns one line per statement with its calls, errors, rows and p50/p99/max latency, busiest first.
+     *
+     * @return The statement lines.
+     */
+    String[] getStatements();
+
+    /**
+     * Discards everything measured so far.
+     */
+    void reset();
+}
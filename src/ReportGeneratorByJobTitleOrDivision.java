@@ -1,12 +1,33 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
 import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 /**
  * The ReportGeneratorByJobTitleOrDivision class provides an interface to generate reports based on job titles or divisions.
- * It enables users to choose between generating detailed reports on total pay by job title or by division.
+ * It enables users to choose between generating detailed reports on total pay by job title or by division,
+ * either for one selected job title or division or for all of them at once.
  */
 public class ReportGeneratorByJobTitleOrDivision {
+    /**
+     * Maximum number of job title or division reports generated at the same time by the "all" reports,
+     * kept below the connection pool's maximum size so interactive operations can still get a connection.
+     */
+    static final int REPORT_PARALLELISM = EmployeeDatabase.DEFAULT_MAX_CONNECTIONS - 2;
+
     private final Scanner scanner;
     private EmployeeDatabase employeeDatabase;
 
@@ -21,6 +42,16 @@ public class ReportGeneratorByJobTitleOrDivision {
         this.scanner = scanner;
     }
 
+    /**
+     * Constructs a ReportGeneratorByJobTitleOrDivision for non-interactive use, where reports are only
+     * written through the write methods and no input is read.
+     * 
+     * @param employeeDatabase the database connection handler used for SQL queries.
+     */
+    ReportGeneratorByJobTitleOrDivision(EmployeeDatabase employeeDatabase) {
+        this(employeeDatabase, null);
+    }
+
     /**
      * Displays a menu to choose the type of report to generate and handles user inputs to navigate through the options.
      * 
@@ -32,7 +63,10 @@ public class ReportGeneratorByJobTitleOrDivision {
             System.out.println("\nSelect Report Type:");
             System.out.println("1. Total Pay by Job Title Report");
             System.out.println("2. Total Pay by Division Report");
-            System.out.println("3. Back To Main Menu");
+            System.out.println("3. Total Pay Report for All Job Titles");
+            System.out.println("4. Total Pay Report for All Divisions");
+            System.out.println("5. Ad-hoc Payroll Totals (in-memory snapshot)");
+            System.out.println("6. Back To Main Menu");
 
             System.out.print("Enter your choice: ");
             int choice = scanner.nextInt();
@@ -46,6 +80,25 @@ public class ReportGeneratorByJobTitleOrDivision {
                     generateTotalPayByDivisionReport();
                     break;
                 case 3:
+                    try (ReportSink sink = ReportSink.console()) {
+                        writeAllJobTitleReports(sink);
+                    } catch (IOException | SQLException e) {
+                        System.out.println("Failed to generate total pay by job title reports: " + e.getMessage());
+                    }
+                    break;
+                case 4:
+                    System.out.print("Include payroll history of each employee? (y/n): ");
+                    boolean includeHistory = scanner.nextLine().trim().equalsIgnoreCase("y");
+                    try (ReportSink sink = ReportSink.console()) {
+                        writeAllDivisionReports(includeHistory, sink);
+                    } catch (IOException | SQLException e) {
+                        System.out.println("Failed to generate total pay by division reports: " + e.getMessage());
+                    }
+                    break;
+                case 5:
+                    generatePayrollTotals();
+                    break;
+                case 6:
                     exit = true;
                     System.out.println("Directing Back To The Main Menu");
                     break;
@@ -55,6 +108,41 @@ public class ReportGeneratorByJobTitleOrDivision {
         }
     }
 
+    /**
+     * Asks how to group, what to total and which date range to include, and prints the totals from the in-memory
+     * payroll snapshot. The snapshot is loaded on first use and reloaded when the user asks for it, so repeated
+     * questions are answered without querying the database.
+     */
+    public void generatePayrollTotals() {
+        System.out.print("Group by (title, division, year, month, type): ");
+        String by = scanner.nextLine();
+        System.out.print("Total of (stubs, gross, net, fed-tax, fed-med, fed-ss, state-tax, retire-401k, health-care) [gross]: ");
+        String measure = scanner.nextLine().trim();
+        System.out.print("From pay date (YYYY-MM-DD, blank for all): ");
+        String from = scanner.nextLine().trim();
+        System.out.print("To pay date (YYYY-MM-DD, blank for all): ");
+        String to = scanner.nextLine().trim();
+        System.out.print("Reload the snapshot from the database first? (y/n): ");
+        boolean reload = scanner.nextLine().trim().equalsIgnoreCase("y");
+
+        try {
+            PayrollAnalytics.Filter filter = new PayrollAnalytics.Filter();
+            filter.from = from.isEmpty() ? null : LocalDate.parse(from);
+            filter.to = to.isEmpty() ? null : LocalDate.parse(to);
+            PayrollAnalytics.Totals totals = (reload
+                    ? employeeDatabase.reloadPayrollAnalytics()
+                    : employeeDatabase.getPayrollAnalytics())
+                    .totals(PayrollAnalytics.dimension(by), PayrollAnalytics.measure(measure.isEmpty() ? "gross" : measure), filter);
+            totals.print(System.out);
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date: " + e.getParsedString());
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to load the payroll snapshot: " + e.getMessage());
+        }
+    }
+
     /**
      * Generates and displays a report summarizing the total pay by job title. It lists available job titles and prompts the user to select one for detailed report.
      */
@@ -65,50 +153,201 @@ public class ReportGeneratorByJobTitleOrDivision {
         System.out.print("Enter Job Title ID to generate report: ");
         int jobTitleId = scanner.nextInt();
         scanner.nextLine(); 
+
+        try (ReportSink sink = ReportSink.console()) {
+            writeJobTitleReport(jobTitleId, sink);
+        } catch (IOException | SQLException e) {
+            System.out.println("Failed to generate total pay by job title report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the total pay report of one job title, refreshing the payroll summary first.
+     * 
+     * @param jobTitleId The job title to report on.
+     * @param sink The destination the report is written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the report data cannot be read.
+     */
+    void writeJobTitleReport(int jobTitleId, ReportSink sink) throws IOException, SQLException {
+        writeJobTitleReport(jobTitleId, refreshPayrollSummary(), sink);
+    }
+
+    /**
+     * Writes the total pay report of one job title, one line per employee holding the title.
+     * Total pay is read from the payroll summary, one row per employee, instead of summing every payroll row.
+     * 
+     * @param jobTitleId The job title to report on.
+     * @param summaryAvailable Whether the payroll summary is up to date; if not, the payroll history is summed.
+     * @param sink The destination the report is written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the report data cannot be read.
+     */
+    void writeJobTitleReport(int jobTitleId, boolean summaryAvailable, ReportSink sink) throws IOException, SQLException {
+        String query;
+        if (summaryAvailable) {
+            query = "SELECT jt.job_title, e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary, pt.earnings AS TotalPay " +
+                    "FROM employee_job_titles ejt " +
+                    "JOIN job_titles jt ON ejt.job_title_id = jt.job_title_id " +
+                    "JOIN employees e ON ejt.empid = e.empid " +
+                    "JOIN payroll_totals pt ON pt.empid = e.empid AND pt.pay_year = " + PayrollSummary.ALL_YEARS +
+                    " AND pt.pay_month = " + PayrollSummary.ALL_MONTHS + " " +
+                    "WHERE jt.job_title_id = ? " +
+                    "ORDER BY e.empid";
+        } else {
+            query = "SELECT jt.job_title, e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary, SUM(p.earnings) AS TotalPay " +
+                    "FROM payroll p " +
+                    "JOIN employee_job_titles ejt ON p.empid = ejt.empid " +
+                    "JOIN job_titles jt ON ejt.job_title_id = jt.job_title_id " +
+                    "JOIN employees e ON p.empid = e.empid " +
+                    "WHERE jt.job_title_id = ? " +
+                    "GROUP BY jt.job_title, e.empid";
+        }
     
-        String query = "SELECT jt.job_title, e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary, SUM(p.earnings) AS TotalPay " +
-                       "FROM payroll p " +
-                       "JOIN employee_job_titles ejt ON p.empid = ejt.empid " +
-                       "JOIN job_titles jt ON ejt.job_title_id = jt.job_title_id " +
-                       "JOIN employees e ON p.empid = e.empid " +
-                       "WHERE jt.job_title_id = ? " +
-                       "GROUP BY jt.job_title, e.empid";
-    
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+        StringBuilder output = new StringBuilder(256);
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(query)) {
             pstmt.setInt(1, jobTitleId);
-            ResultSet resultSet = pstmt.executeQuery();
-            
-            // Print header
-            System.out.println("\n----------------------------------------------------------------------------------------------");
-            System.out.printf("%s\t%s\t%s\t%s\t%s\t\t%s\t%s\t\t%s%n", "Job Title", "Employee ID", "First Name", "Last Name", "Email", "Hire Date", "Salary", "Total Pay");
-            System.out.println("----------------------------------------------------------------------------------------------");
-            
-            // Print rows
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                // Write header
+                sink.write("\n----------------------------------------------------------------------------------------------\n");
+                sink.write(String.format("%s\t%s\t%s\t%s\t%s\t\t%s\t%s\t\t%s%n", "Job Title", "Employee ID", "First Name", "Last Name", "Email", "Hire Date", "Salary", "Total Pay"));
+                sink.write("----------------------------------------------------------------------------------------------\n");
+
+                // Write rows
+                while (resultSet.next()) {
+                    String jobTitle = resultSet.getString("job_title");
+                    int empId = resultSet.getInt("empid");
+                    String firstName = resultSet.getString("Fname");
+                    String lastName = resultSet.getString("Lname");
+                    String email = resultSet.getString("email");
+                    Date hireDate = resultSet.getDate("HireDate");
+                    double salary = resultSet.getDouble("Salary");
+                    BigDecimal totalPay = resultSet.getBigDecimal("TotalPay");
+
+                    output.append(String.format("%s\t%d\t%-15s%s\t%s\t%s\t%.2f\t%.2f%n", jobTitle, empId, firstName, lastName, email, hireDate.toString(), salary, totalPay));
+                    sink.write(output);
+                    output.setLength(0);
+                }
+            }
+            sink.write("----------------------------------------------------------------------------------------------\n");
+        }
+    }
+
+    /**
+     * Writes the total pay report of every job title, in job title ID order. The reports are generated in
+     * parallel, see writeInParallel().
+     * 
+     * @param sink The destination the reports are written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the report data cannot be read.
+     */
+    void writeAllJobTitleReports(ReportSink sink) throws IOException, SQLException {
+        boolean summaryAvailable = refreshPayrollSummary();
+        List<Integer> jobTitleIds = loadIds("SELECT job_title_id FROM job_titles ORDER BY job_title_id");
+        writeInParallel(jobTitleIds, (jobTitleId, section) -> writeJobTitleReport(jobTitleId, summaryAvailable, section), sink);
+    }
+
+    /**
+     * Writes the total pay report of every division, in division ID order. The reports are generated in
+     * parallel, see writeInParallel().
+     * 
+     * @param includeHistory Whether to append every employee's payroll history to the division reports.
+     * @param sink The destination the reports are written to.
+     * @throws IOException If the report output cannot be written.
+     * @throws SQLException If the report data cannot be read.
+     */
+    void writeAllDivisionReports(boolean includeHistory, ReportSink sink) throws IOException, SQLException {
+        boolean summaryAvailable = refreshPayrollSummary();
+        List<Integer> divisionIds = loadIds("SELECT ID FROM division ORDER BY ID");
+        writeInParallel(divisionIds, (divisionId, section) -> writeDivisionReport(divisionId, includeHistory, summaryAvailable, section), sink);
+    }
+
+    /**
+     * Generates one report section per ID on virtual threads and writes the sections to the sink in the order of
+     * the IDs. At most REPORT_PARALLELISM sections are started and not yet written at any time: the next section
+     * is started only once the oldest one has been written. This bounds both the pooled connections the report
+     * holds and the sections buffered in memory, even when an early section is slow. If a section fails, the
+     * sections still running are cancelled and the failure is rethrown.
+     */
+    private void writeInParallel(List<Integer> ids, SectionWriter writer, ReportSink sink) throws IOException, SQLException {
+        Deque<Future<String>> sections = new ArrayDeque<>(REPORT_PARALLELISM);
+        Iterator<Integer> next = ids.iterator();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            boolean completed = false;
+            try {
+                while (sections.size() < REPORT_PARALLELISM && next.hasNext()) {
+                    sections.add(submitSection(executor, next.next(), writer));
+                }
+                while (!sections.isEmpty()) {
+                    sink.write(await(sections.peekFirst()));
+                    sections.removeFirst();
+                    if (next.hasNext()) {
+                        sections.add(submitSection(executor, next.next(), writer));
+                    }
+                }
+                completed = true;
+            } finally {
+                if (!completed) {
+                    for (Future<String> section : sections) {
+                        section.cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts generating one report section into an in-memory buffer.
+     */
+    private static Future<String> submitSection(ExecutorService executor, int id, SectionWriter writer) {
+        return executor.submit(() -> {
+            StringWriter buffer = new StringWriter();
+            try (ReportSink section = new WriterReportSink(buffer, true)) {
+                writer.write(id, section);
+            }
+            return buffer.toString();
+        });
+    }
+
+    /**
+     * Waits for a report section and returns its text, rethrowing the exception it failed with.
+     */
+    private static String await(Future<String> section) throws IOException, SQLException {
+        try {
+            return section.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a report section.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IllegalStateException("Report section failed.", cause);
+        }
+    }
+
+    /**
+     * Returns the integer IDs selected by a query, in the order the query returns them.
+     */
+    private List<Integer> loadIds(String query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query);
+             ResultSet resultSet = pstmt.executeQuery()) {
             while (resultSet.next()) {
-                String jobTitle = resultSet.getString("job_title");
-                int empId = resultSet.getInt("empid");
-                String firstName = resultSet.getString("Fname");
-                String lastName = resultSet.getString("Lname");
-                String email = resultSet.getString("email");
-                Date hireDate = resultSet.getDate("HireDate");
-                double salary = resultSet.getDouble("Salary");
-                BigDecimal totalPay = resultSet.getBigDecimal("TotalPay");
-                
-                System.out.printf("%s\t%d\t%-15s%s\t%s\t%s\t%.2f\t%.2f%n", jobTitle, empId, firstName, lastName, email, hireDate.toString(), salary, totalPay);
+                ids.add(resultSet.getInt(1));
             }
-            
-            System.out.println("----------------------------------------------------------------------------------------------");
-        } catch (SQLException e) {
-            System.out.println("Failed to generate total pay by job title report: " + e.getMessage());
         }
+        return ids;
     }
     
     /**
-    * This method generates a detailed report of total pay by division. It begins by listing all available divisions 
-    * and prompts the user to select one by entering the division ID. After fetching the selected division's details,
-    * it retrieves and displays all associated employees along with their personal and salary information. Additionally, 
-    * it calculates the monthly pay for each employee. The method handles any SQL exceptions and ensures that meaningful 
-    * error messages are displayed if no division or employees are found or if an SQL error occurs.
+    * This method generates a report of total pay by division. It begins by listing all available divisions 
+    * and prompts the user to select one by entering the division ID, and asks whether the payroll history of
+    * the division's employees should be included. The report is written by writeDivisionReport().
     */
     public void generateTotalPayByDivisionReport() {
         System.out.println("\nAvailable Divisions:");
@@ -117,74 +356,121 @@ public class ReportGeneratorByJobTitleOrDivision {
         System.out.print("Enter Division ID to generate report: ");
         int divisionId = scanner.nextInt();
         scanner.nextLine();
-    
-        String divisionQuery = "SELECT * FROM division WHERE ID = ?";
-        try (PreparedStatement divisionPstmt = employeeDatabase.connection.prepareStatement(divisionQuery)) {
-            divisionPstmt.setInt(1, divisionId);
-            ResultSet divisionResultSet = divisionPstmt.executeQuery();
-    
-            // Print division information
-            if (divisionResultSet.next()) {
-                String divisionName = divisionResultSet.getString("Name");
-                String city = divisionResultSet.getString("city");
-                String addressLine1 = divisionResultSet.getString("addressLine1");
-                String addressLine2 = divisionResultSet.getString("addressLine2");
-                String state = divisionResultSet.getString("state");
-                String country = divisionResultSet.getString("country");
-                String postalCode = divisionResultSet.getString("postalCode");
-    
-                System.out.println("\nDivision Information:");
-                System.out.println("Division Name: " + divisionName);
-                System.out.println("City: " + city);
-                System.out.println("Address Line 1: " + addressLine1);
-                System.out.println("Address Line 2: " + addressLine2);
-                System.out.println("State: " + state);
-                System.out.println("Country: " + country);
-                System.out.println("Postal Code: " + postalCode);
-            } else {
-                System.out.println("No division found with the provided ID.");
-                return;
-            }
-        } catch (SQLException e) {
-            System.out.println("Failed to fetch division information: " + e.getMessage());
+        System.out.print("Include payroll history of each employee? (y/n): ");
+        boolean includeHistory = scanner.nextLine().trim().equalsIgnoreCase("y");
+
+        try (ReportSink sink = ReportSink.console()) {
+            writeDivisionReport(divisionId, includeHistory, sink);
+        } catch (IOException | SQLException e) {
+            System.out.println("Failed to generate total pay by division report: " + e.getMessage());
+        }
+    }
+
+    /**
+    * Writes the total pay report of one division: the division's information, one line per employee with their
+    * salary, number of pay periods and total pay, and the division's grand total. The per-employee totals come
+    * from one query over the payroll summary, so the cost does not depend on how much payroll history there is.
+    * With includeHistory, the pay stubs of all employees of the division follow, fetched with a single join
+    * ordered by employee instead of one query per employee and streamed into the sink as they are read. The
+    * division and the employee totals are read at the same time by EmployeeService.divisionReport().
+    * 
+    * @param divisionId The division to report on.
+    * @param includeHistory Whether to append every employee's payroll history.
+    * @param sink The destination the report is written to.
+    * @throws IOException If the report output cannot be written.
+    * @throws SQLException If the report data cannot be read.
+    */
+    void writeDivisionReport(int divisionId, boolean includeHistory, ReportSink sink) throws IOException, SQLException {
+        writeDivisionReport(divisionId, includeHistory, refreshPayrollSummary(), sink);
+    }
+
+    private void writeDivisionReport(int divisionId, boolean includeHistory, boolean summaryAvailable, ReportSink sink)
+            throws IOException, SQLException {
+        EmployeeService.DivisionReport report = EmployeeService.await(
+                employeeDatabase.getEmployeeService().divisionReport(divisionId, summaryAvailable));
+        if (report == null) {
+            sink.write("No division found with the provided ID.\n");
             return;
         }
-    
-        String query = "SELECT e.empid, e.Fname, e.Lname, e.email, e.HireDate, e.Salary " +
-                       "FROM employees e " +
-                       "JOIN employee_division ed ON e.empid = ed.empid " +
-                       "WHERE ed.div_ID = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setInt(1, divisionId);
-            ResultSet resultSet = pstmt.executeQuery();
-    
-            // Check if there are employees under this division
-            if (!resultSet.next()) {
-                System.out.println("No employees in this division.");
-                return;
+        StringBuilder output = new StringBuilder(256);
+        output.append("\nDivision Information:\n");
+        output.append("Division Name: ").append(report.name).append('\n');
+        output.append("City: ").append(report.city).append('\n');
+        output.append("Address Line 1: ").append(report.addressLine1).append('\n');
+        output.append("Address Line 2: ").append(report.addressLine2).append('\n');
+        output.append("State: ").append(report.state).append('\n');
+        output.append("Country: ").append(report.country).append('\n');
+        output.append("Postal Code: ").append(report.postalCode).append('\n');
+        sink.write(output);
+        output.setLength(0);
+
+        if (report.employees.isEmpty()) {
+            sink.write("No employees in this division.\n");
+            return;
+        }
+        long payPeriods = 0;
+        double divisionTotal = 0;
+        sink.write("\n----------------------------------------------------------------------------------------------\n");
+        sink.write("Emp ID\tFirst Name\tLast Name\tEmail\tHire Date\tSalary\tPay Periods\tTotal Pay\n");
+        sink.write("----------------------------------------------------------------------------------------------\n");
+        for (EmployeeService.DivisionEmployee employee : report.employees) {
+            output.append(employee.empId).append('\t')
+                    .append(employee.firstName).append('\t')
+                    .append(employee.lastName).append('\t')
+                    .append(employee.email).append('\t')
+                    .append(employee.hireDate).append('\t')
+                    .append(String.format("%.2f", employee.salary)).append('\t')
+                    .append(employee.payPeriods).append('\t')
+                    .append(String.format("%.2f", employee.totalPay)).append('\n');
+            sink.write(output);
+            output.setLength(0);
+            payPeriods += employee.payPeriods;
+            divisionTotal += employee.totalPay;
+        }
+        sink.write("----------------------------------------------------------------------------------------------\n");
+        sink.write(String.format("Division total: %d employees, %d pay periods, total pay %.2f%n",
+                report.employees.size(), payPeriods, divisionTotal));
+
+        if (includeHistory) {
+            writeDivisionPayrollHistory(divisionId, sink);
+        }
+    }
+
+    /**
+    * Writes the payroll history of every employee of a division, ordered by employee and pay date, with the
+    * payroll header repeated for each employee.
+    */
+    private void writeDivisionPayrollHistory(int divisionId, ReportSink sink) throws IOException, SQLException {
+        StringBuilder output = new StringBuilder(256);
+        int[] currentEmpId = { -1 };
+        employeeDatabase.getEmployeeService().streamDivisionPayHistory(divisionId, stub -> {
+            if (stub.empId != currentEmpId[0]) {
+                sink.write(currentEmpId[0] == -1 ? "\n" : "\n\n");
+                sink.write(Payroll.HEADER);
+                currentEmpId[0] = stub.empId;
             }
-    
-            // Print header for employee information
-            System.out.println("\n------------------------------------------------------------------------------");
-            System.out.printf("%s\t%s\t%s\t%s\t%s\t%s\n",
-                    "Emp ID", "First Name", "Last Name", "Email", "Hire Date", "Salary");
-            System.out.println("------------------------------------------------------------------------------");
-    
-            // Print employee information if available
-            do {
-                int empId = resultSet.getInt("empid");
-                String firstName = resultSet.getString("Fname");
-                String lastName = resultSet.getString("Lname");
-                String email = resultSet.getString("email");
-                Date hireDate = resultSet.getDate("HireDate");
-                double salary = resultSet.getDouble("Salary");
-    
-                System.out.printf("%d\t%s\t%s\t%s\t%s\t%.2f\n",empId, firstName, lastName, email, hireDate.toString(), salary);
-                Payroll payrollProcessor = new Payroll(employeeDatabase);
-                System.out.println(payrollProcessor.getPayByMonth(empId));
-            } while (resultSet.next());
+            Payroll.appendPayRow(output, stub);
+            sink.write(output);
+            output.setLength(0);
+        });
+        if (currentEmpId[0] != -1) {
+            sink.write("\n");
+        }
+    }
+
+    /**
+     * Brings the payroll summary up to date before a report reads it.
+     * 
+     * @return true if the summary can be used, false if it could not be refreshed and the report has to
+     *         sum the payroll history instead.
+     */
+    private boolean refreshPayrollSummary() {
+        try {
+            employeeDatabase.getPayrollSummary().refresh();
+            return true;
         } catch (SQLException e) {
-            System.out.println("Failed to generate total pay by division report: " + e.getMessage());
+            System.out.println("Payroll totals unavailable, summing payroll history instead: " + e.getMessage());
+            return false;
         }
     }
 
@@ -194,7 +480,7 @@ public class ReportGeneratorByJobTitleOrDivision {
     */
     private void listJobTitles() {
         String query = "SELECT job_title_id, job_title FROM job_titles";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query);
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query);
              ResultSet resultSet = pstmt.executeQuery()) {
             while (resultSet.next()) {
                 int id = resultSet.getInt("job_title_id");
@@ -212,7 +498,7 @@ public class ReportGeneratorByJobTitleOrDivision {
     */
     private void listDivisions() {
         String query = "SELECT ID, Name FROM division";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query);
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query);
              ResultSet resultSet = pstmt.executeQuery()) {
             while (resultSet.next()) {
                 int id = resultSet.getInt("ID");
@@ -223,4 +509,11 @@ public class ReportGeneratorByJobTitleOrDivision {
             System.out.println("Error listing divisions: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the report section of one job title or division.
+     */
+    private interface SectionWriter {
+        void write(int id, ReportSink section) throws IOException, SQLException;
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The ReportSink interface is the destination that reports write their output into, one row at a time.
+ * Reports format each row into a reusable StringBuilder and hand it to the sink, so the output of a report
+ * is never accumulated in memory as one large string. Implementations are available for the console,
+ * a plain file and a gzip-compressed file.
+ */
+public interface ReportSink extends Closeable {
+    /**
+     * Size in characters of the buffer placed in front of every sink.
+     */
+    int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the current contents of a row buffer to the sink. The buffer is not modified, so the caller
+     * may clear and reuse it for the next row.
+     *
+     * @param row The formatted row to write.
+     * @throws IOException If the underlying output cannot be written.
+     */
+    void write(StringBuilder row) throws IOException;
+
+    /**
+     * Writes a fixed piece of text, such as a header or a blank line, to the sink.
+     *
+     * @param text The text to write.
+     * @throws IOException If the underlying output cannot be written.
+     */
+    void write(String text) throws IOException;
+
+    /**
+     * Flushes any buffered output to its destination.
+     *
+     * @throws IOException If the underlying output cannot be flushed.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Creates a sink that writes to the console. Closing it flushes the output but leaves System.out open.
+     *
+     * @return A sink writing to standard output.
+     */
+    static ReportSink console() {
+        return new WriterReportSink(new OutputStreamWriter(System.out), false);
+    }
+
+    /**
+     * Creates a sink that writes UTF-8 text to a file through a buffered file channel, replacing any existing file.
+     *
+     * @param path The file to write.
+     * @return A sink writing to the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    static ReportSink file(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new WriterReportSink(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), true);
+    }
+
+    /**
+     * Creates a sink that writes gzip-compressed UTF-8 text to a file, replacing any existing file.
+     *
+     * @param path The file to write.
+     * @return A sink writing compressed output to the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    static ReportSink gzip(Path path) throws IOException {
+        FileOutputStream file = new FileOutputStream(path.toFile());
+        OutputStream out;
+        try {
+            // The constructor writes the gzip header, so it can fail after the file was opened
+            out = new GZIPOutputStream(file, BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                file.close();
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            throw e;
+        }
+        return new WriterReportSink(new OutputStreamWriter(out, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Creates a file sink for the given path, compressing the output when the file name ends in ".gz".
+     *
+     * @param path The file to write.
+     * @return A gzip sink for ".gz" files, otherwise a plain file sink.
+     * @throws IOException If the file cannot be opened.
+     */
+    static ReportSink forPath(Path path) throws IOException {
+        return path.getFileName().toString().endsWith(".gz") ? gzip(path) : file(path);
+    }
+}
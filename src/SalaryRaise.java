@@ -0,0 +1,384 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SalaryRaise class raises the salaries of all employees whose salary is within a range by a percentage.
+ * Instead of one UPDATE that locks every matching row until it finishes, a raise walks the matching employees
+ * in empid order in chunks, and each chunk is locked, updated and committed on its own so row locks are held
+ * only briefly. Every change is recorded with its old and new salary under a batch ID in the
+ * salary_raise_audit table, so a raise can be previewed before it is applied and rolled back afterwards.
+ *
+ * The tables are created on first use:
+ *   salary_raise_batch  one row per raise with its parameters, status and number of employees
+ *   salary_raise_audit  one row per raised employee with the old and new salary
+ */
+class SalaryRaise {
+    /**
+     * Default number of employees locked, updated and committed together.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 500;
+
+    static final String STATUS_RUNNING = "RUNNING";
+    static final String STATUS_APPLIED = "APPLIED";
+    static final String STATUS_FAILED = "FAILED";
+    static final String STATUS_ROLLED_BACK = "ROLLED_BACK";
+
+    private static final String[] DDL = {
+        "CREATE TABLE IF NOT EXISTS salary_raise_batch (batch_id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, min_salary DOUBLE NOT NULL, max_salary DOUBLE NOT NULL, " +
+                "pct DOUBLE NOT NULL, status VARCHAR(16) NOT NULL, employees INT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS salary_raise_audit (batch_id INT NOT NULL, empid INT NOT NULL, " +
+                "old_salary DOUBLE NOT NULL, new_salary DOUBLE NOT NULL, PRIMARY KEY (batch_id, empid))",
+    };
+
+    private final EmployeeDatabase employeeDatabase;
+    private final int chunkSize;
+
+    /**
+     * Constructs a SalaryRaise with the default chunk size.
+     *
+     * @param employeeDatabase The database holding the employees.
+     */
+    SalaryRaise(EmployeeDatabase employeeDatabase) {
+        this(employeeDatabase, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a SalaryRaise.
+     *
+     * @param employeeDatabase The database holding the employees.
+     * @param chunkSize The number of employees locked, updated and committed together.
+     */
+    SalaryRaise(EmployeeDatabase employeeDatabase, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.employeeDatabase = employeeDatabase;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Returns the salary an employee has after a raise, rounded to cents.
+     *
+     * @param salary The current salary.
+     * @param increase The salary increase percentage, e.g. 3.2.
+     * @return The raised salary.
+     */
+    static double raisedSalary(double salary, double increase) {
+        return Math.round(salary * (1 + increase / 100) * 100) / 100.0;
+    }
+
+    /**
+     * Computes what a raise would change without changing anything.
+     *
+     * @param minSalary The lower bound of the salary range, inclusive.
+     * @param maxSalary The upper bound of the salary range, exclusive.
+     * @param increase The salary increase percentage.
+     * @param sampleSize The number of affected employees to include as examples.
+     * @return The number of affected employees, their salary totals before and after, and the first of them.
+     * @throws SQLException If the employees cannot be read.
+     */
+    Preview preview(double minSalary, double maxSalary, double increase, int sampleSize) throws SQLException {
+        Preview preview = new Preview();
+        try (PreparedStatement pstmt = employeeDatabase.prepareStreaming(
+                "SELECT empid, Fname, Lname, Salary FROM employees WHERE Salary >= ? AND Salary < ? ORDER BY empid")) {
+            pstmt.setDouble(1, minSalary);
+            pstmt.setDouble(2, maxSalary);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                while (resultSet.next()) {
+                    double salary = resultSet.getDouble("Salary");
+                    double raised = raisedSalary(salary, increase);
+                    preview.employees++;
+                    preview.currentTotal += salary;
+                    preview.newTotal += raised;
+                    if (preview.sample.size() < sampleSize) {
+                        preview.sample.add(new Change(resultSet.getInt("empid"),
+                                resultSet.getString("Fname") + " " + resultSet.getString("Lname"), salary, raised));
+                    }
+                }
+            }
+        }
+        return preview;
+    }
+
+    /**
+     * Applies a raise in chunks of employees in empid order, committing each chunk together with its audit
+     * rows. Employees are raised at most once even if their new salary is still within the range.
+     *
+     * @param minSalary The lower bound of the salary range, inclusive.
+     * @param maxSalary The upper bound of the salary range, exclusive.
+     * @param increase The salary increase percentage.
+     * @return The batch ID of the raise and the number of employees raised.
+     * @throws SQLException If a chunk fails. Chunks committed before the failure stay applied; the message
+     *                      names the batch ID, which can be passed to rollback() to undo them. A failure to
+     *                      record the batch status afterwards is attached to it as a suppressed exception.
+     */
+    Result apply(double minSalary, double maxSalary, double increase) throws SQLException {
+        createTables();
+        Result result = new Result(startBatch(minSalary, maxSalary, increase));
+        String status = STATUS_FAILED;
+        AuditLog auditLog = employeeDatabase.getAuditLog();
+        List<Change> chunk = new ArrayList<>(chunkSize);
+        SQLException failure = null;
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT empid, Salary FROM employees WHERE empid > ? AND Salary >= ? AND Salary < ? " +
+                    "ORDER BY empid LIMIT ? FOR UPDATE");
+                 PreparedStatement update = connection.prepareStatement(
+                    "UPDATE employees SET Salary = ? WHERE empid = ?");
+                 PreparedStatement audit = connection.prepareStatement(
+                    "INSERT INTO salary_raise_audit (batch_id, empid, old_salary, new_salary) VALUES (?, ?, ?, ?)")) {
+                int lastEmpId = 0;
+                while (true) {
+                    select.setInt(1, lastEmpId);
+                    select.setDouble(2, minSalary);
+                    select.setDouble(3, maxSalary);
+                    select.setInt(4, chunkSize);
+                    chunk.clear();
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            int empId = resultSet.getInt("empid");
+                            double salary = resultSet.getDouble("Salary");
+                            double raised = raisedSalary(salary, increase);
+                            update.setDouble(1, raised);
+                            update.setInt(2, empId);
+                            update.addBatch();
+                            audit.setInt(1, result.batchId);
+                            audit.setInt(2, empId);
+                            audit.setDouble(3, salary);
+                            audit.setDouble(4, raised);
+                            audit.addBatch();
+                            result.amount += raised - salary;
+                            lastEmpId = empId;
+                            chunk.add(new Change(empId, null, salary, raised));
+                        }
+                    }
+                    if (chunk.isEmpty()) {
+                        break;
+                    }
+                    audit.executeBatch();
+                    update.executeBatch();
+                    connection.commit();
+                    result.employees += chunk.size();
+                    for (Change change : chunk) {
+                        auditLog.recordUpdate("employees", change.empId, "Salary", change.oldSalary, change.newSalary);
+                    }
+                }
+                status = STATUS_APPLIED;
+            } catch (SQLException e) {
+                failure = new SQLException("Salary raise batch " + result.batchId + " stopped after " +
+                        result.employees + " employees: " + e.getMessage(), e.getSQLState(), e.getErrorCode(), e);
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    failure.addSuppressed(rollbackFailure);
+                }
+                throw failure;
+            }
+        } finally {
+            employeeDatabase.employeesChanged();
+            try {
+                finishBatch(result.batchId, status, result.employees);
+            } catch (SQLException e) {
+                if (failure == null) {
+                    throw e;
+                }
+                failure.addSuppressed(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Restores the salaries changed by a raise, in chunks of employees in empid order with a commit per chunk.
+     * An employee whose salary already is the old salary, e.g. from an earlier rollback that failed part way,
+     * counts as restored. An employee whose salary was changed again after the raise is left alone and counted
+     * as skipped.
+     *
+     * @param batchId The batch ID of the raise.
+     * @return The number of employees restored and skipped.
+     * @throws IllegalArgumentException If there is no such raise or it was already rolled back.
+     * @throws SQLException If the salaries cannot be restored. Chunks committed before the failure stay
+     *                      restored, and running the rollback again finishes the rest.
+     */
+    Result rollback(int batchId) throws SQLException {
+        createTables();
+        String status = batchStatus(batchId);
+        if (status == null) {
+            throw new IllegalArgumentException("No salary raise with batch ID " + batchId + ".");
+        }
+        if (status.equals(STATUS_ROLLED_BACK)) {
+            throw new IllegalArgumentException("Salary raise " + batchId + " has already been rolled back.");
+        }
+        Result result = new Result(batchId);
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT a.empid, a.old_salary, a.new_salary, e.Salary FROM salary_raise_audit a " +
+                    "LEFT JOIN employees e ON e.empid = a.empid WHERE a.batch_id = ? AND a.empid > ? " +
+                    "ORDER BY a.empid LIMIT ?");
+                 PreparedStatement restore = connection.prepareStatement(
+                    "UPDATE employees SET Salary = ? WHERE empid = ? AND Salary = ?")) {
+                int lastEmpId = 0;
+                while (true) {
+                    select.setInt(1, batchId);
+                    select.setInt(2, lastEmpId);
+                    select.setInt(3, chunkSize);
+                    List<Change> chunk = new ArrayList<>(chunkSize);
+                    boolean found = false;
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        while (resultSet.next()) {
+                            found = true;
+                            Change change = new Change(resultSet.getInt("empid"), null,
+                                    resultSet.getDouble("old_salary"), resultSet.getDouble("new_salary"));
+                            double salary = resultSet.getDouble("Salary");
+                            lastEmpId = change.empId;
+                            if (resultSet.wasNull() || salary != change.oldSalary && salary != change.newSalary) {
+                                result.skipped++;
+                            } else if (salary == change.oldSalary) {
+                                result.employees++;
+                                result.amount += change.oldSalary - change.newSalary;
+                            } else {
+                                chunk.add(change);
+                            }
+                        }
+                    }
+                    if (!found) {
+                        break;
+                    }
+                    if (chunk.isEmpty()) {
+                        continue;
+                    }
+                    for (Change change : chunk) {
+                        restore.setDouble(1, change.oldSalary);
+                        restore.setInt(2, change.empId);
+                        restore.setDouble(3, change.newSalary);
+                        restore.addBatch();
+                    }
+                    int[] counts = restore.executeBatch();
+                    connection.commit();
+                    for (int i = 0; i < counts.length; i++) {
+                        Change change = chunk.get(i);
+                        if (counts[i] == 0) {
+                            result.skipped++;
+                        } else {
+                            result.employees++;
+                            result.amount += change.oldSalary - change.newSalary;
+                            employeeDatabase.getAuditLog().recordUpdate("employees", change.empId, "Salary",
+                                    change.newSalary, change.oldSalary);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } finally {
+            employeeDatabase.employeesChanged();
+        }
+        finishBatch(batchId, STATUS_ROLLED_BACK, result.employees);
+        return result;
+    }
+
+    /**
+     * Records a new raise and returns its generated batch ID.
+     */
+    private int startBatch(double minSalary, double maxSalary, double increase) throws SQLException {
+        try (Connection connection = employeeDatabase.getConnection();
+             PreparedStatement pstmt = connection.prepareStatement(
+                     "INSERT INTO salary_raise_batch (min_salary, max_salary, pct, status, employees) VALUES (?, ?, ?, ?, 0)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setDouble(1, minSalary);
+            pstmt.setDouble(2, maxSalary);
+            pstmt.setDouble(3, increase);
+            pstmt.setString(4, STATUS_RUNNING);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No batch ID was generated for the salary raise.");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private void finishBatch(int batchId, String status, int employees) throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare(
+                "UPDATE salary_raise_batch SET status = ?, employees = ? WHERE batch_id = ?")) {
+            pstmt.setString(1, status);
+            pstmt.setInt(2, employees);
+            pstmt.setInt(3, batchId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private String batchStatus(int batchId) throws SQLException {
+        try (PreparedStatement pstmt = employeeDatabase.prepare("SELECT status FROM salary_raise_batch WHERE batch_id = ?")) {
+            pstmt.setInt(1, batchId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                return resultSet.next() ? resultSet.getString("status") : null;
+            }
+        }
+    }
+
+    /**
+     * Creates the batch and audit tables if the schema catalog does not list them.
+     */
+    private void createTables() throws SQLException {
+        SchemaCatalog schemaCatalog = employeeDatabase.getSchemaCatalog();
+        if (schemaCatalog.hasTable("salary_raise_batch") && schemaCatalog.hasTable("salary_raise_audit")) {
+            return;
+        }
+        try (Connection connection = employeeDatabase.getConnection();
+             Statement stmt = connection.createStatement()) {
+            for (String ddl : DDL) {
+                stmt.execute(ddl);
+            }
+        } finally {
+            schemaCatalog.invalidate();
+        }
+    }
+
+    /**
+     * One employee's salary before and after a raise.
+     */
+    static final class Change {
+        final int empId;
+        final String name;
+        final double oldSalary;
+        final double newSalary;
+
+        Change(int empId, String name, double oldSalary, double newSalary) {
+            this.empId = empId;
+            this.name = name;
+            this.oldSalary = oldSalary;
+            this.newSalary = newSalary;
+        }
+    }
+
+    /**
+     * What a raise would change: the affected employees, their salary totals and the first few of them.
+     */
+    static final class Preview {
+        int employees;
+        double currentTotal;
+        double newTotal;
+        final List<Change> sample = new ArrayList<>();
+    }
+
+    /**
+     * The outcome of applying or rolling back a raise.
+     */
+    static final class Result {
+        final int batchId;
+        int employees;
+        int skipped;
+        double amount;
+
+        Result(int batchId) {
+            this.batchId = batchId;
+        }
+    }
+}
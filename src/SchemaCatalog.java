@@ -0,0 +1,105 @@
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The SchemaCatalog class keeps an in-memory copy of the tables and columns of the employee database.
+ * The metadata is read with a single DatabaseMetaData call and answered from memory afterwards, so checks such
+ * as whether the SSN column exists do not cost a round trip each. Code that changes the schema must call
+ * invalidate() so the next lookup reloads the metadata.
+ */
+class SchemaCatalog {
+    private final EmployeeDatabase employeeDatabase;
+
+    /**
+     * Column names per table, both lower-cased; null until the metadata has been loaded.
+     */
+    private volatile Map<String, Set<String>> columnsByTable;
+
+    /**
+     * Constructs a SchemaCatalog for the given database.
+     *
+     * @param employeeDatabase The database whose metadata is cached.
+     */
+    SchemaCatalog(EmployeeDatabase employeeDatabase) {
+        this.employeeDatabase = employeeDatabase;
+    }
+
+    /**
+     * Loads the table and column metadata of the current database, replacing anything loaded before.
+     *
+     * @throws SQLException If the metadata cannot be read.
+     */
+    void load() throws SQLException {
+        columnsByTable = read();
+    }
+
+    /**
+     * Checks whether a table has a given column, loading the metadata first if it is not cached.
+     * Table and column names are compared case-insensitively.
+     *
+     * @param table The table name.
+     * @param column The column name.
+     * @return true if the column exists in the table, false otherwise.
+     * @throws SQLException If the metadata has to be loaded and cannot be read.
+     */
+    boolean hasColumn(String table, String column) throws SQLException {
+        Set<String> columns = tables().get(table.toLowerCase(Locale.ROOT));
+        return columns != null && columns.contains(column.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Checks whether a table exists, loading the metadata first if it is not cached.
+     *
+     * @param table The table name, compared case-insensitively.
+     * @return true if the table exists, false otherwise.
+     * @throws SQLException If the metadata has to be loaded and cannot be read.
+     */
+    boolean hasTable(String table) throws SQLException {
+        return tables().containsKey(table.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Discards the cached metadata so that the next lookup reads it again. Must be called after any
+     * statement that alters the schema.
+     */
+    void invalidate() {
+        columnsByTable = null;
+    }
+
+    /**
+     * Returns the cached metadata, loading it if necessary.
+     */
+    private Map<String, Set<String>> tables() throws SQLException {
+        Map<String, Set<String>> tables = columnsByTable;
+        if (tables == null) {
+            synchronized (this) {
+                tables = columnsByTable;
+                if (tables == null) {
+                    tables = read();
+                    columnsByTable = tables;
+                }
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Reads the column metadata of every table in the current database with a single metadata call.
+     */
+    private Map<String, Set<String>> read() throws SQLException {
+        Map<String, Set<String>> loaded = new HashMap<>();
+        try (Connection connection = employeeDatabase.getConnection();
+             ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "%", "%")) {
+            while (columns.next()) {
+                String table = columns.getString("TABLE_NAME").toLowerCase(Locale.ROOT);
+                String column = columns.getString("COLUMN_NAME").toLowerCase(Locale.ROOT);
+                loaded.computeIfAbsent(table, name -> new HashSet<>()).add(column);
+            }
+        }
+        return loaded;
+    }
+}
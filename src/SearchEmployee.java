@@ -1,11 +1,19 @@
 import java.sql.*;
+import java.util.Collections;
+import java.util.List;
 import java.util.Scanner;
 
 /**
  * The SearchEmployee class provides functionality to search for employee details within a database.
- * It supports searching by employee ID, first name, or last name.
+ * It supports searching by employee ID, first name, last name, or email. The lookups run on the EmployeeService;
+ * name searches are answered by the in-memory name index and the matching employees are then fetched by primary key.
  */
 public class SearchEmployee {
+    /**
+     * Number of employees shown per page by listEmployees().
+     */
+    static final int PAGE_SIZE = 20;
+
     private final EmployeeDatabase employeeDatabase;
 
     /**
@@ -18,82 +26,93 @@ public class SearchEmployee {
     }
 
     /**
-     * Prompts the user to enter an employee ID, first name, or last name and performs a search based on the input.
+     * Prompts the user to enter an employee ID, first name, last name, or email and performs a search based on the input.
      * It handles both numeric ID searches and string name searches.
      * 
      * @param scanner A Scanner instance for reading user input.
      */
     public void searchEmployee(Scanner scanner) {
-        System.out.print("Enter employee first name, last name, or Employee ID to search: ");
+        System.out.print("Enter employee first name, last name, email, or Employee ID to search: ");
         String searchInput = scanner.nextLine();
-    
+
+        EmployeeService employeeService = employeeDatabase.getEmployeeService();
         try {
-            int empId = Integer.parseInt(searchInput); // Attempt to parse the input as an employee ID
-            String query = "SELECT * FROM employees WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setInt(1, empId);
-                executeSearch(pstmt);
+            List<Employee> employees;
+            try {
+                int empId = Integer.parseInt(searchInput); // Attempt to parse the input as an employee ID
+                Employee employee = EmployeeService.await(employeeService.findById(empId));
+                employees = employee == null ? Collections.emptyList() : Collections.singletonList(employee);
+            } catch (NumberFormatException e) {
+                // If input is not an integer, search by first name, last name or email
+                employees = EmployeeService.await(employeeService.search(searchInput));
+            }
+            if (employees.isEmpty()) {
+                System.out.println("No employee found matching the search criteria.");
+                return;
             }
-        } catch (NumberFormatException e) {
-            // If input is not an integer, search by first name or last name
-            String query = "SELECT * FROM employees WHERE Fname LIKE ? OR Lname LIKE ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setString(1, "%" + searchInput + "%");
-                pstmt.setString(2, "%" + searchInput + "%");
-                executeSearch(pstmt);
-            } catch (SQLException ex) {
-                System.out.println("Failed to search for employee: " + ex.getMessage());
+            boolean ssnAvailable = isSSNColumnAvailable();
+            for (Employee employee : employees) {
+                displayEmployeeDetails(employee, ssnAvailable);
             }
-        } catch (SQLException ex) {
-            System.out.println("Failed to search for employee: " + ex.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to search for employee: " + e.getMessage());
         }
     }
 
     /**
-     * Executes the search query and prints out the employee details.
+     * Lists all employees one page at a time in employee ID order. Each page is read with a keyset query
+     * that continues after the last ID shown, so later pages cost the same as the first one.
      * 
-     * @param pstmt The PreparedStatement to execute, containing the SQL query.
-     * @throws SQLException If there is a problem executing the query or processing the result set.
+     * @param scanner A Scanner instance for reading user input between pages.
      */
-    void executeSearch(PreparedStatement pstmt) throws SQLException {
-        try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
-            boolean found = false;
-            while (resultSet.next()) {
-                found = true;
-                displayEmployeeDetails(resultSet);
-            }
-            if (!found) {
-                System.out.println("No employee found matching the search criteria.");
+    public void listEmployees(Scanner scanner) {
+        int lastEmpId = 0;
+        int pageNumber = 1;
+        try {
+            while (true) {
+                List<Employee> page = EmployeeService.await(employeeDatabase.getEmployeeService().list(lastEmpId, PAGE_SIZE));
+                if (page.isEmpty()) {
+                    System.out.println(pageNumber == 1 ? "No employees found." : "No more employees.");
+                    return;
+                }
+                System.out.printf("%nPage %d%n", pageNumber);
+                System.out.printf("%-8s %-15s %-15s %-30s %-12s %12s%n", "Emp ID", "First Name", "Last Name", "Email", "Hire Date", "Salary");
+                for (Employee employee : page) {
+                    System.out.printf("%-8d %-15s %-15s %-30s %-12s %12.2f%n", employee.getEmpId(), employee.getFirstName(),
+                            employee.getLastName(), employee.getEmail(), employee.getHireDate(), employee.getSalary());
+                }
+                lastEmpId = page.get(page.size() - 1).getEmpId();
+                if (page.size() < PAGE_SIZE) {
+                    return;
+                }
+                System.out.print("Press Enter for the next page or q to stop: ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    return;
+                }
+                pageNumber++;
             }
+        } catch (SQLException e) {
+            System.out.println("Failed to list employees: " + e.getMessage());
         }
     }
 
     /**
-     * Displays the details of an employee from the current row of the ResultSet.
+     * Displays the details of an employee.
      * 
-     * @param resultSet The ResultSet from which to retrieve and display employee data.
-     * @throws SQLException If there is an error retrieving data from the ResultSet.
+     * @param employee The employee whose data is displayed.
+     * @param ssnAvailable Whether the employees table has an SSN column to display.
      */
-    private void displayEmployeeDetails(ResultSet resultSet) throws SQLException {
-        int empId = resultSet.getInt("empid");
-        String firstName = resultSet.getString("Fname");
-        String lastName = resultSet.getString("Lname");
-        String email = resultSet.getString("email");
-        Date hireDate = resultSet.getDate("HireDate");
-        double salary = resultSet.getDouble("Salary");
-        String address = resultSet.getString("address");
-        Date dob = resultSet.getDate("date_of_birth");
-
-        System.out.println("\nEmployee ID: " + empId);
-        System.out.println("First Name: " + firstName);
-        System.out.println("Last Name: " + lastName);
-        System.out.println("Email: " + email);
-        System.out.println("Hire Date: " + hireDate);
-        System.out.println("Salary: " + salary);
-        System.out.println("Address: " + address);
-        System.out.println("Date of Birth: " + dob);
-        if (isSSNColumnAvailable()) {
-            System.out.println("SSN: " + resultSet.getString("SSN"));
+    private void displayEmployeeDetails(Employee employee, boolean ssnAvailable) {
+        System.out.println("\nEmployee ID: " + employee.getEmpId());
+        System.out.println("First Name: " + employee.getFirstName());
+        System.out.println("Last Name: " + employee.getLastName());
+        System.out.println("Email: " + employee.getEmail());
+        System.out.println("Hire Date: " + employee.getHireDate());
+        System.out.println("Salary: " + employee.getSalary());
+        System.out.println("Address: " + employee.getAddress());
+        System.out.println("Date of Birth: " + employee.getDateOfBirth());
+        if (ssnAvailable) {
+            System.out.println("SSN: " + employee.getSsn());
         }
     }
 
@@ -104,9 +123,7 @@ public class SearchEmployee {
      */
     boolean isSSNColumnAvailable() {
         try {
-            DatabaseMetaData metaData = employeeDatabase.connection.getMetaData();
-            ResultSet columns = metaData.getColumns(null, null, "employees", "SSN");
-            return columns.next(); // True if the SSN column exists.
+            return employeeDatabase.isSSNColumnAvailable();
         } catch (SQLException e) {
             System.out.println("Failed to check SSN column availability: " + e.getMessage());
             return false;
@@ -0,0 +1,321 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * The SnapshotFile class saves the state that is expensive to load from the database, the employee names of
+ * the NameIndex and the pay stubs of PayrollAnalytics, in one binary file, so that the next run of the
+ * application can start from it and only fetch the rows changed since. Each part carries the watermark it was
+ * loaded up to; see NameIndex and PayrollAnalytics for how the changes are found.
+ *
+ * The file starts with a fixed header: a magic number, the format version, the time it was written, the
+ * length of the body and a CRC32 of the body. The body names the database the snapshot was taken from and
+ * holds the sections, with the columns of each section stored one after another so they are read back in
+ * bulk. The file is read and written whole through a heap buffer and replaced atomically when written. It is
+ * not memory-mapped, because on Windows a mapping stays alive until it is garbage collected and keeps the
+ * file from being replaced. A file of another version, of another database, or with a wrong checksum is
+ * ignored, and everything is loaded from the database as if there were no snapshot.
+ */
+final class SnapshotFile {
+    /**
+     * "EMSS" in ASCII.
+     */
+    private static final int MAGIC = 0x454D5353;
+
+    /**
+     * Version of the file layout; files of any other version are ignored.
+     */
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final byte NAMES_SECTION = 1;
+    private static final byte PAYROLL_SECTION = 2;
+
+    /**
+     * The employee names, or null if the file has none.
+     */
+    final Names names;
+
+    /**
+     * The pay stubs, or null if the file has none.
+     */
+    final Payroll payroll;
+
+    SnapshotFile(Names names, Payroll payroll) {
+        this.names = names;
+        this.payroll = payroll;
+    }
+
+    /**
+     * The indexed names of every employee and the time up to which changes to the employees table are included.
+     */
+    static final class Names {
+        final long watermarkMillis;
+        final int[] empIds;
+
+        /**
+         * First name, last name and email of each employee, three entries per employee; null for no value.
+         */
+        final String[] values;
+
+        Names(long watermarkMillis, int[] empIds, String[] values) {
+            this.watermarkMillis = watermarkMillis;
+            this.empIds = empIds;
+            this.values = values;
+        }
+    }
+
+    /**
+     * The pay stubs of a payroll snapshot and the payroll rows they were loaded from.
+     */
+    static final class Payroll {
+        final PayrollAnalytics.Watermark watermark;
+        final PayrollAnalytics.Stubs stubs;
+
+        Payroll(PayrollAnalytics.Watermark watermark, PayrollAnalytics.Stubs stubs) {
+            this.watermark = watermark;
+            this.stubs = stubs;
+        }
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param file The file to read.
+     * @param source The JDBC URL of the database; a snapshot of any other database is ignored.
+     * @return The snapshot, or null if the file does not exist or cannot be used.
+     */
+    static SnapshotFile read(Path file, String source) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+                return ignored(file, "it is not a snapshot file");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return ignored(file, "it is truncated");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                return ignored(file, "it is not a snapshot file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                return ignored(file, "it has format version " + version + " instead of " + VERSION);
+            }
+            buffer.getLong(); // written at
+            long bodyLength = buffer.getLong();
+            int checksum = buffer.getInt();
+            if (bodyLength != length - HEADER_BYTES) {
+                return ignored(file, "it is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return ignored(file, "its checksum does not match");
+            }
+            if (!source.equals(getString(buffer))) {
+                return null;
+            }
+            Names names = null;
+            Payroll payroll = null;
+            while (buffer.hasRemaining()) {
+                byte section = buffer.get();
+                if (section == NAMES_SECTION) {
+                    names = readNames(buffer);
+                } else if (section == PAYROLL_SECTION) {
+                    payroll = readPayroll(buffer);
+                } else {
+                    return ignored(file, "it has an unknown section " + section);
+                }
+            }
+            return new SnapshotFile(names, payroll);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            return ignored(file, e.getMessage());
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return ignored(file, "it is malformed");
+        }
+    }
+
+    private static SnapshotFile ignored(Path file, String reason) {
+        System.err.println("Ignoring snapshot " + file + " because " + reason + ".");
+        return null;
+    }
+
+    /**
+     * Writes a snapshot file, replacing the previous one only once the new one is complete.
+     *
+     * @param file The file to write.
+     * @param source The JDBC URL of the database the snapshot was taken from.
+     * @param names The employee names to save, or null.
+     * @param payroll The pay stubs to save, or null.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Path file, String source, Names names, Payroll payroll) throws IOException {
+        byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        byte[][] valueBytes = null;
+        long bodyLength = 4 + sourceBytes.length;
+        if (names != null) {
+            valueBytes = new byte[names.values.length][];
+            bodyLength += 1 + 8 + 4 + 4L * names.empIds.length;
+            for (int i = 0; i < valueBytes.length; i++) {
+                valueBytes[i] = names.values[i] == null ? null : names.values[i].getBytes(StandardCharsets.UTF_8);
+                bodyLength += 4 + (valueBytes[i] == null ? 0 : valueBytes[i].length);
+            }
+        }
+        if (payroll != null) {
+            // empIds, payDays, partTime and seven money columns per stub
+            bodyLength += 1 + 4 + 8 + 4 + 8 + 4 + (long) payroll.stubs.size * (4 + 4 + 1 + 7 * 8);
+        }
+        if (HEADER_BYTES + bodyLength > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot is too large for a single file: " + bodyLength + " bytes");
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (HEADER_BYTES + bodyLength));
+            buffer.position(HEADER_BYTES);
+            buffer.putInt(sourceBytes.length).put(sourceBytes);
+            if (names != null) {
+                buffer.put(NAMES_SECTION);
+                buffer.putLong(names.watermarkMillis);
+                buffer.putInt(names.empIds.length);
+                putInts(buffer, names.empIds, names.empIds.length);
+                for (byte[] value : valueBytes) {
+                    putBytes(buffer, value);
+                }
+            }
+            if (payroll != null) {
+                PayrollAnalytics.Watermark watermark = payroll.watermark;
+                PayrollAnalytics.Stubs stubs = payroll.stubs;
+                buffer.put(PAYROLL_SECTION);
+                buffer.putInt(watermark.payrollMaxId).putLong(watermark.payrollRows);
+                buffer.putInt(watermark.partTimeMaxId).putLong(watermark.partTimeRows);
+                buffer.putInt(stubs.size);
+                putInts(buffer, stubs.empIds, stubs.size);
+                putInts(buffer, stubs.payDays, stubs.size);
+                for (int i = 0; i < stubs.size; i++) {
+                    buffer.put(stubs.partTime[i] ? (byte) 1 : (byte) 0);
+                }
+                for (long[] column : new long[][] { stubs.gross, stubs.fedTax, stubs.fedMed, stubs.fedSS,
+                        stubs.stateTax, stubs.retire401k, stubs.healthCare }) {
+                    putLongs(buffer, column, stubs.size);
+                }
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(HEADER_BYTES));
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(8, System.currentTimeMillis());
+            buffer.putLong(16, bodyLength);
+            buffer.putInt(24, (int) crc.getValue());
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Names readNames(ByteBuffer buffer) {
+        long watermarkMillis = buffer.getLong();
+        int count = count(buffer, 4);
+        int[] empIds = getInts(buffer, count);
+        String[] values = new String[count * 3];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getString(buffer);
+        }
+        return new Names(watermarkMillis, empIds, values);
+    }
+
+    private static Payroll readPayroll(ByteBuffer buffer) {
+        PayrollAnalytics.Watermark watermark = new PayrollAnalytics.Watermark(buffer.getInt(), buffer.getLong(),
+                buffer.getInt(), buffer.getLong());
+        int size = count(buffer, 4 + 4 + 1 + 7 * 8);
+        int[] empIds = getInts(buffer, size);
+        int[] payDays = getInts(buffer, size);
+        boolean[] partTime = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            partTime[i] = buffer.get() != 0;
+        }
+        PayrollAnalytics.Stubs stubs = new PayrollAnalytics.Stubs(size, empIds, payDays, partTime,
+                getLongs(buffer, size), getLongs(buffer, size), getLongs(buffer, size), getLongs(buffer, size),
+                getLongs(buffer, size), getLongs(buffer, size), getLongs(buffer, size));
+        return new Payroll(watermark, stubs);
+    }
+
+    /**
+     * Reads a row count and checks that the buffer can hold that many rows of the given size.
+     */
+    private static int count(ByteBuffer buffer, int bytesPerRow) {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * bytesPerRow > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static int[] getInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + 8 * count);
+        return values;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values, int count) {
+        buffer.asIntBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + 4 * count);
+    }
+
+    private static void putLongs(ByteBuffer buffer, long[] values, int count) {
+        buffer.asLongBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + 8 * count);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+}
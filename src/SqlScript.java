@@ -0,0 +1,65 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+
+/**
+ * The SqlScript class runs a file of SQL statements, such as the schema and seed scripts in the sql folder.
+ * Statements end with a semicolon at the end of a line and may span several lines; lines starting with
+ * "--" are comments.
+ */
+final class SqlScript {
+    private SqlScript() {
+    }
+
+    /**
+     * Runs every statement of a script on the given connection, in order. The statements are committed
+     * together if the connection is not in auto-commit mode.
+     *
+     * @param connection The connection to run the statements on.
+     * @param script The path of the script.
+     * @return The number of statements run.
+     * @throws IOException If the script cannot be read.
+     * @throws SQLException If a statement fails; the message names the failing statement.
+     */
+    static int run(Connection connection, Path script) throws IOException, SQLException {
+        int count = 0;
+        StringBuilder statement = new StringBuilder();
+        try (BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8);
+             Statement stmt = connection.createStatement()) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                if (trimmed.endsWith(";")) {
+                    statement.append(trimmed, 0, trimmed.length() - 1);
+                    execute(stmt, statement.toString(), script);
+                    statement.setLength(0);
+                    count++;
+                } else {
+                    statement.append(trimmed).append('\n');
+                }
+            }
+            if (statement.length() > 0) {
+                execute(stmt, statement.toString(), script);
+                count++;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+        return count;
+    }
+
+    private static void execute(Statement stmt, String sql, Path script) throws SQLException {
+        try {
+            stmt.execute(sql);
+        } catch (SQLException e) {
+            throw new SQLException(script + ": " + e.getMessage() + "\n" + sql, e.getSQLState(), e.getErrorCode(), e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The StartupTimings class records how long each startup phase of the application takes, from the start of
+ * the JVM to the first prompt or the first result, so that cold-start time can be measured and kept low.
+ * The phases are printed on standard error when the system property ems.startupTimings is set to true;
+ * recording them costs only a clock read per phase.
+ */
+final class StartupTimings {
+    /**
+     * System property that enables the startup timing report.
+     */
+    static final String PROPERTY = "ems.startupTimings";
+
+    private final long start = System.nanoTime();
+    private final List<String> phases = new ArrayList<>();
+    private final List<Long> durations = new ArrayList<>();
+    private long last = start;
+    private boolean printed;
+
+    /**
+     * Ends the current phase and starts the next one.
+     *
+     * @param phase The name of the phase that just ended.
+     */
+    void mark(String phase) {
+        long now = System.nanoTime();
+        phases.add(phase);
+        durations.add(now - last);
+        last = now;
+    }
+
+    /**
+     * Prints the recorded phases once, if the startup timing report is enabled. The time spent opening
+     * database connections is reported separately because it falls inside whichever phase first used
+     * the database.
+     *
+     * @param employeeDatabase The database whose connection time is reported.
+     */
+    void print(EmployeeDatabase employeeDatabase) {
+        if (printed || !Boolean.getBoolean(PROPERTY)) {
+            return;
+        }
+        printed = true;
+        long sinceMain = System.nanoTime() - start;
+        long beforeMain = ManagementFactory.getRuntimeMXBean().getUptime() - sinceMain / 1_000_000;
+        StringBuilder report = new StringBuilder("Startup timings: JVM until main ").append(beforeMain).append(" ms");
+        for (int i = 0; i < phases.size(); i++) {
+            report.append(String.format(", %s %.1f ms", phases.get(i), durations.get(i) / 1e6));
+        }
+        report.append(String.format(" (connecting %.1f ms), total since main %.1f ms",
+                employeeDatabase.getConnectNanos() / 1e6, sinceMain / 1e6));
+        System.err.println(report);
+    }
+}
@@ -0,0 +1,249 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * The StatementCache class keeps the prepared statements of one physical connection so that the same SQL text
+ * is prepared only once per connection. Statements are handed out as proxies: closing a proxy clears the
+ * statement's parameters, restores the driver's fetch size, maximum rows and query timeout, and returns it to
+ * the cache instead of closing it. The least recently used statement is closed when the cache grows past its
+ * maximum size. SQL with an IN list of placeholders is built for a varying number of IDs, so each length would
+ * take its own entry and push out the statements worth keeping; such statements are prepared privately and
+ * closed when they are handed back.
+ *
+ * A cache belongs to a single pooled connection, which is only ever used by one thread at a time,
+ * so it needs no locking of its own. The hit and miss counters and the query metrics are shared by all
+ * caches of a pool; every execution of a handed-out statement is measured by the query metrics.
+ */
+class StatementCache {
+    /**
+     * Matches an IN list made only of placeholders, such as "IN (?, ?, ?)".
+     */
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+
+    private final Connection connection;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final QueryMetrics queryMetrics;
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Constructs a StatementCache for a physical connection.
+     *
+     * @param connection The connection statements are prepared on.
+     * @param maxSize The maximum number of statements kept open.
+     * @param hits The counter incremented when a cached statement is reused.
+     * @param misses The counter incremented when a statement has to be prepared.
+     * @param queryMetrics The metrics that statement executions are recorded in.
+     */
+    StatementCache(Connection connection, int maxSize, AtomicLong hits, AtomicLong misses, QueryMetrics queryMetrics) {
+        this.connection = connection;
+        this.hits = hits;
+        this.misses = misses;
+        this.queryMetrics = queryMetrics;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL text, reusing a cached one when it is not already in use.
+     *
+     * @param sql The SQL text of the statement.
+     * @param onClose An action run after the statement is handed back, or null for none.
+     * @return A statement proxy; closing it returns the statement to the cache.
+     * @throws SQLException If a new statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql, AutoCloseable onClose) throws SQLException {
+        boolean cacheable = !PLACEHOLDER_LIST.matcher(sql).find();
+        Entry entry = cacheable ? entries.get(sql) : null;
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            Entry prepared = new Entry(sql, connection.prepareStatement(sql));
+            if (entry == null && cacheable) {
+                entries.put(sql, prepared);
+            } else {
+                // The cached statement is busy (e.g. a nested query with the same SQL), or the SQL is not worth
+                // caching, so use a private one
+                prepared.evicted = true;
+            }
+            entry = prepared;
+        }
+        entry.inUse = true;
+        return new Checkout(entry, onClose, queryMetrics).proxy;
+    }
+
+    /**
+     * Closes every cached statement. Statements that are still checked out are closed when they are returned.
+     */
+    void close() {
+        List<Entry> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (Entry entry : all) {
+            entry.evict();
+        }
+    }
+
+    /**
+     * A cached statement and its checkout state.
+     */
+    private static final class Entry {
+        final String sql;
+        final PreparedStatement statement;
+        final int fetchSize;
+        final int maxRows;
+        final int queryTimeout;
+        boolean inUse;
+        boolean evicted;
+
+        Entry(String sql, PreparedStatement statement) throws SQLException {
+            this.sql = sql;
+            this.statement = statement;
+            try {
+                // The settings of a freshly prepared statement are the driver defaults restored on every return
+                this.fetchSize = statement.getFetchSize();
+                this.maxRows = statement.getMaxRows();
+                this.queryTimeout = statement.getQueryTimeout();
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                throw e;
+            }
+        }
+
+        /**
+         * Removes the statement from service, closing it now if idle or once it is returned otherwise.
+         */
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+    /**
+     * One use of a cached statement. The proxy forwards every call to the statement until it is closed,
+     * measures its executions, remembers the result sets it produced so they can be closed with it, and then
+     * hands the statement back.
+     */
+    private static final class Checkout implements InvocationHandler {
+        final Entry entry;
+        final AutoCloseable onClose;
+        final QueryMetrics queryMetrics;
+        final PreparedStatement proxy;
+        private final List<ResultSet> resultSets = new ArrayList<>(1);
+        private Object[] parameters;
+        private boolean closed;
+
+        Checkout(Entry entry, AutoCloseable onClose, QueryMetrics queryMetrics) {
+            this.entry = entry;
+            this.onClose = onClose;
+            this.queryMetrics = queryMetrics;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached " + entry.statement;
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has already been closed.");
+                    }
+                    Object result;
+                    if (method.getName().startsWith("execute")) {
+                        result = queryMetrics.execute(entry.sql, entry.statement, method, args, parameters);
+                    } else {
+                        parameters = QueryMetrics.bind(parameters, method, args);
+                        try {
+                            result = method.invoke(entry.statement, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    if (result instanceof ResultSet) {
+                        resultSets.add((ResultSet) result);
+                    }
+                    return result;
+            }
+        }
+
+        /**
+         * Resets the statement for its next user and releases it, then runs the close action.
+         */
+        private void giveBack() throws SQLException {
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                resultSets.clear();
+                if (entry.evicted) {
+                    closeQuietly(entry.statement);
+                } else {
+                    entry.statement.clearParameters();
+                    entry.statement.clearBatch();
+                    entry.statement.setFetchSize(entry.fetchSize);
+                    entry.statement.setMaxRows(entry.maxRows);
+                    entry.statement.setQueryTimeout(entry.queryTimeout);
+                }
+            } catch (SQLException e) {
+                // A statement that cannot be reset must not be reused
+                entry.evicted = true;
+                closeQuietly(entry.statement);
+            } finally {
+                entry.inUse = false;
+                if (onClose != null) {
+                    try {
+                        onClose.close();
+                    } catch (SQLException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new SQLException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes a statement, ignoring failures since it is being discarded.
+     */
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The statement is being thrown away; nothing more can be done with it.
+        }
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.sql.*;
 
@@ -6,6 +9,11 @@ import java.sql.*;
  * This class provides methods to update various details of an employee in the database.
  */
 class UpdateEmployee {
+    /**
+     * Number of affected employees listed when previewing a salary range raise.
+     */
+    private static final int PREVIEW_SAMPLE_SIZE = 20;
+
     private final EmployeeDatabase employeeDatabase;
 
     /**
@@ -83,15 +91,7 @@ class UpdateEmployee {
     private void updateEmail(int empId, Scanner scanner) {
         System.out.print("Enter new email: ");
         String email = scanner.nextLine();
-        String query = "UPDATE employees SET email = ? WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setString(1, email);
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee email updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to update employee email: " + e.getMessage());
-        }
+        apply(empId, new EmployeeService.Changes().email(email), "email");
     }
 
     /**
@@ -103,16 +103,7 @@ class UpdateEmployee {
         System.out.print("Enter new salary: ");
         double salary = scanner.nextDouble();
         scanner.nextLine();
-
-        String query = "UPDATE employees SET Salary = ? WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setDouble(1, salary);
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee salary updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to update employee salary: " + e.getMessage());
-        }
+        apply(empId, new EmployeeService.Changes().salary(salary), "salary");
     }
 
     /**
@@ -123,18 +114,7 @@ class UpdateEmployee {
     private void updateJobTitle(int empId, Scanner scanner) {
         System.out.print("Enter new job title: ");
         String jobTitle = scanner.nextLine();
-        String query = "UPDATE job_titles jt " +
-                "JOIN employee_job_titles ejt ON jt.job_title_id = ejt.job_title_id " +
-                "SET jt.job_title = ? " +
-                "WHERE ejt.empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setString(1, jobTitle);
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee job title updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to update employee job title: " + e.getMessage());
-        }
+        apply(empId, new EmployeeService.Changes().jobTitle(jobTitle), "job title");
     }
 
     /**
@@ -145,19 +125,12 @@ class UpdateEmployee {
     private void updateSSN(int empId, Scanner scanner) {
         System.out.print("Enter new SSN: ");
         String ssn = scanner.nextLine();
-        String query = "UPDATE employees SET SSN = ? WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setString(1, ssn);
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee SSN updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to update employee SSN: " + e.getMessage());
-        }
+        apply(empId, new EmployeeService.Changes().ssn(ssn), "SSN");
     }
 
     /**
-     * Updates the salaries of all employees within a specified salary range by a given percentage.
+     * Updates the salaries of all employees within a specified salary range by a given percentage. The
+     * affected employees and totals are previewed first, and the raise is applied only after confirmation.
      * @param scanner The scanner object to receive the salary range and increase percentage from the user.
      */
     void updateEmployeeSalaryRange(Scanner scanner) {
@@ -169,18 +142,69 @@ class UpdateEmployee {
         double increase = scanner.nextDouble();
         scanner.nextLine(); 
 
-        String query = "UPDATE employees SET Salary = Salary * (1 + ? / 100) WHERE Salary >= ? AND Salary < ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setDouble(1, increase);
-            pstmt.setDouble(2, minSalary);
-            pstmt.setDouble(3, maxSalary);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee salaries updated successfully.");
+        SalaryRaise salaryRaise = new SalaryRaise(employeeDatabase);
+        try {
+            SalaryRaise.Preview preview = salaryRaise.preview(minSalary, maxSalary, increase, PREVIEW_SAMPLE_SIZE);
+            printPreview(preview);
+            if (preview.employees == 0) {
+                return;
+            }
+            System.out.print("Apply this raise? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                System.out.println("Salary raise cancelled.");
+                return;
+            }
+            SalaryRaise.Result result = salaryRaise.apply(minSalary, maxSalary, increase);
+            System.out.printf("Raised %d salaries by $%.2f in total. Batch ID: %d%n",
+                    result.employees, result.amount, result.batchId);
         } catch (SQLException e) {
             System.out.println("Failed to update employee salaries: " + e.getMessage());
         }
     }
 
+    /**
+     * Rolls back a salary range raise by its batch ID, restoring the salaries it changed.
+     * @param scanner The scanner object to receive the batch ID from the user.
+     */
+    void rollbackSalaryRaise(Scanner scanner) {
+        System.out.print("Enter salary raise batch ID: ");
+        int batchId = scanner.nextInt();
+        scanner.nextLine();
+
+        try {
+            SalaryRaise.Result result = new SalaryRaise(employeeDatabase).rollback(batchId);
+            System.out.printf("Restored %d salaries", result.employees);
+            if (result.skipped > 0) {
+                System.out.printf("; %d were changed again after the raise and were left alone", result.skipped);
+            }
+            System.out.println(".");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to roll back the salary raise: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the number of employees a raise affects, the salary totals before and after, and the first of them.
+     * @param preview The preview of the raise.
+     */
+    static void printPreview(SalaryRaise.Preview preview) {
+        if (preview.employees == 0) {
+            System.out.println("No employees have a salary in this range.");
+            return;
+        }
+        System.out.printf("%-8s %-30s %12s %12s%n", "EmpID", "Name", "Salary", "New Salary");
+        for (SalaryRaise.Change change : preview.sample) {
+            System.out.printf("%-8d %-30s %12.2f %12.2f%n", change.empId, change.name, change.oldSalary, change.newSalary);
+        }
+        if (preview.employees > preview.sample.size()) {
+            System.out.printf("... and %d more%n", preview.employees - preview.sample.size());
+        }
+        System.out.printf("%d employees, total salary $%.2f -> $%.2f (+$%.2f)%n", preview.employees,
+                preview.currentTotal, preview.newTotal, preview.newTotal - preview.currentTotal);
+    }
+
     /**
      * Updates the address of a specific employee.
      * @param empId The employee ID for which to update the address.
@@ -189,15 +213,7 @@ class UpdateEmployee {
     private void updateAddress(int empId, Scanner scanner) {
         System.out.print("Enter new address: ");
         String address = scanner.nextLine();
-        String query = "UPDATE employees SET address = ? WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setString(1, address);
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee address updated successfully.");
-        } catch (SQLException e) {
-            System.out.println("Failed to update employee address: " + e.getMessage());
-        }
+        apply(empId, new EmployeeService.Changes().address(address), "address");
     }
 
     /**
@@ -208,14 +224,173 @@ class UpdateEmployee {
     private void updateDateOfBirth(int empId, Scanner scanner) {
         System.out.print("Enter new date of birth (YYYY-MM-DD): ");
         String dob = scanner.nextLine();
-        String query = "UPDATE employees SET date_of_birth = ? WHERE empid = ?";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-            pstmt.setDate(1, Date.valueOf(dob));
-            pstmt.setInt(2, empId);
-            employeeDatabase.executeUpdate(pstmt);
-            System.out.println("Employee date of birth updated successfully.");
+        apply(empId, new EmployeeService.Changes().dateOfBirth(Date.valueOf(dob)), "date of birth");
+    }
+
+    /**
+     * Applies changes to an employee in one transaction on one connection: the changed columns of the employees
+     * row with a single UPDATE, and the job title, which renames the title the employee holds. The employee
+     * cache, the name index and the audit log are updated only once the transaction has committed.
+     * @param empId The employee ID.
+     * @param values The new value of each field to change.
+     * @throws SQLException If the employee cannot be updated; nothing is changed in that case.
+     */
+    void update(int empId, Map<EmployeeService.Field, Object> values) throws SQLException {
+        Employee before = currentEmployee(empId);
+        String jobTitleBefore = values.containsKey(EmployeeService.Field.JOB_TITLE) ? currentJobTitle(empId) : null;
+        List<EmployeeService.Field> columns = new ArrayList<>();
+        StringBuilder query = new StringBuilder("UPDATE employees SET ");
+        for (EmployeeService.Field field : values.keySet()) {
+            if (field != EmployeeService.Field.JOB_TITLE) {
+                query.append(columns.isEmpty() ? "" : ", ").append(column(field)).append(" = ?");
+                columns.add(field);
+            }
+        }
+        query.append(" WHERE empid = ?");
+
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!columns.isEmpty()) {
+                    try (PreparedStatement pstmt = connection.prepareStatement(query.toString())) {
+                        int index = 1;
+                        for (EmployeeService.Field field : columns) {
+                            Object value = values.get(field);
+                            switch (field) {
+                                case SALARY:
+                                    pstmt.setDouble(index++, (Double) value);
+                                    break;
+                                case DATE_OF_BIRTH:
+                                    pstmt.setDate(index++, (Date) value);
+                                    break;
+                                default:
+                                    pstmt.setString(index++, (String) value);
+                                    break;
+                            }
+                        }
+                        pstmt.setInt(index, empId);
+                        employeeDatabase.executeUpdate(pstmt);
+                    }
+                }
+                if (values.containsKey(EmployeeService.Field.JOB_TITLE)) {
+                    String jobTitleQuery = "UPDATE job_titles jt " +
+                            "JOIN employee_job_titles ejt ON jt.job_title_id = ejt.job_title_id " +
+                            "SET jt.job_title = ? " +
+                            "WHERE ejt.empid = ?";
+                    try (PreparedStatement pstmt = connection.prepareStatement(jobTitleQuery)) {
+                        pstmt.setString(1, (String) values.get(EmployeeService.Field.JOB_TITLE));
+                        pstmt.setInt(2, empId);
+                        employeeDatabase.executeUpdate(pstmt);
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+
+        employeeDatabase.employeeChanged(empId);
+        AuditLog auditLog = employeeDatabase.getAuditLog();
+        for (Map.Entry<EmployeeService.Field, Object> change : values.entrySet()) {
+            Object value = change.getValue();
+            switch (change.getKey()) {
+                case EMAIL:
+                    auditLog.recordUpdate("employees", empId, "email", before == null ? null : before.getEmail(), value);
+                    employeeDatabase.getNameIndex().updateEmail(empId, (String) value);
+                    break;
+                case SALARY:
+                    auditLog.recordUpdate("employees", empId, "Salary", before == null ? null : before.getSalary(), value);
+                    break;
+                case JOB_TITLE:
+                    auditLog.recordUpdate("job_titles", empId, "job_title", jobTitleBefore, value);
+                    break;
+                case ADDRESS:
+                    auditLog.recordUpdate("employees", empId, "address", before == null ? null : before.getAddress(), value);
+                    break;
+                case DATE_OF_BIRTH:
+                    auditLog.recordUpdate("employees", empId, "date_of_birth",
+                            before == null ? null : before.getDateOfBirth(), value);
+                    break;
+                case SSN:
+                    auditLog.recordUpdate("employees", empId, "SSN", before == null ? null : before.getSsn(), value);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the employees column that holds a field; the job title is held in another table.
+     * @param field A field other than the job title.
+     * @return The column name.
+     */
+    private static String column(EmployeeService.Field field) {
+        switch (field) {
+            case EMAIL:
+                return "email";
+            case SALARY:
+                return "Salary";
+            case ADDRESS:
+                return "address";
+            case DATE_OF_BIRTH:
+                return "date_of_birth";
+            case SSN:
+                return "SSN";
+            default:
+                throw new IllegalArgumentException("Field " + field + " is not a column of the employees table.");
+        }
+    }
+
+    /**
+     * Applies a change through the employee service and reports the outcome.
+     * @param empId The employee ID.
+     * @param changes The change to apply.
+     * @param field The name of the changed field in the messages.
+     */
+    private void apply(int empId, EmployeeService.Changes changes, String field) {
+        try {
+            if (EmployeeService.await(employeeDatabase.getEmployeeService().update(empId, changes)) == null) {
+                System.out.println("Employee with ID " + empId + " does not exist.");
+            } else {
+                System.out.println("Employee " + field + " updated successfully.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to update employee " + field + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the current row of an employee for the audit log's before image.
+     * @param empId The employee ID.
+     * @return The employee, or null if it cannot be read.
+     */
+    private Employee currentEmployee(int empId) {
+        try {
+            return employeeDatabase.findEmployee(empId);
         } catch (SQLException e) {
-            System.out.println("Failed to update employee date of birth: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the current job title of an employee for the audit log's before image.
+     * @param empId The employee ID.
+     * @return The job title, or null if the employee has none or it cannot be read.
+     */
+    private String currentJobTitle(int empId) {
+        String query = "SELECT jt.job_title FROM job_titles jt " +
+                "JOIN employee_job_titles ejt ON jt.job_title_id = ejt.job_title_id WHERE ejt.empid = ?";
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
+            pstmt.setInt(1, empId);
+            try (ResultSet resultSet = employeeDatabase.executeQuery(pstmt)) {
+                return resultSet.next() ? resultSet.getString("job_title") : null;
+            }
+        } catch (SQLException e) {
+            return null;
         }
     }
 
@@ -226,19 +401,10 @@ class UpdateEmployee {
      */
     private boolean employeeExists(int empId) {
         try {
-            String query = "SELECT COUNT(*) AS count FROM employees WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setInt(1, empId);
-                try (ResultSet resultSet = pstmt.executeQuery()) {
-                    if (resultSet.next()) {
-                        int count = resultSet.getInt("count");
-                        return count > 0;
-                    }
-                }
-            }
+            return employeeDatabase.employeeExists(empId);
         } catch (SQLException e) {
             System.out.println("Failed to check employee existence: " + e.getMessage());
+            return false;
         }
-        return false;
     }
 }
\ No newline at end of file
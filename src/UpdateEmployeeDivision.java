@@ -1,10 +1,28 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeSet;
 import java.sql.*;
 
 /**
- * This class provides methods to update the division of an employee in the database.
+ * This class provides methods to update the division of an employee in the database,
+ * either one employee at a time or for many employees in a single bulk reassignment.
  */
 public class UpdateEmployeeDivision {
+    /**
+     * Maximum number of employees bound into one statement of a bulk reassignment.
+     */
+    private static final int MAX_IDS_PER_STATEMENT = 500;
+
+    /**
+     * Largest ID range accepted in a bulk reassignment selection.
+     */
+    private static final int MAX_RANGE_SIZE = 1_000_000;
+
     private final EmployeeDatabase employeeDatabase;
 
     /**
@@ -43,6 +61,7 @@ public class UpdateEmployeeDivision {
         int currentDivisionId = getCurrentDivision(empId);
         if (currentDivisionId != -1) {
             if (updateDivision(empId, divisionId)) {
+                employeeDatabase.getAuditLog().recordUpdate("employee_division", empId, "div_ID", currentDivisionId, divisionId);
                 System.out.println("Employee's division updated successfully.");
             } else {
                 System.out.println("Failed to update the employee's division.");
@@ -50,6 +69,10 @@ public class UpdateEmployeeDivision {
         } else {
             // Assign a new division to the employee
             if (assignNewDivision(empId, divisionId)) {
+                Map<String, Object> assignment = new LinkedHashMap<>();
+                assignment.put("empid", empId);
+                assignment.put("div_ID", divisionId);
+                employeeDatabase.getAuditLog().recordInsert("employee_division", empId, assignment);
                 System.out.println("Employee's new division assigned successfully.");
             } else {
                 System.out.println("Failed to assign a new division to the employee.");
@@ -57,12 +80,273 @@ public class UpdateEmployeeDivision {
         }
     }
 
+    /**
+     * Moves many employees to one division at once. The user either lists employee IDs (single IDs and ranges
+     * such as "101,105,200-250") or names a source division whose employees should all be moved. The move is
+     * done with set-based statements in one transaction and the numbers of employees moved, newly assigned
+     * and skipped are reported.
+     * @param scanner The scanner object to receive input from the user.
+     */
+    public void bulkReassignDivision(Scanner scanner) {
+        System.out.print("Enter Employee IDs (e.g. 101,105,200-250) or \"div:<ID>\" to move a whole division: ");
+        String selection = scanner.nextLine().trim();
+        listAvailableDivisions();
+        System.out.print("Enter Division ID to assign to the employees: ");
+        int divisionId = scanner.nextInt();
+        scanner.nextLine();
+
+        if (!divisionExists(divisionId)) {
+            System.out.println("Division with ID " + divisionId + " does not exist.");
+            return;
+        }
+        try {
+            ReassignmentResult result;
+            if (selection.toLowerCase().startsWith("div:")) {
+                int fromDivisionId = Integer.parseInt(selection.substring(4).trim());
+                result = reassignDivision(fromDivisionId, divisionId);
+            } else {
+                result = reassignEmployees(parseEmployeeIds(selection), divisionId);
+            }
+            System.out.printf("Division reassignment complete: %d moved, %d newly assigned, %d skipped.%n",
+                    result.moved, result.created, result.skipped);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Failed to reassign employees: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Assigns the given employees to a division with one upsert per batch of IDs, all in a single transaction.
+     * Employees that already belong to another division are moved, employees without a division are assigned,
+     * and employees that do not exist or are already in the target division are skipped. The target division
+     * is locked for the transaction, so it cannot be deleted while employees are moved into it.
+     * @param empIds The IDs of the employees to move.
+     * @param divisionId The target division ID.
+     * @return The numbers of employees moved, newly assigned and skipped.
+     * @throws IllegalArgumentException If the target division does not exist; nothing is changed in that case.
+     * @throws SQLException If the transaction fails; nothing is changed in that case.
+     */
+    ReassignmentResult reassignEmployees(Collection<Integer> empIds, int divisionId) throws SQLException {
+        ReassignmentResult result = new ReassignmentResult();
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(empIds));
+        List<Integer> changed = new ArrayList<>();
+        List<Integer> previousDivisions = new ArrayList<>();
+        inTransaction(connection -> {
+            changed.clear();
+            previousDivisions.clear();
+            lockDivision(connection, divisionId);
+            for (int start = 0; start < ids.size(); start += MAX_IDS_PER_STATEMENT) {
+                List<Integer> batch = ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_STATEMENT));
+                String placeholders = placeholders(batch.size());
+
+                // Lock the current assignments so the counts match what the upsert changes
+                List<Integer> toWrite = new ArrayList<>(batch.size());
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT e.empid, ed.div_ID FROM employees e " +
+                        "LEFT JOIN employee_division ed ON e.empid = ed.empid " +
+                        "WHERE e.empid IN (" + placeholders + ") FOR UPDATE")) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        pstmt.setInt(i + 1, batch.get(i));
+                    }
+                    try (ResultSet resultSet = pstmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            int currentDivision = resultSet.getInt("div_ID");
+                            if (resultSet.wasNull()) {
+                                result.created++;
+                                previousDivisions.add(null);
+                            } else if (currentDivision == divisionId) {
+                                continue;
+                            } else {
+                                result.moved++;
+                                previousDivisions.add(currentDivision);
+                            }
+                            toWrite.add(resultSet.getInt("empid"));
+                        }
+                    }
+                }
+                result.skipped += batch.size() - toWrite.size();
+                if (toWrite.isEmpty()) {
+                    continue;
+                }
+
+                StringBuilder upsert = new StringBuilder("INSERT INTO employee_division (empid, div_ID) VALUES ");
+                for (int i = 0; i < toWrite.size(); i++) {
+                    upsert.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                }
+                upsert.append(" ON DUPLICATE KEY UPDATE div_ID = VALUES(div_ID)");
+                try (PreparedStatement pstmt = connection.prepareStatement(upsert.toString())) {
+                    int index = 1;
+                    for (Integer empId : toWrite) {
+                        pstmt.setInt(index++, empId);
+                        pstmt.setInt(index++, divisionId);
+                    }
+                    pstmt.executeUpdate();
+                }
+                changed.addAll(toWrite);
+            }
+        });
+        AuditLog auditLog = employeeDatabase.getAuditLog();
+        for (int i = 0; i < changed.size(); i++) {
+            auditLog.recordUpdate("employee_division", changed.get(i), "div_ID", previousDivisions.get(i), divisionId);
+        }
+        return result;
+    }
+
+    /**
+     * Moves every employee of one division to another with a single set-based update in one transaction.
+     * The target division is locked for the transaction, as in reassignEmployees.
+     * @param fromDivisionId The division whose employees are moved.
+     * @param toDivisionId The target division ID.
+     * @return The number of employees moved; none are newly assigned or skipped.
+     * @throws IllegalArgumentException If the target division does not exist; nothing is changed in that case.
+     * @throws SQLException If the transaction fails; nothing is changed in that case.
+     */
+    ReassignmentResult reassignDivision(int fromDivisionId, int toDivisionId) throws SQLException {
+        ReassignmentResult result = new ReassignmentResult();
+        if (fromDivisionId == toDivisionId) {
+            return result;
+        }
+        List<Integer> moved = new ArrayList<>();
+        AuditLog auditLog = employeeDatabase.getAuditLog();
+        inTransaction(connection -> {
+            moved.clear();
+            lockDivision(connection, toDivisionId);
+            if (auditLog.isEnabled()) {
+                // Lock and list the rows first so that the audit log can record every employee moved
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT empid FROM employee_division WHERE div_ID = ? FOR UPDATE")) {
+                    pstmt.setInt(1, fromDivisionId);
+                    try (ResultSet resultSet = pstmt.executeQuery()) {
+                        while (resultSet.next()) {
+                            moved.add(resultSet.getInt("empid"));
+                        }
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "UPDATE employee_division SET div_ID = ? WHERE div_ID = ?")) {
+                pstmt.setInt(1, toDivisionId);
+                pstmt.setInt(2, fromDivisionId);
+                result.moved = pstmt.executeUpdate();
+            }
+        });
+        for (Integer empId : moved) {
+            auditLog.recordUpdate("employee_division", empId, "div_ID", fromDivisionId, toDivisionId);
+        }
+        return result;
+    }
+
+    /**
+     * Locks a division row in share mode for the rest of the transaction, so that it cannot be deleted
+     * before the transaction commits the employees assigned to it.
+     * @throws IllegalArgumentException If the division does not exist.
+     */
+    private static void lockDivision(Connection connection, int divisionId) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT ID FROM division WHERE ID = ? FOR SHARE")) {
+            pstmt.setInt(1, divisionId);
+            try (ResultSet resultSet = pstmt.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new IllegalArgumentException("Division with ID " + divisionId + " does not exist.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs database work on one leased connection inside a transaction, committing on success and rolling
+     * back on failure. Foreign key checks stay enabled, so the pooled connection is never handed back with
+     * them turned off.
+     */
+    private void inTransaction(SqlWork work) throws SQLException {
+        try (Connection connection = employeeDatabase.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                work.run(connection);
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Parses a list of employee IDs such as "101, 105, 200-250" into a sorted set.
+     * @param selection The comma-separated IDs and inclusive ranges.
+     * @return The selected employee IDs.
+     * @throws IllegalArgumentException If the list is empty or contains something other than IDs and ranges.
+     */
+    static Set<Integer> parseEmployeeIds(String selection) {
+        Set<Integer> ids = new TreeSet<>();
+        for (String part : selection.split(",")) {
+            String item = part.trim();
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                int dash = item.indexOf('-', 1);
+                if (dash < 0) {
+                    ids.add(Integer.parseInt(item));
+                } else {
+                    int from = Integer.parseInt(item.substring(0, dash).trim());
+                    int to = Integer.parseInt(item.substring(dash + 1).trim());
+                    if (to < from) {
+                        throw new IllegalArgumentException("Range " + item + " is reversed.");
+                    }
+                    if (to - from >= MAX_RANGE_SIZE) {
+                        throw new IllegalArgumentException("Range " + item + " is larger than " + MAX_RANGE_SIZE + " IDs.");
+                    }
+                    for (int id = from; id <= to; id++) {
+                        ids.add(id);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("\"" + item + "\" is not an employee ID or range.");
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalArgumentException("No employee IDs given.");
+        }
+        return ids;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * Database work run by inTransaction on the transaction's connection.
+     */
+    private interface SqlWork {
+        void run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Counts of the employees affected by a bulk division reassignment.
+     */
+    static final class ReassignmentResult {
+        int moved;
+        int created;
+        int skipped;
+    }
+
     /**
      * Lists all available divisions from the database, displaying each one's ID and name.
      */
     private void listAvailableDivisions() {
         String query = "SELECT ID, Name FROM division";
-        try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query);
+        try (PreparedStatement pstmt = employeeDatabase.prepare(query);
              ResultSet resultSet = pstmt.executeQuery()) {
             while (resultSet.next()) {
                 int id = resultSet.getInt("ID");
@@ -79,10 +363,10 @@ public class UpdateEmployeeDivision {
      * @param divisionId The division ID to check.
      * @return true if the division exists, false otherwise.
      */
-    private boolean divisionExists(int divisionId) {
+    boolean divisionExists(int divisionId) {
         try {
             String query = "SELECT COUNT(*) AS count FROM division WHERE ID = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+            try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
                 pstmt.setInt(1, divisionId);
                 try (ResultSet resultSet = pstmt.executeQuery()) {
                     if (resultSet.next()) {
@@ -105,7 +389,7 @@ public class UpdateEmployeeDivision {
     private int getCurrentDivision(int empId) {
         try {
             String query = "SELECT div_ID FROM employee_division WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+            try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
                 pstmt.setInt(1, empId);
                 try (ResultSet resultSet = pstmt.executeQuery()) {
                     if (resultSet.next()) {
@@ -128,37 +412,49 @@ public class UpdateEmployeeDivision {
      */
     private boolean updateDivision(int empId, int divisionId) {
         boolean success = false;
-        try {
-            employeeDatabase.connection.setAutoCommit(false);
-            // Disable foreign key checks
-            try (Statement stmt = employeeDatabase.connection.createStatement()) {
-                stmt.execute("SET FOREIGN_KEY_CHECKS=0");
-            }
-            // Update employee's division
-            String query = "UPDATE employee_division SET div_ID = ? WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setInt(1, divisionId);
-                pstmt.setInt(2, empId);
-                int affectedRows = pstmt.executeUpdate();
-                success = affectedRows > 0;
-            }
-            // Enable foreign key checks
-            try (Statement stmt = employeeDatabase.connection.createStatement()) {
-                stmt.execute("SET FOREIGN_KEY_CHECKS=1");
+        SQLException failure = null;
+        try (Connection connection = employeeDatabase.getConnection()) {
+            try {
+                connection.setAutoCommit(false);
+                // Update employee's division
+                String query = "UPDATE employee_division SET div_ID = ? WHERE empid = ?";
+                try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                    pstmt.setInt(1, divisionId);
+                    pstmt.setInt(2, empId);
+                    int affectedRows = pstmt.executeUpdate();
+                    success = affectedRows > 0;
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                success = false;
+                failure = e;
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    e.addSuppressed(ex);
+                }
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException ex) {
+                    if (failure == null) {
+                        failure = ex;
+                    } else {
+                        failure.addSuppressed(ex);
+                    }
+                }
             }
-            employeeDatabase.connection.commit();
         } catch (SQLException e) {
-            System.out.println("Failed to update employee division: " + e.getMessage());
-            try {
-                employeeDatabase.connection.rollback();
-            } catch (SQLException ex) {
-                System.out.println("Failed to rollback: " + ex.getMessage());
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
             }
-        } finally {
-            try {
-                employeeDatabase.connection.setAutoCommit(true);
-            } catch (SQLException ex) {
-                System.out.println("Failed to reset auto-commit: " + ex.getMessage());
+        }
+        if (failure != null) {
+            System.out.println("Failed to update employee division: " + failure.getMessage());
+            for (Throwable suppressed : failure.getSuppressed()) {
+                System.out.println("  also: " + suppressed.getMessage());
             }
         }
         return success;
@@ -174,7 +470,7 @@ public class UpdateEmployeeDivision {
         boolean success = false;
         try {
             String query = "INSERT INTO employee_division (empid, div_ID) VALUES (?, ?)";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
+            try (PreparedStatement pstmt = employeeDatabase.prepare(query)) {
                 pstmt.setInt(1, empId);
                 pstmt.setInt(2, divisionId);
                 int affectedRows = pstmt.executeUpdate();
@@ -193,19 +489,10 @@ public class UpdateEmployeeDivision {
      */
     private boolean employeeExists(int empId) {
         try {
-            String query = "SELECT COUNT(*) AS count FROM employees WHERE empid = ?";
-            try (PreparedStatement pstmt = employeeDatabase.connection.prepareStatement(query)) {
-                pstmt.setInt(1, empId);
-                try (ResultSet resultSet = pstmt.executeQuery()) {
-                    if (resultSet.next()) {
-                        int count = resultSet.getInt("count");
-                        return count > 0;
-                    }
-                }
-            }
+            return employeeDatabase.employeeExists(empId);
         } catch (SQLException e) {
             System.out.println("Failed to check employee existence: " + e.getMessage());
+            return false;
         }
-        return false;
     }
 }
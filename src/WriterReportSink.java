@@ -0,0 +1,53 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The WriterReportSink class implements ReportSink on top of a java.io.Writer. Rows are copied out of the
+ * caller's StringBuilder through a reusable character array, so no String is created per row.
+ */
+class WriterReportSink implements ReportSink {
+    private final Writer writer;
+    private final boolean closeWriter;
+    private char[] chars = new char[256];
+
+    /**
+     * Constructs a WriterReportSink around a writer.
+     *
+     * @param writer The writer that receives the output; it is wrapped in a BufferedWriter.
+     * @param closeWriter true if closing the sink should close the writer, false if it should only flush it.
+     */
+    WriterReportSink(Writer writer, boolean closeWriter) {
+        this.writer = new BufferedWriter(writer, BUFFER_SIZE);
+        this.closeWriter = closeWriter;
+    }
+
+    @Override
+    public void write(StringBuilder row) throws IOException {
+        int length = row.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        row.getChars(0, length, chars, 0);
+        writer.write(chars, 0, length);
+    }
+
+    @Override
+    public void write(String text) throws IOException {
+        writer.write(text);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeWriter) {
+            writer.close();
+        } else {
+            writer.flush();
+        }
+    }
+}